@@ -1,5 +1,6 @@
 package com.amazin.svelteamazin;
 
+import com.amazin.svelteamazin.metrics.JfrEvents;
 import com.amazin.svelteamazin.model.Book;
 import com.amazin.svelteamazin.model.BookRepository;
 import org.springframework.boot.SpringApplication;
@@ -15,6 +16,9 @@ import java.util.List; // Added for the custom split
 @SpringBootApplication
 public class SvelteAmazinApplication {
 
+    // Rows per amazin.CatalogImportBatch JFR event
+    private static final int IMPORT_BATCH_SIZE = 100;
+
     public static void main(String[] args) {
         SpringApplication.run(SvelteAmazinApplication.class, args);
     }
@@ -37,6 +41,8 @@ public class SvelteAmazinApplication {
                     reader.readLine();// Skip header line
 
                     // Read the rest line by line
+                    JfrEvents.CatalogImportBatch batch = new JfrEvents.CatalogImportBatch();
+                    batch.begin();
                     String line;
                     while ((line = reader.readLine()) != null) {
                         // Trim and skip empty lines
@@ -68,6 +74,7 @@ public class SvelteAmazinApplication {
                         // Expecting 9 columns (The correct number)
                         if (parts.length < 9) {
                             System.err.println("Skipping invalid line (too few columns): " + line);
+                            batch.skipped++;
                             continue;
                         }
 
@@ -85,6 +92,15 @@ public class SvelteAmazinApplication {
 
                         // Save the Book
                         bookRepository.save(new Book(isbn, title, author, publisher, genre, description,price, inventory, imageUrl));
+
+                        if (++batch.loaded == IMPORT_BATCH_SIZE) {
+                            batch.commit();
+                            batch = new JfrEvents.CatalogImportBatch();
+                            batch.begin();
+                        }
+                    }
+                    if (batch.loaded > 0 || batch.skipped > 0) {
+                        batch.commit();
                     }
                 }
             } catch (Exception e) {
@@ -0,0 +1,125 @@
+package com.amazin.svelteamazin.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bulkheads for /api: each group of endpoints gets its own adaptive concurrency
+ * limit, so a pile-up in one (recommendations, big listings) cannot take the whole
+ * Tomcat pool and starve checkout. A request over its bulkhead's limit is rejected
+ * straight away with 503 and {@code Retry-After} instead of queueing.
+ * Requests that match no bulkhead, and event streams, are not limited.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    /** {@code method} null matches any method. The first matching bulkhead wins. */
+    public record Bulkhead(String name, String method, PathPattern path, AimdLimit limit) {
+
+        public static Bulkhead of(String name, String method, String path, AimdLimit limit) {
+            return new Bulkhead(name, method, PathPatternParser.defaultInstance.parse(path), limit);
+        }
+
+        boolean matches(HttpServletRequest request, PathContainer path) {
+            return (method == null || method.equals(request.getMethod())) && this.path.matches(path);
+        }
+    }
+
+    private final List<Bulkhead> bulkheads;
+    private final long retryAfterSeconds;
+    private final MeterRegistry registry;
+
+    public AdmissionControlFilter(List<Bulkhead> bulkheads, long retryAfterSeconds, MeterRegistry registry) {
+        this.bulkheads = List.copyOf(bulkheads);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.registry = registry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !uri.startsWith("/api/") || uri.endsWith("/stream");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Bulkhead bulkhead = bulkheadFor(request);
+        if (bulkhead == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!bulkhead.limit().tryAcquire()) {
+            reject(bulkhead, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        Runnable release = releaseOnce(bulkhead.limit(), start);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Hold the permit until the async part finishes too
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override public void onComplete(AsyncEvent event) { release.run(); }
+                    @Override public void onTimeout(AsyncEvent event) { release.run(); }
+                    @Override public void onError(AsyncEvent event) { release.run(); }
+                    @Override public void onStartAsync(AsyncEvent event) { }
+                });
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    private Bulkhead bulkheadFor(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI());
+        for (Bulkhead bulkhead : bulkheads) {
+            if (bulkhead.matches(request, path)) return bulkhead;
+        }
+        return null;
+    }
+
+    private static Runnable releaseOnce(AimdLimit limit, long start) {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                limit.release(start, System.nanoTime());
+            }
+        };
+    }
+
+    private void reject(Bulkhead bulkhead, HttpServletResponse response) throws IOException {
+        Counter.builder("amazin.admission.rejected")
+                .description("Requests shed because their bulkhead was at its concurrency limit")
+                .tag("bulkhead", bulkhead.name())
+                .register(registry)
+                .increment();
+
+        byte[] body = ("{\"error\":\"overloaded\",\"bulkhead\":\"" + bulkhead.name() + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
@@ -0,0 +1,70 @@
+package com.amazin.svelteamazin.admission;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency limit that adapts to observed latency (additive increase,
+ * multiplicative decrease): every request slower than the target shrinks the
+ * limit by 10%, and requests under target grow it by about one per limit's worth
+ * of completions while the limit is actually being used.
+ *
+ * A burst of slow requests backs off once, not once per request: only requests
+ * that started after the last decrease can trigger another, since the ones already
+ * in flight were admitted under the old limit.
+ */
+public class AimdLimit {
+
+    private static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetNanos;
+
+    // Guarded by this
+    private double limit;
+    private int inflight;
+    private boolean backedOff;
+    private long lastBackoffNanos;
+
+    public AimdLimit(int initialLimit, int minLimit, int maxLimit, long latencyTargetMillis) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Need 1 <= min-limit <= max-limit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(latencyTargetMillis);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (inflight >= (int) limit) return false;
+        inflight++;
+        return true;
+    }
+
+    /**
+     * Call exactly once per successful {@link #tryAcquire()}, with {@link System#nanoTime()}
+     * readings from when the request was admitted and when it finished.
+     */
+    public synchronized void release(long startNanos, long endNanos) {
+        int wasInflight = inflight--;
+        if (endNanos - startNanos > targetNanos) {
+            if (!backedOff || startNanos - lastBackoffNanos >= 0) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+                backedOff = true;
+                lastBackoffNanos = endNanos;
+            }
+        } else if (wasInflight * 2 >= limit) {
+            // Only grow when at least half the limit is in use, so an idle limit does not drift to max
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInflight() {
+        return inflight;
+    }
+}
@@ -0,0 +1,32 @@
+package com.amazin.svelteamazin.admission;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * 429 with the standard rate-limit headers, for limits checked inside a handler.
+ */
+public class RateLimitExceededException extends ResponseStatusException {
+
+    private final transient RateLimiter.Decision decision;
+
+    public RateLimitExceededException(RateLimiter.Decision decision) {
+        super(HttpStatus.TOO_MANY_REQUESTS, "Too many requests, retry in " + decision.retryAfterSeconds() + "s");
+        this.decision = decision;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return headersFor(decision);
+    }
+
+    static HttpHeaders headersFor(RateLimiter.Decision decision) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("RateLimit-Limit", String.valueOf(decision.policy().capacity()));
+        headers.set("RateLimit-Remaining", String.valueOf(decision.remaining()));
+        headers.set("RateLimit-Reset", String.valueOf(decision.retryAfterSeconds()));
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()));
+        return headers;
+    }
+}
@@ -0,0 +1,97 @@
+package com.amazin.svelteamazin.admission;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Applies {@link RateLimiter} policies to route groups before they reach a handler.
+ * Every matched request is charged to its client IP; routes with a user policy are
+ * also charged to the username cookie when there is one. The cookie is set by the
+ * client, so it only ever narrows the IP budget: inventing usernames does not
+ * buy more requests. Refused requests get 429 with rate-limit headers.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    /**
+     * {@code method} null matches any method; {@code userPolicy} null charges the IP only.
+     * The first matching route wins.
+     */
+    public record Route(String ipPolicy, String userPolicy, String method, PathPattern path) {
+
+        public static Route of(String ipPolicy, String userPolicy, String method, String path) {
+            return new Route(ipPolicy, userPolicy, method, PathPatternParser.defaultInstance.parse(path));
+        }
+    }
+
+    private final RateLimiter limiter;
+    private final List<Route> routes;
+
+    public RateLimitFilter(RateLimiter limiter, List<Route> routes) {
+        this.limiter = limiter;
+        this.routes = List.copyOf(routes);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Route route = routeFor(request);
+        if (route != null) {
+            RateLimiter.Decision decision = limiter.tryAcquire(route.ipPolicy(), "ip:" + request.getRemoteAddr());
+            String user = route.userPolicy() != null && decision.allowed() ? username(request) : null;
+            if (user != null) {
+                decision = limiter.tryAcquire(route.userPolicy(), "user:" + user);
+            }
+            if (!decision.allowed()) {
+                reject(decision, response);
+                return;
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    private Route routeFor(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI());
+        for (Route route : routes) {
+            if ((route.method() == null || route.method().equals(request.getMethod())) && route.path().matches(path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private static String username(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) return null;
+        for (Cookie c : cookies) {
+            if ("username".equals(c.getName()) && !c.getValue().isBlank()) return c.getValue();
+        }
+        return null;
+    }
+
+    private static void reject(RateLimiter.Decision decision, HttpServletResponse response) throws IOException {
+        byte[] body = "{\"error\":\"rate limited\"}".getBytes(StandardCharsets.UTF_8);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        RateLimitExceededException.headersFor(decision).forEach((name, values) -> response.setHeader(name, values.get(0)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
@@ -0,0 +1,121 @@
+package com.amazin.svelteamazin.admission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Token-bucket rate limits keyed by policy and identity (an IP, a username).
+ * Policies come from {@code app.rate-limit.policies.<name>.capacity} and
+ * {@code .refill-per-minute}.
+ *
+ * Buckets live in a concurrent map capped at {@code app.rate-limit.max-keys}.
+ * When it overflows, buckets that have refilled to capacity are dropped first,
+ * since a fresh bucket behaves the same; after that, arbitrary ones are dropped.
+ */
+@Component
+public class RateLimiter {
+
+    public static final String LOGIN_IP = "login-ip";
+    public static final String LOGIN_USER = "login-user";
+    public static final String CART = "cart";
+    public static final String CART_IP = "cart-ip";
+
+    public record Policy(String name, int capacity, double refillPerMinute) {
+
+        double tokensPerNano() {
+            return refillPerMinute / TimeUnit.MINUTES.toNanos(1);
+        }
+    }
+
+    /** {@code retryAfterSeconds} is 0 when the request was allowed. */
+    public record Decision(boolean allowed, Policy policy, int remaining, long retryAfterSeconds) {}
+
+    private final Environment env;
+    private final boolean enabled;
+    private final int maxKeys;
+    private final Map<String, Policy> policies = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    public RateLimiter(Environment env,
+                       @Value("${app.rate-limit.enabled:true}") boolean enabled,
+                       @Value("${app.rate-limit.max-keys:100000}") int maxKeys) {
+        this.env = env;
+        this.enabled = enabled;
+        this.maxKeys = maxKeys;
+    }
+
+    public Decision tryAcquire(String policyName, String identity) {
+        Policy policy = policy(policyName);
+        if (!enabled) {
+            return new Decision(true, policy, policy.capacity(), 0);
+        }
+        long now = System.nanoTime();
+        String key = policyName + ':' + identity;
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(policy.capacity(), now));
+            if (buckets.size() > maxKeys) {
+                sweep(now);
+            }
+        }
+
+        double remaining = bucket.tryTake(policy, now);
+        if (remaining >= 0) {
+            return new Decision(true, policy, (int) remaining, 0);
+        }
+        double missing = 1 - bucket.tokens(policy, now);
+        long retryAfter = Math.max(1, (long) Math.ceil(missing / policy.tokensPerNano() / TimeUnit.SECONDS.toNanos(1)));
+        return new Decision(false, policy, 0, retryAfter);
+    }
+
+    /** Like {@link #tryAcquire} but throws {@link RateLimitExceededException} when refused. */
+    public void acquire(String policyName, String identity) {
+        Decision decision = tryAcquire(policyName, identity);
+        if (!decision.allowed()) {
+            throw new RateLimitExceededException(decision);
+        }
+    }
+
+    int trackedKeys() {
+        return buckets.size();
+    }
+
+    private Policy policy(String name) {
+        return policies.computeIfAbsent(name, n -> {
+            String prefix = "app.rate-limit.policies." + n + ".";
+            Integer capacity = env.getProperty(prefix + "capacity", Integer.class);
+            Double refill = env.getProperty(prefix + "refill-per-minute", Double.class);
+            if (capacity == null || refill == null) {
+                throw new IllegalStateException("Rate limit policy '" + n + "' is not configured");
+            }
+            return new Policy(n, capacity, refill);
+        });
+    }
+
+    // One sweeper at a time; other threads carry on while it runs
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) return;
+        try {
+            buckets.entrySet().removeIf(entry -> {
+                String name = entry.getKey().substring(0, entry.getKey().indexOf(':'));
+                return entry.getValue().isFull(policy(name), now);
+            });
+            int target = maxKeys - maxKeys / 10;
+            Iterator<String> keys = buckets.keySet().iterator();
+            while (buckets.size() > target && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
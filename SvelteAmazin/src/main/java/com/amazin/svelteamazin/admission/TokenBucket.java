@@ -0,0 +1,49 @@
+package com.amazin.svelteamazin.admission;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket: the token count and the time it was last refilled are
+ * swapped together with a compare-and-set, so concurrent requests never block.
+ */
+final class TokenBucket {
+
+    private record State(double tokens, long refilledAt) {}
+
+    private final AtomicReference<State> state;
+
+    TokenBucket(int capacity, long now) {
+        this.state = new AtomicReference<>(new State(capacity, now));
+    }
+
+    /**
+     * Takes a token if one is available. Returns the tokens left afterwards, or a
+     * negative number when the request must be refused.
+     */
+    double tryTake(RateLimiter.Policy policy, long now) {
+        while (true) {
+            State current = state.get();
+            double tokens = refilled(current, policy, now);
+            if (tokens < 1) {
+                return -1;
+            }
+            if (state.compareAndSet(current, new State(tokens - 1, now))) {
+                return tokens - 1;
+            }
+        }
+    }
+
+    double tokens(RateLimiter.Policy policy, long now) {
+        return refilled(state.get(), policy, now);
+    }
+
+    // A bucket that has refilled to capacity behaves exactly like a new one, so it can be forgotten
+    boolean isFull(RateLimiter.Policy policy, long now) {
+        return tokens(policy, now) >= policy.capacity();
+    }
+
+    private static double refilled(State state, RateLimiter.Policy policy, long now) {
+        double earned = Math.max(0, now - state.refilledAt()) * policy.tokensPerNano();
+        return Math.min(policy.capacity(), state.tokens() + earned);
+    }
+}
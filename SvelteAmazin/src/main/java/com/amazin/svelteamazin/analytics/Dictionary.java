@@ -0,0 +1,48 @@
+package com.amazin.svelteamazin.analytics;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary encoding for a string column: each distinct value gets a dense int
+ * code in first-seen order. Codes never change, so scans compare ints only.
+ */
+final class Dictionary {
+
+    static final int MISSING = -1;
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    // Copy-on-grow; a reader only ever asks for codes it has already seen in a column
+    private volatile String[] values = new String[64];
+    private int size;
+
+    int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) return code;
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) return code;
+            String[] current = values;
+            if (size == current.length) current = Arrays.copyOf(current, size * 2);
+            current[size] = value;
+            values = current;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    /** The code for {@code value}, or {@link #MISSING} if it never occurred. */
+    int lookup(String value) {
+        Integer code = codes.get(value);
+        return code != null ? code : MISSING;
+    }
+
+    String decode(int code) {
+        return values[code];
+    }
+
+    int size() {
+        return codes.size();
+    }
+}
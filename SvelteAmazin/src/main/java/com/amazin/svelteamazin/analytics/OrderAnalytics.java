@@ -0,0 +1,157 @@
+package com.amazin.svelteamazin.analytics;
+
+import com.amazin.svelteamazin.model.BookRepository;
+import com.amazin.svelteamazin.model.OrderPlacedEvent;
+import com.amazin.svelteamazin.repository.OrderRepository;
+import com.amazin.svelteamazin.service.OrderEventConsumer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Keeps every order line in {@link OrderLineColumns} for ad-hoc owner queries.
+ *
+ * Orders are appended by the single thread of an {@link OrderEventConsumer}: its
+ * catch-up loads the full order history in id pages, and committed orders are
+ * appended as they arrive. The genre stored with a line is the book's genre when
+ * the order was ingested. Orders already appended are remembered by id, so an
+ * order seen both in a history scan and as an event is counted once. Lines held and
+ * orders still queued are published as {@code amazin.order.analytics.lines} and
+ * {@code amazin.order.analytics.backlog}.
+ */
+@Service
+public class OrderAnalytics {
+
+    private final OrderRepository orders;
+    private final BookRepository books;
+    private final OrderLineColumns columns;
+    private final ForkJoinPool scanPool;
+    private final int batchSize;
+    private final OrderEventConsumer events;
+    // Order ids already appended; only touched by the ingest thread
+    private final BitSet ingested = new BitSet();
+    private final boolean enabled;
+
+    public OrderAnalytics(OrderRepository orders, BookRepository books, MeterRegistry registry,
+                          @Value("${app.order-analytics.enabled:true}") boolean enabled,
+                          @Value("${app.order-analytics.segment-size:65536}") int segmentSize,
+                          @Value("${app.order-analytics.parallelism:0}") int parallelism,
+                          @Value("${app.order-analytics.queue-capacity:10000}") int queueCapacity,
+                          @Value("${app.order-analytics.batch-size:500}") int batchSize,
+                          @Value("${app.order-analytics.retry-ms:1000}") long retryMillis) {
+        this.orders = orders;
+        this.books = books;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.events = new OrderEventConsumer("order-analytics", queueCapacity, batchSize, retryMillis,
+                this::scanHistory, this::append);
+        this.scanPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(), pool -> {
+            var t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("order-analytics-scan-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+        this.columns = new OrderLineColumns(segmentSize, scanPool);
+        Gauge.builder("amazin.order.analytics.lines", columns, OrderLineColumns::getLines)
+                .description("Order lines held in memory for analytics queries")
+                .register(registry);
+        Gauge.builder("amazin.order.analytics.backlog", events, OrderEventConsumer::getBacklog)
+                .description("Committed orders queued but not yet appended for analytics")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            events.start();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        events.offer(event.orderId());
+    }
+
+    /**
+     * Runs a filtered group-by over every line ingested so far.
+     *
+     * @throws IllegalArgumentException if the grouping would produce too many groups
+     */
+    public OrderLineColumns.Result query(OrderLineColumns.Query query) {
+        return columns.query(query);
+    }
+
+
+    private void scanHistory() {
+        long after = 0;
+        while (true) {
+            List<Long> ids = orders.findIdsAfter(after, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) return;
+            append(ids);
+            after = ids.get(ids.size() - 1);
+        }
+    }
+
+    private void append(Collection<Long> orderIds) {
+        List<Long> fresh = orderIds.stream().filter(id -> !isIngested(id)).distinct().toList();
+        if (fresh.isEmpty()) return;
+
+        // [order id, createdAt, isbn, title, price, quantity], grouped per order in id order
+        Map<Long, List<Object[]>> byOrder = new TreeMap<>();
+        Set<String> isbns = new HashSet<>();
+        for (Object[] line : orders.findLines(fresh)) {
+            byOrder.computeIfAbsent((Long) line[0], id -> new ArrayList<>()).add(line);
+            isbns.add((String) line[2]);
+        }
+        Map<String, String> genres = new HashMap<>();
+        for (Map<String, Object> book : books.findFieldsByIsbnIn(List.of("isbn", "genre"), isbns)) {
+            genres.put((String) book.get("isbn"), (String) book.get("genre"));
+        }
+
+        byOrder.forEach((orderId, lines) -> {
+            List<OrderLineColumns.Line> columnLines = new ArrayList<>(lines.size());
+            for (Object[] line : lines) {
+                String isbn = (String) line[2];
+                columnLines.add(new OrderLineColumns.Line(isbn, genres.get(isbn),
+                        Math.round(((Number) line[4]).doubleValue() * 100), ((Number) line[5]).intValue()));
+            }
+            columns.append(orderId, ((LocalDateTime) lines.get(0)[1]).toLocalDate(), columnLines);
+            markIngested(orderId);
+        });
+        // Orders without lines are marked too, so they are not looked up again
+        fresh.forEach(this::markIngested);
+    }
+
+    private boolean isIngested(long orderId) {
+        return orderId <= Integer.MAX_VALUE && ingested.get((int) orderId);
+    }
+
+    private void markIngested(long orderId) {
+        if (orderId <= Integer.MAX_VALUE) ingested.set((int) orderId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scanPool.shutdownNow();
+        events.stop(1_000);
+    }
+}
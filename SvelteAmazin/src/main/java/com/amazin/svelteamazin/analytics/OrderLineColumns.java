@@ -0,0 +1,346 @@
+package com.amazin.svelteamazin.analytics;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Order lines stored column by column in primitive arrays: order id, day, ISBN and
+ * genre (dictionary codes), unit price in cents and quantity.
+ *
+ * Rows live in fixed-size segments that are only ever appended to. An order's lines
+ * are appended together and never straddle two segments, which lets a scan count
+ * distinct orders by watching the order id change. Queries split the segments
+ * across a fork/join pool; each task aggregates into dense per-group arrays and the
+ * partial results are added together.
+ *
+ * One thread appends; any number of threads query. A segment's rows are published
+ * by the volatile {@code size} write, so a scan sees a consistent prefix.
+ */
+public final class OrderLineColumns {
+
+    public enum GroupBy { NONE, GENRE, ISBN, PRICE_BAND, DAY }
+
+    public enum Sort { KEY, LINES, ORDERS, UNITS, REVENUE, AVG_BASKET }
+
+    public record Line(String isbn, String genre, long priceCents, int quantity) {}
+
+    /** Null bounds are open. Prices are per unit, in cents, inclusive. */
+    public record Filter(LocalDate from, LocalDate to, String genre, String isbn, Long minPriceCents, Long maxPriceCents) {
+        public static final Filter NONE = new Filter(null, null, null, null, null, null);
+    }
+
+    public record Query(GroupBy groupBy, long bandCents, Filter filter, Sort sort, int limit) {}
+
+    /** avgBasket is units per order within the group. */
+    public record Group(String key, long lines, long orders, long units, double revenue, double avgBasket) {}
+
+    public record Result(long scannedLines, long matchedLines, List<Group> groups, long micros) {}
+
+    // Dense per-leaf group arrays take 40 bytes a group: 40 MB at the cap
+    private static final int MAX_GROUPS = 1_000_000;
+    // Roughly the most all of a query's group arrays may take at once; fewer leaves when groups are many
+    private static final long PARTIALS_BUDGET_BYTES = 64L << 20;
+    private static final int ANY = Integer.MIN_VALUE;
+    private static final int LEAVES_PER_THREAD = 4;
+
+    private static final class Segment {
+        private final long[] orderIds;
+        private final int[] days;
+        private final int[] isbns;
+        private final int[] genres;
+        private final int[] prices;
+        private final int[] quantities;
+        private volatile int size;
+
+        private Segment(int capacity) {
+            orderIds = new long[capacity];
+            days = new int[capacity];
+            isbns = new int[capacity];
+            genres = new int[capacity];
+            prices = new int[capacity];
+            quantities = new int[capacity];
+        }
+
+        private int capacity() {
+            return orderIds.length;
+        }
+    }
+
+    private final int segmentSize;
+    private final ForkJoinPool pool;
+    private final Dictionary isbnDictionary = new Dictionary();
+    private final Dictionary genreDictionary = new Dictionary();
+    // Copy-on-grow; entries before the last are full
+    private volatile Segment[] segments = new Segment[0];
+    private volatile int minDay = Integer.MAX_VALUE;
+    private volatile int maxDay = Integer.MIN_VALUE;
+    private volatile int maxPrice;
+    private volatile long lines;
+
+    public OrderLineColumns(int segmentSize, ForkJoinPool pool) {
+        this.segmentSize = segmentSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Appends all lines of one order. Prices above Integer.MAX_VALUE cents are clamped.
+     */
+    public synchronized void append(long orderId, LocalDate day, List<Line> orderLines) {
+        if (orderLines.isEmpty()) return;
+        Segment[] current = segments;
+        Segment segment = current.length == 0 ? null : current[current.length - 1];
+        if (segment == null || segment.capacity() - segment.size < orderLines.size()) {
+            segment = new Segment(Math.max(segmentSize, orderLines.size()));
+            Segment[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = segment;
+            segments = grown;
+        }
+        int epochDay = (int) day.toEpochDay();
+        int row = segment.size;
+        int highestPrice = maxPrice;
+        for (Line line : orderLines) {
+            int price = (int) Math.min(Integer.MAX_VALUE, Math.max(0, line.priceCents()));
+            segment.orderIds[row] = orderId;
+            segment.days[row] = epochDay;
+            segment.isbns[row] = isbnDictionary.encode(line.isbn() == null ? "" : line.isbn());
+            segment.genres[row] = genreDictionary.encode(line.genre() == null ? "" : line.genre());
+            segment.prices[row] = price;
+            segment.quantities[row] = line.quantity();
+            highestPrice = Math.max(highestPrice, price);
+            row++;
+        }
+        // Bounds first, then size: a scan that sees the rows also sees bounds covering them
+        if (epochDay < minDay) minDay = epochDay;
+        if (epochDay > maxDay) maxDay = epochDay;
+        maxPrice = highestPrice;
+        lines += orderLines.size();
+        segment.size = row;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public int getSegments() {
+        return segments.length;
+    }
+
+    public Result query(Query query) {
+        long start = System.nanoTime();
+        // Snapshot sizes before reading dictionary sizes and bounds, so every visible row is covered by them
+        Segment[] snapshot = segments;
+        int[] sizes = new int[snapshot.length];
+        long scanned = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            sizes[i] = snapshot[i].size;
+            scanned += sizes[i];
+        }
+
+        Plan plan = plan(query);
+        if (plan == null || scanned == 0) {
+            return new Result(scanned, 0, List.of(), (System.nanoTime() - start) / 1_000);
+        }
+        // A few leaves per worker: enough to balance, few enough that per-leaf group arrays stay cheap.
+        // Halving leaves up to twice as many leaves as segments / leaf, each holding a dense array.
+        long partialBytes = (long) plan.groups * Partial.STRIDE * Long.BYTES;
+        long maxLeaves = Math.max(1, PARTIALS_BUDGET_BYTES / partialBytes);
+        int leaf = (int) Math.max(Math.max(1, snapshot.length / (pool.getParallelism() * LEAVES_PER_THREAD)),
+                (2L * snapshot.length + maxLeaves - 1) / maxLeaves);
+        Partial total = pool.invoke(new Scan(plan, snapshot, sizes, leaf, 0, snapshot.length));
+
+        List<Group> groups = new ArrayList<>();
+        long matched = 0;
+        for (int g = 0; g < plan.groups; g++) {
+            long groupLines = total.get(g, Partial.LINES);
+            if (groupLines == 0) continue;
+            matched += groupLines;
+            long orders = total.get(g, Partial.ORDERS);
+            long units = total.get(g, Partial.UNITS);
+            groups.add(new Group(plan.label(g), groupLines, orders, units,
+                    total.get(g, Partial.REVENUE) / 100.0, (double) units / orders));
+        }
+        groups.sort(comparator(query));
+        if (groups.size() > query.limit()) groups = new ArrayList<>(groups.subList(0, query.limit()));
+        return new Result(scanned, matched, groups, (System.nanoTime() - start) / 1_000);
+    }
+
+    // Filters resolved to codes and the dense group range; null when nothing can match
+    private final class Plan {
+        private GroupBy groupBy;
+        private long band;
+        private int fromDay;
+        private int toDay;
+        private int genre = ANY;
+        private int isbn = ANY;
+        private long minPrice;
+        private long maxPrice;
+        private int groupBase;
+        private int groups;
+
+        private int group(Segment segment, int row) {
+            return switch (groupBy) {
+                case NONE -> 0;
+                case GENRE -> segment.genres[row];
+                case ISBN -> segment.isbns[row];
+                case DAY -> segment.days[row] - groupBase;
+                case PRICE_BAND -> (int) (segment.prices[row] / band);
+            };
+        }
+
+        private String label(int group) {
+            return switch (groupBy) {
+                case NONE -> "all";
+                case GENRE -> genreDictionary.decode(group);
+                case ISBN -> isbnDictionary.decode(group);
+                case DAY -> LocalDate.ofEpochDay((long) group + groupBase).toString();
+                case PRICE_BAND -> String.format("%.2f-%.2f", group * band / 100.0, ((group + 1) * band - 1) / 100.0);
+            };
+        }
+    }
+
+    private Plan plan(Query query) {
+        Filter filter = query.filter() == null ? Filter.NONE : query.filter();
+        Plan plan = new Plan();
+        plan.groupBy = query.groupBy();
+        plan.band = Math.max(1, query.bandCents());
+        plan.fromDay = filter.from() == null ? Integer.MIN_VALUE : (int) filter.from().toEpochDay();
+        plan.toDay = filter.to() == null ? Integer.MAX_VALUE : (int) filter.to().toEpochDay();
+        plan.minPrice = filter.minPriceCents() == null ? Long.MIN_VALUE : filter.minPriceCents();
+        plan.maxPrice = filter.maxPriceCents() == null ? Long.MAX_VALUE : filter.maxPriceCents();
+        if (filter.genre() != null) {
+            plan.genre = genreDictionary.lookup(filter.genre());
+            if (plan.genre == Dictionary.MISSING) return null;
+        }
+        if (filter.isbn() != null) {
+            plan.isbn = isbnDictionary.lookup(filter.isbn());
+            if (plan.isbn == Dictionary.MISSING) return null;
+        }
+        int first = Math.max(plan.fromDay, minDay);
+        int last = Math.min(plan.toDay, maxDay);
+        if (first > last) return null;
+
+        long groups = switch (plan.groupBy) {
+            case NONE -> 1;
+            case GENRE -> genreDictionary.size();
+            case ISBN -> isbnDictionary.size();
+            case DAY -> {
+                plan.groupBase = first;
+                yield (long) last - first + 1;
+            }
+            case PRICE_BAND -> maxPrice / plan.band + 1;
+        };
+        if (groups > MAX_GROUPS) {
+            throw new IllegalArgumentException("Query would produce " + groups + " groups; narrow it or widen the band");
+        }
+        plan.groups = (int) groups;
+        return plan;
+    }
+
+    private static Comparator<Group> comparator(Query query) {
+        Sort sort = query.sort() != null ? query.sort()
+                : query.groupBy() == GroupBy.DAY || query.groupBy() == GroupBy.PRICE_BAND ? Sort.KEY : Sort.REVENUE;
+        Comparator<Group> byKey = query.groupBy() == GroupBy.PRICE_BAND
+                ? Comparator.comparingDouble(g -> Double.parseDouble(g.key().substring(0, g.key().indexOf('-'))))
+                : Comparator.comparing(Group::key);
+        return switch (sort) {
+            case KEY -> byKey;
+            case LINES -> Comparator.comparingLong(Group::lines).reversed().thenComparing(byKey);
+            case ORDERS -> Comparator.comparingLong(Group::orders).reversed().thenComparing(byKey);
+            case UNITS -> Comparator.comparingLong(Group::units).reversed().thenComparing(byKey);
+            case REVENUE -> Comparator.comparingDouble(Group::revenue).reversed().thenComparing(byKey);
+            case AVG_BASKET -> Comparator.comparingDouble(Group::avgBasket).reversed().thenComparing(byKey);
+        };
+    }
+
+    /**
+     * Per-group accumulators, one group's five values side by side so a row touches one
+     * cache line even with hundreds of thousands of groups. The last order id counted
+     * is scratch state for the leaf scan and is not merged.
+     */
+    private static final class Partial {
+        private static final int LINES = 0, ORDERS = 1, UNITS = 2, REVENUE = 3, LAST_ORDER = 4, STRIDE = 5;
+
+        private final long[] values;
+
+        private Partial(int groups) {
+            values = new long[groups * STRIDE];
+            for (int i = LAST_ORDER; i < values.length; i += STRIDE) values[i] = Long.MIN_VALUE;
+        }
+
+        private long get(int group, int field) {
+            return values[group * STRIDE + field];
+        }
+
+        private Partial add(Partial other) {
+            for (int i = 0; i < values.length; i += STRIDE) {
+                values[i + LINES] += other.values[i + LINES];
+                values[i + ORDERS] += other.values[i + ORDERS];
+                values[i + UNITS] += other.values[i + UNITS];
+                values[i + REVENUE] += other.values[i + REVENUE];
+            }
+            return this;
+        }
+    }
+
+    private static final class Scan extends RecursiveTask<Partial> {
+        private final Plan plan;
+        private final Segment[] segments;
+        private final int[] sizes;
+        // Segments per leaf task; a segment is the unit orders never cross
+        private final int leaf;
+        private final int from;
+        private final int to;
+
+        private Scan(Plan plan, Segment[] segments, int[] sizes, int leaf, int from, int to) {
+            this.plan = plan;
+            this.segments = segments;
+            this.sizes = sizes;
+            this.leaf = leaf;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > leaf) {
+                int mid = (from + to) >>> 1;
+                Scan left = new Scan(plan, segments, sizes, leaf, from, mid);
+                left.fork();
+                Partial right = new Scan(plan, segments, sizes, leaf, mid, to).compute();
+                return right.add(left.join());
+            }
+            Partial partial = new Partial(plan.groups);
+            long[] values = partial.values;
+            for (int s = from; s < to; s++) {
+                Segment segment = segments[s];
+                int size = sizes[s];
+                for (int row = 0; row < size; row++) {
+                    int day = segment.days[row];
+                    if (day < plan.fromDay || day > plan.toDay) continue;
+                    if (plan.genre != ANY && segment.genres[row] != plan.genre) continue;
+                    if (plan.isbn != ANY && segment.isbns[row] != plan.isbn) continue;
+                    int price = segment.prices[row];
+                    if (price < plan.minPrice || price > plan.maxPrice) continue;
+
+                    int at = plan.group(segment, row) * Partial.STRIDE;
+                    int quantity = segment.quantities[row];
+                    values[at + Partial.LINES]++;
+                    values[at + Partial.UNITS] += quantity;
+                    values[at + Partial.REVENUE] += (long) price * quantity;
+                    // An order's lines are contiguous, so a different order id means a new order
+                    long orderId = segment.orderIds[row];
+                    if (values[at + Partial.LAST_ORDER] != orderId) {
+                        values[at + Partial.LAST_ORDER] = orderId;
+                        values[at + Partial.ORDERS]++;
+                    }
+                }
+            }
+            return partial;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.amazin.svelteamazin.config;
+
+import com.amazin.svelteamazin.admission.AdmissionControlFilter;
+import com.amazin.svelteamazin.admission.AdmissionControlFilter.Bulkhead;
+import com.amazin.svelteamazin.admission.AimdLimit;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlConfig {
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(Environment env, MeterRegistry registry) {
+        // Recommendations are listed before the catalog so they get their own budget
+        List<Bulkhead> bulkheads = List.of(
+                Bulkhead.of("checkout", "POST", "/api/cart/checkout", limit(env, "checkout")),
+                Bulkhead.of("recommendations", "GET", "/api/books/recommended_books", limit(env, "recommendations")),
+                Bulkhead.of("catalog", "GET", "/api/books/**", limit(env, "catalog")),
+                Bulkhead.of("owner", null, "/api/owner/**", limit(env, "owner")));
+
+        for (Bulkhead bulkhead : bulkheads) {
+            AimdLimit limit = bulkhead.limit();
+            Gauge.builder("amazin.admission.limit", limit, AimdLimit::getLimit)
+                    .description("Current adaptive concurrency limit")
+                    .tag("bulkhead", bulkhead.name())
+                    .register(registry);
+            Gauge.builder("amazin.admission.inflight", limit, AimdLimit::getInflight)
+                    .description("Requests currently admitted")
+                    .tag("bulkhead", bulkhead.name())
+                    .register(registry);
+        }
+
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+                new AdmissionControlFilter(bulkheads, env.getProperty("app.admission.retry-after-seconds", Long.class, 1L), registry));
+        registration.addUrlPatterns("/api/*");
+        // Shed before any other filter spends time on the request
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 100);
+        return registration;
+    }
+
+    private static AimdLimit limit(Environment env, String bulkhead) {
+        String prefix = "app.admission.bulkheads." + bulkhead + ".";
+        return new AimdLimit(
+                env.getProperty(prefix + "initial-limit", Integer.class, 20),
+                env.getProperty(prefix + "min-limit", Integer.class, 2),
+                env.getProperty(prefix + "max-limit", Integer.class, 100),
+                env.getProperty(prefix + "latency-target-ms", Long.class, 1000L));
+    }
+}
@@ -0,0 +1,21 @@
+package com.amazin.svelteamazin.config;
+
+import com.amazin.svelteamazin.metrics.AllocationMetricsFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "app.allocation-metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class AllocationMetricsConfig {
+
+    @Bean
+    public FilterRegistrationBean<AllocationMetricsFilter> allocationMetricsFilter(MeterRegistry registry) {
+        FilterRegistrationBean<AllocationMetricsFilter> registration =
+                new FilterRegistrationBean<>(new AllocationMetricsFilter(registry));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
@@ -1,7 +1,7 @@
 package com.amazin.svelteamazin.config;
 
-import com.amazin.svelteamazin.model.User;
 import com.amazin.svelteamazin.repository.UserRepository;
+import com.amazin.svelteamazin.service.UserService;
 import jakarta.annotation.PostConstruct;
 import org.springframework.stereotype.Component;
 
@@ -9,17 +9,19 @@ import org.springframework.stereotype.Component;
 public class DataLoader {
 
     private final UserRepository repo;
+    private final UserService users;
 
-    public DataLoader(UserRepository repo) {
+    public DataLoader(UserRepository repo, UserService users) {
         this.repo = repo;
+        this.users = users;
     }
 
     @PostConstruct
     public void init() {
         if (repo.count() == 0) {
-            repo.save(new User(null, "owner", "letmein", "OWNER"));
-            repo.save(new User(null, "john", "password123", "USER"));
-            repo.save(new User(null, "sarah", "mypassword", "USER"));
+            users.createUser("owner", "letmein", "OWNER");
+            users.createUser("john", "password123", "USER");
+            users.createUser("sarah", "mypassword", "USER");
         }
     }
 }
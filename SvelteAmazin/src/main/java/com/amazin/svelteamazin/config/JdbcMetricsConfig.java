@@ -0,0 +1,35 @@
+package com.amazin.svelteamazin.config;
+
+import com.amazin.svelteamazin.metrics.SlowQueryLog;
+import com.amazin.svelteamazin.metrics.TimedDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.function.SingletonSupplier;
+
+import javax.sql.DataSource;
+
+/**
+ * Routes all JDBC traffic through {@link TimedDataSource} so statements feed
+ * the slow-query log and, when enabled, the Server-Timing header.
+ */
+@Configuration
+public class JdbcMetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor timedDataSourcePostProcessor(ObjectProvider<SlowQueryLog> slowQueryLog) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource) {
+                    // Resolved on first statement; the log itself is not needed to build the pool
+                    SingletonSupplier<SlowQueryLog> log = SingletonSupplier.of(slowQueryLog::getObject);
+                    return TimedDataSource.wrap(dataSource,
+                            (sql, shape, nanos) -> log.obtain().statementExecuted(sql, shape, nanos));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.amazin.svelteamazin.config;
+
+import com.amazin.svelteamazin.admission.RateLimitFilter;
+import com.amazin.svelteamazin.admission.RateLimitFilter.Route;
+import com.amazin.svelteamazin.admission.RateLimiter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(name = "app.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfig {
+
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(RateLimiter limiter) {
+        // Per-username login limits need the request body, so AuthController applies those itself
+        List<Route> routes = List.of(
+                Route.of(RateLimiter.LOGIN_IP, null, "POST", "/api/auth/user-login"),
+                Route.of(RateLimiter.LOGIN_IP, null, "POST", "/api/auth/owner-login"),
+                Route.of(RateLimiter.CART_IP, RateLimiter.CART, null, "/api/cart/**"));
+
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(new RateLimitFilter(limiter, routes));
+        registration.addUrlPatterns("/api/*");
+        // Ahead of admission control, so refused requests never take a bulkhead permit
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 90);
+        return registration;
+    }
+}
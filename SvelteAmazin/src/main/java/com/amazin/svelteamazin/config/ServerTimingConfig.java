@@ -0,0 +1,33 @@
+package com.amazin.svelteamazin.config;
+
+import com.amazin.svelteamazin.metrics.ServerTimingFilter;
+import com.amazin.svelteamazin.metrics.TimedJacksonHttpMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+/**
+ * Opt-in Server-Timing support (app.server-timing.enabled=true).
+ * When the flag is off none of these beans exist and the JDBC proxy from
+ * {@link JdbcMetricsConfig} finds no timings bound, so requests pay nothing extra.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.server-timing.enabled", havingValue = "true")
+public class ServerTimingConfig {
+
+    @Bean
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilter() {
+        FilterRegistrationBean<ServerTimingFilter> registration = new FilterRegistrationBean<>(new ServerTimingFilter());
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    // Replaces Boot's default Jackson converter so serialisation time can be measured
+    @Bean
+    public MappingJackson2HttpMessageConverter timedJacksonHttpMessageConverter(ObjectMapper objectMapper) {
+        return new TimedJacksonHttpMessageConverter(objectMapper);
+    }
+}
@@ -1,5 +1,8 @@
 package com.amazin.svelteamazin.config;
 
+import com.amazin.svelteamazin.metrics.HandlerContextInterceptor;
+import com.amazin.svelteamazin.metrics.HotPathInterceptor;
+import com.amazin.svelteamazin.metrics.HotPathRegistry;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
@@ -15,6 +18,12 @@ import java.io.IOException;
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final HotPathRegistry hotPathRegistry;
+
+    public WebConfig(HotPathRegistry hotPathRegistry) {
+        this.hotPathRegistry = hotPathRegistry;
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         // Exclude API routes from static resource handling
@@ -44,6 +53,12 @@ public class WebConfig implements WebMvcConfigurer {
     }
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerContextInterceptor())
+                .addPathPatterns("/api/**");
+        // A stream's duration is its connection lifetime, not handler latency
+        registry.addInterceptor(new HotPathInterceptor(hotPathRegistry))
+                .addPathPatterns("/api/**")
+                .excludePathPatterns("/api/books/stream");
         registry.addInterceptor(new RoleInterceptor())
                 .addPathPatterns("/api/owner/**");
     }
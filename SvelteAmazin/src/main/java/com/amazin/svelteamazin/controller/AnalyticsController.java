@@ -0,0 +1,126 @@
+package com.amazin.svelteamazin.controller;
+
+import com.amazin.svelteamazin.analytics.OrderAnalytics;
+import com.amazin.svelteamazin.analytics.OrderLineColumns;
+import com.amazin.svelteamazin.service.SalesRollups;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Owner sales dashboard, read only from the rollup tables maintained by SalesRollups,
+ * plus ad-hoc group-by queries over the in-memory order line columns (OrderAnalytics).
+ * Access is enforced by RoleInterceptor on /api/owner/**.
+ */
+@RestController
+@RequestMapping("/api/owner/analytics")
+public class AnalyticsController {
+
+    private final SalesRollups rollups;
+    private final OrderAnalytics orderAnalytics;
+
+    private static final int MAX_DAYS = 366;
+    private static final int TOP_BOOKS = 10;
+    private static final int MAX_GROUPS = 1000;
+
+    public AnalyticsController(SalesRollups rollups, OrderAnalytics orderAnalytics) {
+        this.rollups = rollups;
+        this.orderAnalytics = orderAnalytics;
+    }
+
+    public record Totals(long orders, long units, double revenue) {}
+
+    public record Dashboard(LocalDate from, LocalDate to, Totals totals, List<SalesRollups.DayTotal> daily,
+                            List<SalesRollups.BookTotal> topBooks, List<SalesRollups.HourTotal> hourly) {}
+
+    /**
+     * GET /api/owner/analytics?from=2026-01-01&to=2026-01-31
+     * Both dates inclusive; defaults to the last 30 days.
+     */
+    @GetMapping
+    public Dashboard dashboard(@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                               @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (start.isAfter(end)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must not be after 'to'");
+        }
+        if (ChronoUnit.DAYS.between(start, end) >= MAX_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_DAYS + " days per query");
+        }
+
+        List<SalesRollups.HourTotal> hourly = rollups.byHour(start, end);
+        Totals totals = new Totals(
+                hourly.stream().mapToLong(SalesRollups.HourTotal::orders).sum(),
+                hourly.stream().mapToLong(SalesRollups.HourTotal::units).sum(),
+                hourly.stream().mapToDouble(SalesRollups.HourTotal::revenue).sum());
+        return new Dashboard(start, end, totals, rollups.byDay(start, end),
+                rollups.topBooks(start, end, TOP_BOOKS), hourly);
+    }
+
+    /**
+     * POST /api/owner/analytics/rebuild
+     * Recomputes the rollups from the full order history.
+     */
+    @PostMapping("/rebuild")
+    public SalesRollups.Rebuild rebuild() {
+        return rollups.rebuild();
+    }
+
+    /**
+     * GET /api/owner/analytics/query?groupBy=genre&from=2026-01-01&minPrice=5&sort=units&limit=20
+     * groupBy: none, genre, isbn, priceBand (band wide, in dollars) or day.
+     * sort: key, lines, orders, units, revenue or avgBasket; defaults to key for day and
+     * priceBand, revenue otherwise. All filters are optional; dates and prices inclusive.
+     */
+    @GetMapping("/query")
+    public OrderLineColumns.Result query(@RequestParam(value = "groupBy", defaultValue = "genre") String groupBy,
+                                         @RequestParam(value = "sort", required = false) String sort,
+                                         @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                         @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                         @RequestParam(value = "genre", required = false) String genre,
+                                         @RequestParam(value = "isbn", required = false) String isbn,
+                                         @RequestParam(value = "minPrice", required = false) Double minPrice,
+                                         @RequestParam(value = "maxPrice", required = false) Double maxPrice,
+                                         @RequestParam(value = "band", defaultValue = "10") double band,
+                                         @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must not be after 'to'");
+        }
+        if (limit < 1 || limit > MAX_GROUPS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'limit' must be between 1 and " + MAX_GROUPS);
+        }
+        if (band < 0.01) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'band' must be at least 0.01");
+        }
+        OrderLineColumns.Filter filter = new OrderLineColumns.Filter(from, to, genre, isbn, cents(minPrice), cents(maxPrice));
+        OrderLineColumns.Query query = new OrderLineColumns.Query(
+                option(OrderLineColumns.GroupBy.class, "groupBy", groupBy),
+                Math.round(band * 100), filter,
+                sort == null ? null : option(OrderLineColumns.Sort.class, "sort", sort),
+                limit);
+        try {
+            return orderAnalytics.query(query);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private static Long cents(Double dollars) {
+        return dollars == null ? null : Math.round(dollars * 100);
+    }
+
+    // priceBand -> PRICE_BAND
+    private static <E extends Enum<E>> E option(Class<E> type, String name, String value) {
+        try {
+            return Enum.valueOf(type, value.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown " + name + " '" + value + "'");
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.amazin.svelteamazin.controller;
 
+import com.amazin.svelteamazin.admission.RateLimiter;
 import com.amazin.svelteamazin.model.User;
 import com.amazin.svelteamazin.service.AuthService;
 import com.amazin.svelteamazin.service.UserService;
@@ -13,8 +14,12 @@ import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.time.Duration;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -27,6 +32,9 @@ public class AuthController {
     @Autowired
     private UserService users;
 
+    @Autowired
+    private RateLimiter rateLimiter;
+
     @Value("${app.owner-password}")
     private String configuredOwnerPassword;
 
@@ -35,33 +43,38 @@ public class AuthController {
     // POST /api/auth/user-login { username, password }
     // --------------------------------------------
     @PostMapping("/user-login")
-    public Map<String, Object> userLogin(@RequestBody Map<String, String> body, HttpServletResponse res) {
+    public CompletableFuture<Map<String, Object>> userLogin(@RequestBody Map<String, String> body, HttpServletResponse res) {
         String username = body.getOrDefault("username", "");
         String password = body.getOrDefault("password", "");
 
-        User u = auth.authenticateUser(username, password);
-        if (u == null) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid username or password");
-        }
+        // Per-IP limits run in RateLimitFilter; this one stops guessing at a single account
+        rateLimiter.acquire(RateLimiter.LOGIN_USER, username.toLowerCase(Locale.ROOT));
 
-        // Persist minimal session in cookies
-        Cookie roleCookie = new Cookie("role", u.getRole());
-        roleCookie.setHttpOnly(true);
-        roleCookie.setPath("/");
-        roleCookie.setMaxAge((int) Duration.ofHours(12).getSeconds());
-        res.addCookie(roleCookie);
+        // Hashing runs on PasswordHasher's pool; the request thread is released meanwhile
+        return auth.authenticateUser(username, password).thenApply(u -> {
+            if (u == null) {
+                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid username or password");
+            }
 
-        Cookie userCookie = new Cookie("username", u.getUsername());
-        userCookie.setHttpOnly(true);
-        userCookie.setPath("/");
-        userCookie.setMaxAge((int) Duration.ofHours(12).getSeconds());
-        res.addCookie(userCookie);
+            // Persist minimal session in cookies
+            Cookie roleCookie = new Cookie("role", u.getRole());
+            roleCookie.setHttpOnly(true);
+            roleCookie.setPath("/");
+            roleCookie.setMaxAge((int) Duration.ofHours(12).getSeconds());
+            res.addCookie(roleCookie);
+
+            Cookie userCookie = new Cookie("username", u.getUsername());
+            userCookie.setHttpOnly(true);
+            userCookie.setPath("/");
+            userCookie.setMaxAge((int) Duration.ofHours(12).getSeconds());
+            res.addCookie(userCookie);
 
-        return Map.of(
-                "id", (Object) u.getId(),
-                "username", u.getUsername(),
-                "role", u.getRole()
-        );
+            return Map.of(
+                    "id", (Object) u.getId(),
+                    "username", u.getUsername(),
+                    "role", u.getRole()
+            );
+        });
     }
 
     // --------------------------------------------
@@ -69,28 +82,30 @@ public class AuthController {
     // POST /api/auth/owner-login { password }
     // --------------------------------------------
     @PostMapping("/owner-login")
-    public Map<String, Object> ownerLogin(@RequestBody Map<String, String> body, HttpServletResponse res) {
+    public CompletableFuture<Map<String, Object>> ownerLogin(@RequestBody Map<String, String> body, HttpServletResponse res) {
         String pw = body.getOrDefault("password", "");
 
         // either check database via AuthService OR use config
-        boolean valid = auth.authenticateOwner(pw);
-        if (!valid && !pw.equals(configuredOwnerPassword)) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Bad password");
-        }
+        return auth.authenticateOwner(pw).thenApply(valid -> {
+            if (!valid && !MessageDigest.isEqual(pw.getBytes(StandardCharsets.UTF_8),
+                    configuredOwnerPassword.getBytes(StandardCharsets.UTF_8))) {
+                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Bad password");
+            }
 
-        Cookie roleCookie = new Cookie("role", "OWNER");
-        roleCookie.setHttpOnly(true);
-        roleCookie.setPath("/");
-        roleCookie.setMaxAge((int) Duration.ofHours(12).getSeconds());
-        res.addCookie(roleCookie);
+            Cookie roleCookie = new Cookie("role", "OWNER");
+            roleCookie.setHttpOnly(true);
+            roleCookie.setPath("/");
+            roleCookie.setMaxAge((int) Duration.ofHours(12).getSeconds());
+            res.addCookie(roleCookie);
 
-        Cookie userCookie = new Cookie("username", "owner");
-        userCookie.setHttpOnly(true);
-        userCookie.setPath("/");
-        userCookie.setMaxAge((int) Duration.ofHours(12).getSeconds());
-        res.addCookie(userCookie);
+            Cookie userCookie = new Cookie("username", "owner");
+            userCookie.setHttpOnly(true);
+            userCookie.setPath("/");
+            userCookie.setMaxAge((int) Duration.ofHours(12).getSeconds());
+            res.addCookie(userCookie);
 
-        return Map.of("role", "OWNER");
+            return Map.of("role", "OWNER");
+        });
     }
 
     // --------------------------------------------
@@ -1,16 +1,34 @@
 package com.amazin.svelteamazin.controller;
 
+import com.amazin.svelteamazin.metrics.JfrEvents;
 import com.amazin.svelteamazin.model.Book;
 import com.amazin.svelteamazin.model.BookRepository;
+import com.amazin.svelteamazin.model.BookSummary;
 import com.amazin.svelteamazin.model.Order;
 import com.amazin.svelteamazin.repository.OrderRepository;
+import com.amazin.svelteamazin.search.BookFacetIndex;
+import com.amazin.svelteamazin.search.FuzzySearchIndex;
+import com.amazin.svelteamazin.search.RelevanceIndex;
+import com.amazin.svelteamazin.search.SuggestionIndex;
+import com.amazin.svelteamazin.service.BookExistenceFilter;
+import com.amazin.svelteamazin.service.BookViews;
+import com.amazin.svelteamazin.service.CatalogChangeLog;
+import com.amazin.svelteamazin.service.CatalogListingCache;
+import com.amazin.svelteamazin.service.InventoryStream;
+import com.amazin.svelteamazin.service.SingleFlight;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/books")
@@ -19,54 +37,282 @@ public class BookController {
 
     private final BookRepository repo;
     private final OrderRepository orderRepository;
-
-    public BookController(BookRepository repo, OrderRepository orderRepository) {
+    private final BookFacetIndex facetIndex;
+    private final SuggestionIndex suggestions;
+    private final FuzzySearchIndex fuzzyIndex;
+    private final RelevanceIndex relevanceIndex;
+    private final CatalogListingCache listingCache;
+    private final CatalogChangeLog changeLog;
+    private final InventoryStream inventoryStream;
+    private final SingleFlight singleFlight;
+    private final BookViews views;
+    private final BookExistenceFilter existence;
+
+    private static final int SEARCH_LIMIT = 50;
+    private static final int BATCH_LIMIT = 300;
+
+    public BookController(BookRepository repo, OrderRepository orderRepository, BookFacetIndex facetIndex,
+                          SuggestionIndex suggestions, FuzzySearchIndex fuzzyIndex, RelevanceIndex relevanceIndex,
+                          CatalogListingCache listingCache, CatalogChangeLog changeLog,
+                          InventoryStream inventoryStream, SingleFlight singleFlight, BookViews views,
+                          BookExistenceFilter existence) {
         this.repo = repo;
         this.orderRepository = orderRepository;
+        this.facetIndex = facetIndex;
+        this.suggestions = suggestions;
+        this.fuzzyIndex = fuzzyIndex;
+        this.relevanceIndex = relevanceIndex;
+        this.listingCache = listingCache;
+        this.changeLog = changeLog;
+        this.inventoryStream = inventoryStream;
+        this.singleFlight = singleFlight;
+        this.views = views;
+        this.existence = existence;
     }
 
+    public record BookQueryResponse(List<BookSummary> books, int total, int page, int size,
+                                    Map<String, Integer> genres, List<BookFacetIndex.PriceFacet> prices) {}
+
+    /** One entry per requested ISBN; {@code book} is null when {@code found} is false. */
+    public record BookLookup(String isbn, boolean found, Book book) {}
+
     /**
      * GET /api/books
-     * Return all books, optionally sorted by a field and order.
+     * Return summaries of all books, optionally sorted by a field and order.
+     * Identical concurrent requests share one query (see SingleFlight).
      * Example: /api/books?sortBy=price&order=desc
      */
     @GetMapping
-    public List<Book> getAllBooks(
+    public List<BookSummary> getAllBooks(
             @RequestParam(value = "sortBy", required = false) String sortBy,
             @RequestParam(value = "order", required = false, defaultValue = "asc") String order
     ) {
-        if (sortBy != null && !sortBy.isBlank()) {
-            Sort.Direction direction = "desc".equalsIgnoreCase(order) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = sortOf(sortBy, order);
+        return singleFlight.execute("GET /api/books sort=" + sort, () -> repo.findSummariesBy(sort));
+    }
 
-            // Ensure only allowed fields are sortable
-            return switch (sortBy.toLowerCase()) {
-                case "title" -> repo.findAll(Sort.by(direction, "title"));
-                case "price" -> repo.findAll(Sort.by(direction, "price"));
-                case "inventory" -> repo.findAll(Sort.by(direction, "inventory"));
-                default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid sort field: " + sortBy);
-            };
+    /**
+     * GET /api/books?fields=isbn,title,price
+     * Same listing with only the requested fields (isbn is always included).
+     */
+    @GetMapping(params = "fields")
+    public List<Map<String, Object>> getAllBookFields(
+            @RequestParam(value = "sortBy", required = false) String sortBy,
+            @RequestParam(value = "order", required = false, defaultValue = "asc") String order,
+            @RequestParam("fields") String fields
+    ) {
+        Sort sort = sortOf(sortBy, order);
+        Set<String> selected = fieldsOf(fields);
+        return singleFlight.execute("GET /api/books sort=" + sort + " fields=" + String.join(",", selected),
+                () -> repo.findFields(selected, sort));
+    }
+
+    /**
+     * GET /api/books[?fields=...] without sorting: what the home page loads.
+     * Served from pre-serialised bytes (gzip when the client accepts it), which may
+     * trail the latest write briefly; X-Catalog-Version is the /changes version to
+     * sync from.
+     */
+    @GetMapping(params = {"!sortBy", "!order"})
+    public ResponseEntity<byte[]> getCatalogListing(
+            @RequestParam(value = "fields", required = false) String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        CatalogListingCache.Listing listing;
+        if (fields == null) {
+            listing = listingCache.get("", () -> repo.findSummariesBy(Sort.unsorted()));
+        } else {
+            Set<String> selected = fieldsOf(fields);
+            listing = listingCache.get(String.join(",", selected), () -> repo.findFields(selected, Sort.unsorted()));
         }
 
-        return repo.findAll();
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .header("X-Catalog-Version", listing.catalogVersion());
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .contentLength(listing.gzip().length)
+                    .body(listing.gzip());
+        }
+        return response.contentLength(listing.json().length).body(listing.json());
+    }
+
+    /**
+     * GET /api/books/query?q=...&genres=Fantasy,Horror&minPrice=10&maxPrice=30&sort=price-asc&page=0&size=24
+     * Filter, sort and paginate on the server. Also returns facet counts per genre and
+     * price bucket (each computed with the other filters applied).
+     */
+    @GetMapping("/query")
+    public BookQueryResponse queryBooks(
+            @RequestParam(value = "q", required = false) String q,
+            @RequestParam(value = "genres", required = false) List<String> genres,
+            @RequestParam(value = "minPrice", required = false) Double minPrice,
+            @RequestParam(value = "maxPrice", required = false) Double maxPrice,
+            @RequestParam(value = "sort", required = false, defaultValue = "none") String sort,
+            @RequestParam(value = "page", required = false, defaultValue = "0") int page,
+            @RequestParam(value = "size", required = false, defaultValue = "24") int size
+    ) {
+        if (page < 0 || size < 1 || size > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "page must be >= 0 and size between 1 and 100");
+        }
+        boolean descending = sort.toLowerCase().endsWith("-desc");
+        BookFacetIndex.SortKey sortKey = switch (sort.toLowerCase()) {
+            case "none" -> BookFacetIndex.SortKey.NONE;
+            case "title-asc", "title-desc" -> BookFacetIndex.SortKey.TITLE;
+            case "author-asc", "author-desc" -> BookFacetIndex.SortKey.AUTHOR;
+            case "price-asc", "price-desc" -> BookFacetIndex.SortKey.PRICE;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid sort: " + sort);
+        };
+
+        BookFacetIndex.Result result = facetIndex.query(
+                new BookFacetIndex.Query(q, genres, minPrice, maxPrice, sortKey, descending, page, size));
+        return new BookQueryResponse(loadSummaries(result.isbns()), result.total(), page, size,
+                result.genres(), result.prices());
+    }
+
+    /**
+     * GET /api/books/suggest?prefix=mar&limit=8
+     * Typeahead: top title and author completions for a prefix, ranked by stock.
+     */
+    @GetMapping("/suggest")
+    public List<SuggestionIndex.Suggestion> suggest(
+            @RequestParam String prefix,
+            @RequestParam(value = "limit", required = false, defaultValue = "8") int limit
+    ) {
+        return suggestions.suggest(prefix, Math.max(1, limit));
+    }
+
+    /**
+     * GET /api/books/changes?since=lx3k2m1a-1f9b2c:42
+     * Books created, updated (as summaries) or deleted (as tombstones) since a client's
+     * version. resync=true means the client must reload the full listing; calling
+     * without since returns the current version to start from.
+     */
+    @GetMapping("/changes")
+    public CatalogChangeLog.Changes getChanges(@RequestParam(value = "since", required = false) String since) {
+        return changeLog.since(since);
+    }
+
+    /**
+     * GET /api/books/stream[?isbns=a,b]
+     * Server-Sent Events: "inventory" events with the latest price and stock of
+     * changed books (all books, or only the listed ISBNs).
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamInventory(@RequestParam(value = "isbns", required = false) List<String> isbns) {
+        try {
+            return inventoryStream.subscribe(isbns);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     /**
      * GET /api/books/{isbn}
-     * Return a single book by ISBN.
+     * Return a single book by ISBN. Views of existing books are counted in BookViews;
+     * ISBNs the BookExistenceFilter rules out get their 404 without a query.
      */
     @GetMapping("/{isbn}")
     public Book getBookByIsbn(@PathVariable String isbn) {
-        return repo.findById(isbn)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found: " + isbn));
+        if (!existence.mightExist(isbn)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found: " + isbn);
+        }
+        Book book = repo.findById(isbn).orElseThrow(() -> {
+            existence.recordFalsePositive();
+            return new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found: " + isbn);
+        });
+        views.record(isbn);
+        return book;
+    }
+
+    /**
+     * GET /api/books/batch?isbns=a,b,c
+     * Resolve up to BATCH_LIMIT books in one query, in request order, with not-found markers.
+     */
+    @GetMapping("/batch")
+    public List<BookLookup> getBooksByIsbns(@RequestParam List<String> isbns) {
+        return lookup(isbns);
+    }
+
+    /**
+     * POST /api/books/batch with a JSON array of ISBNs, for lists too long for a URL.
+     */
+    @PostMapping("/batch")
+    public List<BookLookup> postBooksByIsbns(@RequestBody List<String> isbns) {
+        return lookup(isbns);
+    }
+
+    private List<BookLookup> lookup(List<String> isbns) {
+        if (isbns.size() > BATCH_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + BATCH_LIMIT + " ISBNs per batch");
+        }
+        for (String isbn : isbns) {
+            if (isbn == null || isbn.isBlank()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ISBN is required");
+            }
+        }
+        Map<String, Book> byIsbn = new HashMap<>();
+        for (Book book : repo.findAllById(new LinkedHashSet<>(isbns))) {
+            byIsbn.put(book.getIsbn(), book);
+        }
+        List<BookLookup> results = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            Book book = byIsbn.get(isbn);
+            results.add(new BookLookup(isbn, book != null, book));
+        }
+        return results;
     }
 
     /**
-     * GET /api/books/search?query=...
-     * Case-insensitive search on title OR author.
+     * GET /api/books/search?query=...[&fuzzy=true]
+     * Relevance-ranked (BM25) search over title, author and description, best
+     * SEARCH_LIMIT first, followed by the remaining case-insensitive substring
+     * matches on title OR author ("java" also finds "JavaScript") in catalog order.
+     * With fuzzy=true, words may contain typos ("Alchmist", "Martain"); results are
+     * ordered by closeness instead.
      */
     @GetMapping("/search")
-    public List<Book> searchBooks(@RequestParam String query) {
-        return repo.findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase(query, query);
+    public List<BookSummary> searchBooks(@RequestParam String query,
+                                         @RequestParam(value = "fuzzy", required = false, defaultValue = "false") boolean fuzzy) {
+        return search(query, fuzzy, this::loadSummaries, BookSummary::isbn,
+                () -> repo.findSummariesByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase(query, query));
+    }
+
+    /**
+     * GET /api/books/search?query=...&fields=isbn,title
+     * Same search with only the requested fields (isbn is always included).
+     */
+    @GetMapping(value = "/search", params = "fields")
+    public List<Map<String, Object>> searchBookFields(@RequestParam String query,
+                                                      @RequestParam(value = "fuzzy", required = false, defaultValue = "false") boolean fuzzy,
+                                                      @RequestParam("fields") String fields) {
+        Set<String> selected = fieldsOf(fields);
+        return search(query, fuzzy, isbns -> loadFields(isbns, selected), m -> (String) m.get("isbn"),
+                () -> repo.findFieldsMatching(selected, query));
+    }
+
+    private <T> List<T> search(String query, boolean fuzzy, Function<List<String>, List<T>> load,
+                               Function<T, String> isbnOf, Supplier<List<T>> substringMatches) {
+        JfrEvents.Search event = new JfrEvents.Search();
+        event.begin();
+        List<T> results;
+        if (fuzzy) {
+            results = load.apply(fuzzyIndex.search(query, SEARCH_LIMIT));
+        } else {
+            List<String> ranked = relevanceIndex.search(query, SEARCH_LIMIT);
+            results = ranked.isEmpty() ? new ArrayList<>() : new ArrayList<>(load.apply(ranked));
+            Set<String> seen = new HashSet<>(ranked);
+            for (T match : substringMatches.get()) {
+                if (seen.add(isbnOf.apply(match))) results.add(match);
+            }
+        }
+        event.query = query;
+        event.fuzzy = fuzzy;
+        event.results = results.size();
+        event.commit();
+        return results;
     }
 
     /**
@@ -106,16 +352,42 @@ public class BookController {
         repo.deleteById(isbn);
     }
 
+    // Recommendations are the same for every caller, so concurrent requests share one build
     @GetMapping("/recommended_books")
-    public List<Book> getAllRecBooks() {
+    public List<BookSummary> getAllRecBooks() {
+        return singleFlight.execute("GET /api/books/recommended_books", () -> loadSummaries(recommendedIsbns()));
+    }
 
+    /**
+     * GET /api/books/recommended_books?fields=isbn,title
+     * Same recommendations with only the requested fields (isbn is always included).
+     */
+    @GetMapping(value = "/recommended_books", params = "fields")
+    public List<Map<String, Object>> getRecBookFields(@RequestParam("fields") String fields) {
+        Set<String> selected = fieldsOf(fields);
+        return singleFlight.execute("GET /api/books/recommended_books fields=" + String.join(",", selected),
+                () -> loadFields(recommendedIsbns(), selected));
+    }
+
+    private List<String> recommendedIsbns() {
+        JfrEvents.RecommendationBuild event = new JfrEvents.RecommendationBuild();
+        event.begin();
+        List<String> recommended = buildRecommendations(event);
+        event.recommended = recommended.size();
+        event.commit();
+        return recommended;
+    }
+
+    // Works on ISBNs only; the caller loads whichever projection it returns
+    private List<String> buildRecommendations(JfrEvents.RecommendationBuild event) {
         List<Order> orders = orderRepository.findAll();
-        List<Book> allBooks = repo.findAll();
+        List<String> allIsbns = repo.findAllIsbns();
 
         // === CASE 1: No orders at all → just return 8 random books ===
+        event.orders = orders.size();
         if (orders.isEmpty()) {
-            Collections.shuffle(allBooks);
-            return allBooks.stream().limit(8).toList();
+            Collections.shuffle(allIsbns);
+            return allIsbns.stream().limit(8).toList();
         }
 
         // Extract purchased ISBN lists (by order)
@@ -138,30 +410,32 @@ public class BookController {
                 double sim = jaccardSimilarity(a, b);
                 if (sim > 0) {
                     similarityScores.put(i + "," + j, sim);
-                    System.out.println("Similarity score: " + sim);
                 }
             }
         }
 
+        event.similarPairs = similarityScores.size();
+
         // === Step 2: Build recommended set from intersections ===
         Set<String> recommendedIsbns = intersectionBooks(booksIsbns, similarityScores);
 
-        // === Convert ISBNs → Books ===
-        List<Book> recommendedBooks = new ArrayList<>();
+        // === Keep only ISBNs of books that still exist ===
+        Set<String> existing = new HashSet<>(allIsbns);
+        List<String> recommendedBooks = new ArrayList<>();
         for (String isbn : recommendedIsbns) {
-            repo.findById(isbn).ifPresent(recommendedBooks::add);
+            if (existing.contains(isbn)) recommendedBooks.add(isbn);
         }
 
 
         // If less than 8: add random previously purchased books
         int needed = 8 - recommendedBooks.size();
         if (needed > 0) {
-            List<Book> previouslyPurchased = new ArrayList<>();
+            List<String> previouslyPurchased = new ArrayList<>();
 
-            for (Book b : allBooks) {
-                if (allPurchasedIsbns.contains(b.getIsbn()) &&
-                        !recommendedIsbns.contains(b.getIsbn())) {
-                    previouslyPurchased.add(b);
+            for (String isbn : allIsbns) {
+                if (allPurchasedIsbns.contains(isbn) &&
+                        !recommendedIsbns.contains(isbn)) {
+                    previouslyPurchased.add(isbn);
                 }
             }
 
@@ -169,7 +443,7 @@ public class BookController {
 
             for (int i = 0; i < needed && i < previouslyPurchased.size(); i++) {
                 recommendedBooks.add(previouslyPurchased.get(i));
-                recommendedIsbns.add(previouslyPurchased.get(i).getIsbn());
+                recommendedIsbns.add(previouslyPurchased.get(i));
             }
 
             needed = 8 - recommendedBooks.size();
@@ -177,13 +451,13 @@ public class BookController {
 
         // If still less than 8: add random books NEVER purchased
         if (needed > 0) {
-            List<Book> neverPurchasedBooks = new ArrayList<>();
+            List<String> neverPurchasedBooks = new ArrayList<>();
 
-            for (Book b : allBooks) {
-                if (!allPurchasedIsbns.contains(b.getIsbn()) &&
-                        !recommendedIsbns.contains(b.getIsbn())) {
+            for (String isbn : allIsbns) {
+                if (!allPurchasedIsbns.contains(isbn) &&
+                        !recommendedIsbns.contains(isbn)) {
 
-                    neverPurchasedBooks.add(b);
+                    neverPurchasedBooks.add(isbn);
                 }
             }
 
@@ -197,6 +471,59 @@ public class BookController {
         return recommendedBooks;
     }
 
+    private Sort sortOf(String sortBy, String order) {
+        if (sortBy == null || sortBy.isBlank()) {
+            return Sort.unsorted();
+        }
+        Sort.Direction direction = "desc".equalsIgnoreCase(order) ? Sort.Direction.DESC : Sort.Direction.ASC;
+
+        // Ensure only allowed fields are sortable
+        return switch (sortBy.toLowerCase()) {
+            case "title" -> Sort.by(direction, "title");
+            case "price" -> Sort.by(direction, "price");
+            case "inventory" -> Sort.by(direction, "inventory");
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid sort field: " + sortBy);
+        };
+    }
+
+    // Parses ?fields=a,b,c in the order given; isbn always comes first so rows stay identifiable
+    private static Set<String> fieldsOf(String fields) {
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("isbn");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) continue;
+            if (!BookRepository.FIELDS.contains(name)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid field: " + name);
+            }
+            selected.add(name);
+        }
+        return selected;
+    }
+
+    private List<BookSummary> loadSummaries(List<String> isbns) {
+        if (isbns.isEmpty()) return List.of();
+        return inOrder(isbns, repo.findSummariesByIsbnIn(isbns), BookSummary::isbn);
+    }
+
+    private List<Map<String, Object>> loadFields(List<String> isbns, Set<String> fields) {
+        return inOrder(isbns, repo.findFieldsByIsbnIn(fields, isbns), row -> (String) row.get("isbn"));
+    }
+
+    // IN (...) returns rows in arbitrary order; restore the order the index chose
+    private static <T> List<T> inOrder(List<String> isbns, List<T> rows, Function<T, String> isbnOf) {
+        Map<String, T> byIsbn = new HashMap<>();
+        for (T row : rows) {
+            byIsbn.put(isbnOf.apply(row), row);
+        }
+        List<T> ordered = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            T row = byIsbn.get(isbn);
+            if (row != null) ordered.add(row);
+        }
+        return ordered;
+    }
+
     //Calculate jaccard similarity based on two arrays of type Long
     static private  double jaccardSimilarity(String[] a, String[] b) {
         Set<String> s1 = new LinkedHashSet<>(Arrays.asList(a));
@@ -6,9 +6,13 @@ import com.amazin.svelteamazin.model.Order;
 import com.amazin.svelteamazin.model.OrderItem;
 import com.amazin.svelteamazin.model.User;
 import com.amazin.svelteamazin.model.BookRepository;
+import com.amazin.svelteamazin.model.BookSummary;
+import com.amazin.svelteamazin.metrics.JfrEvents;
 import com.amazin.svelteamazin.repository.CartItemRepository;
 import com.amazin.svelteamazin.repository.OrderRepository;
 import com.amazin.svelteamazin.repository.UserRepository;
+import com.amazin.svelteamazin.service.BookExistenceFilter;
+import com.amazin.svelteamazin.service.CartStore;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.transaction.Transactional;
@@ -27,15 +31,23 @@ public class CheckoutController {
     private final CartItemRepository cartItemRepository;
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
+    private final CartStore cartStore;
+    private final BookExistenceFilter existence;
+
+    private static final int BATCH_LIMIT = 100;
 
     public CheckoutController(BookRepository bookRepository,
                               CartItemRepository cartItemRepository,
                               OrderRepository orderRepository,
-                              UserRepository userRepository) {
+                              UserRepository userRepository,
+                              CartStore cartStore,
+                              BookExistenceFilter existence) {
         this.bookRepository = bookRepository;
         this.cartItemRepository = cartItemRepository;
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
+        this.cartStore = cartStore;
+        this.existence = existence;
     }
 
     //public record CheckoutItem(String isbn, int quantity) {}
@@ -50,15 +62,14 @@ public class CheckoutController {
 
     public record CheckoutResponse(OrderResponse order, List<Book> updatedBooks) {}
 
+    // Cart reads and edits are served by CartStore; rows are written behind
     @GetMapping
     public List<CartItemResponse> getCart(HttpServletRequest request) {
         User user = requireUser(request);
-        List<CartItem> items = cartItemRepository.findByUser(user);
-        return toCartResponses(items);
+        return toCartResponses(cartStore.get(user.getId()));
     }
 
     @PostMapping("/items")
-    @Transactional
     public List<CartItemResponse> upsertItem(@RequestBody CartItemRequest request, HttpServletRequest httpRequest) {
         User user = requireUser(httpRequest);
         if (request.isbn == null || request.isbn.isBlank()) {
@@ -68,46 +79,98 @@ public class CheckoutController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be zero or positive");
         }
 
-        Book book = bookRepository.findById(request.isbn)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found"));
+        if (!existence.mightExist(request.isbn)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found");
+        }
+        BookSummary book = cartStore.books(List.of(request.isbn)).get(request.isbn);
+        if (book == null) {
+            existence.recordFalsePositive();
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found");
+        }
 
-        if (request.quantity > book.getInventory()) {
+        // Advisory here; checkout re-checks against the locked rows
+        if (request.quantity > book.inventory()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                    "Only " + book.getInventory() + " copies of \"" + book.getTitle() + "\" remain.");
+                    "Only " + book.inventory() + " copies of \"" + book.title() + "\" remain.");
         }
 
-        Optional<CartItem> existing = cartItemRepository.findByUserAndBook(user, book);
+        return toCartResponses(cartStore.set(user.getId(), request.isbn, request.quantity));
+    }
+
+    // Applies a debounced batch of quantity edits and returns the cart once
+    @PatchMapping("/items")
+    public List<CartItemResponse> updateItems(@RequestBody List<CartItemRequest> requests, HttpServletRequest httpRequest) {
+        User user = requireUser(httpRequest);
+        if (requests == null || requests.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one item is required");
+        }
+        if (requests.size() > BATCH_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + BATCH_LIMIT + " items per request");
+        }
 
-        if (request.quantity == 0) {
-            existing.ifPresent(cartItemRepository::delete);
-        } else {
-            CartItem item = existing.orElseGet(() -> new CartItem(user, book, request.quantity));
-            item.setQuantity(request.quantity);
-            cartItemRepository.save(item);
+        // Later edits of the same ISBN win, as if the requests had been sent one by one
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (CartItemRequest request : requests) {
+            if (request == null || request.isbn == null || request.isbn.isBlank()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ISBN is required");
+            }
+            if (request.quantity < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be zero or positive");
+            }
+            quantities.put(request.isbn, request.quantity);
         }
 
-        return toCartResponses(cartItemRepository.findByUser(user));
+        // One lookup for the whole batch; nothing is applied unless every line is valid
+        Map<String, BookSummary> books = cartStore.books(quantities.keySet());
+        for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+            BookSummary book = books.get(line.getKey());
+            if (book == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found: " + line.getKey());
+            }
+            if (line.getValue() > book.inventory()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Only " + book.inventory() + " copies of \"" + book.title() + "\" remain.");
+            }
+        }
+
+        return toCartResponses(cartStore.setAll(user.getId(), quantities));
     }
 
     @DeleteMapping("/items/{isbn}")
-    @Transactional
     public List<CartItemResponse> removeItem(@PathVariable String isbn, HttpServletRequest request) {
         User user = requireUser(request);
-        Book book = bookRepository.findById(isbn)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found"));
-        cartItemRepository.findByUserAndBook(user, book).ifPresent(cartItemRepository::delete);
-        return toCartResponses(cartItemRepository.findByUser(user));
+        if (!existence.mightExist(isbn)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found");
+        }
+        if (cartStore.books(List.of(isbn)).isEmpty()) {
+            existence.recordFalsePositive();
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found");
+        }
+        return toCartResponses(cartStore.set(user.getId(), isbn, 0));
     }
 
     @PostMapping("/checkout")
     @Transactional
     public CheckoutResponse checkout(HttpServletRequest request) {
-        User user = requireUser(request);
+        JfrEvents.Checkout event = new JfrEvents.Checkout();
+        event.begin();
+        try {
+            return checkout(requireUser(request), event);
+        } finally {
+            event.commit();
+        }
+    }
+
+    private CheckoutResponse checkout(User user, JfrEvents.Checkout event) {
+        // The table must hold every cart change before it is read
+        cartStore.flush(user.getId());
         List<CartItem> cartItems = cartItemRepository.findByUser(user);
 
         if (cartItems.isEmpty()) {
+            event.outcome = "EMPTY_CART";
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cart cannot be empty");
         }
+        event.items = cartItems.size();
 
         Map<String, CartItem> byIsbn = cartItems.stream()
                 .collect(Collectors.toMap(item -> item.getBook().getIsbn(), item -> item));
@@ -123,6 +186,7 @@ public class CheckoutController {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantities must be positive");
             }
             if (requested > book.getInventory()) {
+                event.outcome = "INVENTORY_CONFLICT";
                 throw new ResponseStatusException(
                         HttpStatus.BAD_REQUEST,
                         "Only " + book.getInventory() + " copies of \"" + book.getTitle() + "\" remain."
@@ -138,11 +202,14 @@ public class CheckoutController {
         for (CartItem cartItem : cartItems) {
             Book book = cartItem.getBook();
             orderItems.add(new OrderItem(order, book.getIsbn(), book.getTitle(), book.getPrice(), cartItem.getQuantity(), book.getImageUrl()));
+            event.units += cartItem.getQuantity();
+            event.total += book.getPrice() * cartItem.getQuantity();
         }
         order.setItems(orderItems);
         Order savedOrder = orderRepository.save(order);
 
         cartItemRepository.deleteByUser(user);
+        cartStore.clear(user.getId(), byIsbn.keySet());
 
         OrderResponse orderResponse = new OrderResponse(
                 savedOrder.getId(),
@@ -152,16 +219,20 @@ public class CheckoutController {
                         .toList()
         );
 
+        event.outcome = "OK";
         return new CheckoutResponse(orderResponse, updatedBooks);
     }
 
-    private List<CartItemResponse> toCartResponses(List<CartItem> items) {
-        return items.stream()
-                .map(item -> {
-                    Book book = item.getBook();
-                    return new CartItemResponse(book.getIsbn(), book.getTitle(), book.getPrice(), item.getQuantity(), book.getImageUrl(), book.getInventory());
-                })
-                .toList();
+    private List<CartItemResponse> toCartResponses(Map<String, Integer> lines) {
+        Map<String, BookSummary> books = cartStore.books(lines.keySet());
+        List<CartItemResponse> responses = new ArrayList<>(lines.size());
+        lines.forEach((isbn, quantity) -> {
+            BookSummary book = books.get(isbn);
+            if (book != null) {
+                responses.add(new CartItemResponse(isbn, book.title(), book.price(), quantity, book.imageUrl(), book.inventory()));
+            }
+        });
+        return responses;
     }
 
     private User requireUser(HttpServletRequest request) {
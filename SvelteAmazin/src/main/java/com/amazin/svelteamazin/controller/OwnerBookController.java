@@ -2,17 +2,58 @@ package com.amazin.svelteamazin.controller;
 
 import com.amazin.svelteamazin.model.Book;
 import com.amazin.svelteamazin.model.BookRepository;
+import com.amazin.svelteamazin.model.BookSummary;
+import com.amazin.svelteamazin.service.BookViews;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/owner/books")
 public class OwnerBookController {
 
     private final BookRepository repo;
+    private final BookViews views;
+
+    private static final int MAX_MOST_VIEWED = 100;
 
-    public OwnerBookController(BookRepository repo) {
+    public OwnerBookController(BookRepository repo, BookViews views) {
         this.repo = repo;
+        this.views = views;
+    }
+
+    /** Views are Count-Min estimates: never under the true count, possibly slightly over. */
+    public record ViewedBook(String isbn, String title, long views) {}
+
+    public record ViewWindow(Instant start, Instant end, long totalViews, List<ViewedBook> books) {}
+
+    public record MostViewed(ViewWindow current, ViewWindow previous) {}
+
+    /**
+     * GET /api/owner/books/most-viewed?limit=10
+     * Most viewed books in the current window so far and in the last completed one (null until the first rollover).
+     */
+    @GetMapping("/most-viewed")
+    public MostViewed mostViewed(@RequestParam(value = "limit", defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_MOST_VIEWED) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'limit' must be between 1 and " + MAX_MOST_VIEWED);
+        }
+        BookViews.Window current = views.current(limit);
+        BookViews.Window previous = views.previous(limit);
+
+        Map<String, String> titles = new HashMap<>();
+        List<String> isbns = Stream.concat(current.top().stream(), previous == null ? Stream.empty() : previous.top().stream())
+                .map(BookViews.BookCount::isbn).distinct().toList();
+        for (BookSummary summary : repo.findSummariesByIsbnIn(isbns)) {
+            titles.put(summary.isbn(), summary.title());
+        }
+        return new MostViewed(toViewWindow(current, titles), previous == null ? null : toViewWindow(previous, titles));
     }
 
     @PostMapping
@@ -33,4 +74,10 @@ public class OwnerBookController {
     public void delete(@PathVariable String isbn) {
         repo.deleteById(isbn);
     }
+
+    private static ViewWindow toViewWindow(BookViews.Window window, Map<String, String> titles) {
+        return new ViewWindow(window.start(), window.end(), window.views(), window.top().stream()
+                .map(count -> new ViewedBook(count.isbn(), titles.get(count.isbn()), count.views()))
+                .toList());
+    }
 }
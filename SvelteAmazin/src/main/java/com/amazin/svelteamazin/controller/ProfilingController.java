@@ -0,0 +1,58 @@
+package com.amazin.svelteamazin.controller;
+
+import com.amazin.svelteamazin.metrics.ProfilingService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Owner-only JFR controls. Access is enforced by RoleInterceptor on /api/owner/**.
+ */
+@RestController
+@RequestMapping("/api/owner/profiling")
+public class ProfilingController {
+
+    private final ProfilingService profiling;
+
+    public ProfilingController(ProfilingService profiling) {
+        this.profiling = profiling;
+    }
+
+    /**
+     * POST /api/owner/profiling/start?seconds=60
+     * Start a recording; it stops itself after the (capped) duration.
+     */
+    @PostMapping("/start")
+    public Map<String, Object> start(@RequestParam(value = "seconds", defaultValue = "60") long seconds) {
+        return profiling.start(seconds);
+    }
+
+    /**
+     * POST /api/owner/profiling/stop
+     */
+    @PostMapping("/stop")
+    public Map<String, Object> stop() {
+        return profiling.stop();
+    }
+
+    @GetMapping
+    public Map<String, Object> status() {
+        return profiling.status();
+    }
+
+    /**
+     * GET /api/owner/profiling/recording
+     * Download the last finished recording as a .jfr file.
+     */
+    @GetMapping("/recording")
+    public ResponseEntity<byte[]> download() {
+        byte[] bytes = profiling.download();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"amazin.jfr\"")
+                .body(bytes);
+    }
+}
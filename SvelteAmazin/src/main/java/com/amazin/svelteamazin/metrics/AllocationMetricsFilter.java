@@ -0,0 +1,194 @@
+package com.amazin.svelteamazin.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records, per controller handler, the bytes allocated by the request thread
+ * (via the JVM's per-thread allocation counter) and the response body size:
+ * {@code amazin.request.allocated} and {@code amazin.response.size}.
+ * Comparing their means ranks endpoints by GC pressure per request.
+ * <p>
+ * Async handlers (the CompletableFuture logins) are recorded when the async part
+ * completes. Their allocation figure sums the container threads of the initial and
+ * the async dispatch; the executor thread that completed the future is not counted.
+ */
+public class AllocationMetricsFilter extends OncePerRequestFilter {
+
+    private static final String MEASUREMENT = AllocationMetricsFilter.class.getName() + ".measurement";
+
+    private final MeterRegistry registry;
+    private final com.sun.management.ThreadMXBean threads;
+
+    public AllocationMetricsFilter(MeterRegistry registry) {
+        this.registry = registry;
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        this.threads = bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled() ? bean : null;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // The async dispatch writes the body and allocates on a container thread too
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Measurement measurement = (Measurement) request.getAttribute(MEASUREMENT);
+        if (measurement == null) {
+            measurement = new Measurement();
+            request.setAttribute(MEASUREMENT, measurement);
+        }
+        // An async dispatch may already carry the wrapper it was started with
+        HttpServletResponse counting = WebUtils.getNativeResponse(response, CountingResponse.class) != null
+                ? response : new CountingResponse(response, measurement);
+        long allocatedBefore = threads != null ? threads.getCurrentThreadAllocatedBytes() : 0;
+        try {
+            chain.doFilter(request, counting);
+        } finally {
+            // Read first: naming the handler and looking up the summaries allocate too
+            if (threads != null) {
+                measurement.allocated += threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            }
+            if (request.isAsyncStarted()) {
+                if (!measurement.async) {
+                    measurement.async = true;
+                    measurement.handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+                    request.getAsyncContext().addListener(recordOnCompletion(measurement));
+                }
+            } else if (!measurement.async) {
+                record(request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE), measurement);
+            }
+        }
+    }
+
+    private AsyncListener recordOnCompletion(Measurement measurement) {
+        AtomicBoolean recorded = new AtomicBoolean();
+        return new AsyncListener() {
+            @Override public void onComplete(AsyncEvent event) { recordOnce(); }
+            @Override public void onTimeout(AsyncEvent event) { recordOnce(); }
+            @Override public void onError(AsyncEvent event) { recordOnce(); }
+            @Override public void onStartAsync(AsyncEvent event) { event.getAsyncContext().addListener(this); }
+
+            private void recordOnce() {
+                if (recorded.compareAndSet(false, true)) {
+                    record(measurement.handler, measurement);
+                }
+            }
+        };
+    }
+
+    private void record(Object handlerAttribute, Measurement measurement) {
+        if (handlerAttribute instanceof HandlerMethod method) {
+            String handler = HandlerContextInterceptor.nameOf(method);
+            if (threads != null) {
+                summary("amazin.request.allocated", "Bytes allocated by the request thread", handler).record(measurement.allocated);
+            }
+            summary("amazin.response.size", "Response body bytes", handler).record(measurement.bytes);
+        }
+    }
+
+    private DistributionSummary summary(String name, String description, String handler) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit("bytes")
+                .tag("handler", handler)
+                .register(registry);
+    }
+
+    /** Totals for one request, carried across its dispatches as a request attribute. */
+    private static final class Measurement {
+        long allocated;
+        long bytes;
+        boolean async;
+        Object handler;
+    }
+
+    private static final class CountingResponse extends HttpServletResponseWrapper {
+        private final Measurement measurement;
+        private ServletOutputStream stream;
+        private PrintWriter writer;
+
+        CountingResponse(HttpServletResponse response, Measurement measurement) {
+            super(response);
+            this.measurement = measurement;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (stream == null) {
+                ServletOutputStream target = super.getOutputStream();
+                stream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        target.write(b);
+                        measurement.bytes++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        target.write(b, off, len);
+                        measurement.bytes += len;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        target.flush();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return target.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        target.setWriteListener(listener);
+                    }
+                };
+            }
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            super.flushBuffer();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.amazin.svelteamazin.metrics;
+
+/**
+ * Remembers which controller method is handling the request on this thread,
+ * e.g. {@code BookController#getAllBooks}, so lower layers can attribute work to it.
+ */
+public final class HandlerContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private HandlerContext() {}
+
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    static void set(String handler) {
+        CURRENT.set(handler);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,32 @@
+package com.amazin.svelteamazin.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+public class HandlerContextInterceptor implements AsyncHandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod method) {
+            HandlerContext.set(nameOf(method));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        HandlerContext.clear();
+    }
+
+    // Async handlers (SSE, CompletableFuture) release the container thread here; afterCompletion runs on another
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        HandlerContext.clear();
+    }
+
+    public static String nameOf(HandlerMethod method) {
+        return method.getBeanType().getSimpleName() + "#" + method.getMethod().getName();
+    }
+}
@@ -0,0 +1,39 @@
+package com.amazin.svelteamazin.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Times every {@code @RestController} handler into the {@link HotPathRegistry}.
+ */
+public class HotPathInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = HotPathInterceptor.class.getName() + ".start";
+
+    private final HotPathRegistry registry;
+
+    public HotPathInterceptor(HotPathRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Kept across an async re-dispatch so the full request is measured
+        if (handler instanceof HandlerMethod method && method.getBeanType().isAnnotationPresent(RestController.class)
+                && request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(START_ATTRIBUTE) instanceof Long start && handler instanceof HandlerMethod method) {
+            registry.record(HandlerContextInterceptor.nameOf(method), request.getMethod() + " " + request.getRequestURI(),
+                    System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.amazin.svelteamazin.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Rolling-window latency per controller handler.
+ * Each request thread records into its own histograms (no shared writes on the
+ * hot path); {@link #snapshot(int)} merges every thread's live window slots.
+ * Recorders of threads that have terminated are folded into a per-handler retired
+ * ring and dropped, so pool churn does not grow the list a snapshot walks.
+ */
+@Component
+public class HotPathRegistry {
+
+    public record Sample(String uri, long nanos, long epochMillis) {}
+
+    public record HandlerSummary(String handler, long count, double p50Ms, double p99Ms, double maxMs,
+                                 List<WorstRequest> worst) {}
+
+    public record WorstRequest(String uri, double ms, Instant at) {}
+
+    private final long slotMillis;
+    private final int slots;
+    private final int worstPerHandler;
+
+    private final Map<String, HandlerStats> handlers = new ConcurrentHashMap<>();
+    private final ThreadLocal<Map<String, ThreadRecorder>> recorders = ThreadLocal.withInitial(HashMap::new);
+
+    public HotPathRegistry(@Value("${app.hotpaths.window-seconds:60}") int windowSeconds,
+                           @Value("${app.hotpaths.slots:6}") int slots,
+                           @Value("${app.hotpaths.worst-per-handler:5}") int worstPerHandler) {
+        this.slots = slots;
+        this.slotMillis = Math.max(1, windowSeconds * 1000L / slots);
+        this.worstPerHandler = worstPerHandler;
+    }
+
+    public void record(String handler, String uri, long nanos) {
+        long now = System.currentTimeMillis();
+        ThreadRecorder recorder = recorders.get().get(handler);
+        if (recorder == null) {
+            HandlerStats stats = handlers.computeIfAbsent(handler, h -> new HandlerStats(slots, worstPerHandler));
+            recorder = new ThreadRecorder(slots);
+            stats.pruneDeadRecorders();
+            stats.recorders.add(recorder);
+            recorders.get().put(handler, recorder);
+        }
+        recorder.record(nanos, now / slotMillis);
+        handlers.get(handler).offerWorst(uri, nanos, now, oldestLiveMillis(now));
+    }
+
+    /** Handlers ordered by p99, slowest first. */
+    public List<HandlerSummary> snapshot(int top) {
+        long now = System.currentTimeMillis();
+        long currentEpoch = now / slotMillis;
+        long oldestLive = oldestLiveMillis(now);
+
+        List<HandlerSummary> summaries = new ArrayList<>();
+        handlers.forEach((handler, stats) -> {
+            stats.pruneDeadRecorders();
+            long[] merged = new long[LatencyHistogram.BUCKETS];
+            stats.addRetiredSlots(merged, currentEpoch - slots);
+            for (ThreadRecorder recorder : stats.recorders) {
+                recorder.addLiveSlots(merged, currentEpoch - slots);
+            }
+            long count = LatencyHistogram.count(merged);
+            if (count == 0) return;
+            summaries.add(new HandlerSummary(handler, count,
+                    LatencyHistogram.percentile(merged, 50) / 1000.0,
+                    LatencyHistogram.percentile(merged, 99) / 1000.0,
+                    LatencyHistogram.percentile(merged, 100) / 1000.0,
+                    stats.worst(oldestLive)));
+        });
+        summaries.sort(Comparator.comparingDouble(HandlerSummary::p99Ms).reversed());
+        return summaries.size() > top ? summaries.subList(0, top) : summaries;
+    }
+
+    /** Live per-thread recorders for a handler (terminated threads' are pruned away). */
+    int recorderCount(String handler) {
+        HandlerStats stats = handlers.get(handler);
+        return stats == null ? 0 : stats.recorders.size();
+    }
+
+    public long windowSeconds() {
+        return slotMillis * slots / 1000;
+    }
+
+    private long oldestLiveMillis(long now) {
+        return (now / slotMillis - slots + 1) * slotMillis;
+    }
+
+    private static final class ThreadRecorder {
+        private final LatencyHistogram[] ring;
+        private final Thread owner = Thread.currentThread();
+
+        ThreadRecorder(int slots) {
+            ring = new LatencyHistogram[slots];
+            for (int i = 0; i < slots; i++) ring[i] = new LatencyHistogram();
+        }
+
+        void record(long nanos, long epoch) {
+            LatencyHistogram h = ring[(int) (epoch % ring.length)];
+            if (h.epoch() != epoch) {
+                h.reset(epoch);
+            }
+            h.record(nanos);
+        }
+
+        void addLiveSlots(long[] merged, long expiredEpoch) {
+            for (LatencyHistogram h : ring) {
+                if (h.epoch() > expiredEpoch) {
+                    h.addTo(merged);
+                }
+            }
+        }
+    }
+
+    private static final class HandlerStats {
+        private final List<ThreadRecorder> recorders = new CopyOnWriteArrayList<>();
+        private final AtomicReferenceArray<Sample> worst;
+        // Window slots of terminated threads' recorders, same ring layout; guarded by this
+        private final long[][] retired;
+        private final long[] retiredEpochs;
+
+        HandlerStats(int slots, int size) {
+            worst = new AtomicReferenceArray<>(size);
+            retired = new long[slots][LatencyHistogram.BUCKETS];
+            retiredEpochs = new long[slots];
+            Arrays.fill(retiredEpochs, -1);
+        }
+
+        /** Folds recorders whose thread has terminated into the retired ring; a dead thread writes nothing more. */
+        synchronized void pruneDeadRecorders() {
+            for (ThreadRecorder recorder : recorders) {
+                if (recorder.owner.isAlive()) continue;
+                for (LatencyHistogram h : recorder.ring) {
+                    long epoch = h.epoch();
+                    if (epoch < 0) continue;
+                    int slot = (int) (epoch % retired.length);
+                    if (retiredEpochs[slot] > epoch) continue;   // already expired
+                    if (retiredEpochs[slot] < epoch) {
+                        Arrays.fill(retired[slot], 0);
+                        retiredEpochs[slot] = epoch;
+                    }
+                    h.addTo(retired[slot]);
+                }
+                recorders.remove(recorder);
+            }
+        }
+
+        synchronized void addRetiredSlots(long[] merged, long expiredEpoch) {
+            for (int slot = 0; slot < retired.length; slot++) {
+                if (retiredEpochs[slot] > expiredEpoch) {
+                    for (int i = 0; i < merged.length; i++) merged[i] += retired[slot][i];
+                }
+            }
+        }
+
+        /** Replaces the smallest (or expired) sample with a single CAS; losing a race just drops the sample. */
+        void offerWorst(String uri, long nanos, long now, long oldestLive) {
+            int victim = -1;
+            long victimNanos = Long.MAX_VALUE;
+            for (int i = 0; i < worst.length(); i++) {
+                Sample s = worst.get(i);
+                long n = s == null || s.epochMillis() < oldestLive ? -1 : s.nanos();
+                if (n < victimNanos) {
+                    victim = i;
+                    victimNanos = n;
+                }
+            }
+            if (victim >= 0 && nanos > victimNanos) {
+                worst.compareAndSet(victim, worst.get(victim), new Sample(uri, nanos, now));
+            }
+        }
+
+        List<WorstRequest> worst(long oldestLive) {
+            List<Sample> live = new ArrayList<>();
+            for (int i = 0; i < worst.length(); i++) {
+                Sample s = worst.get(i);
+                if (s != null && s.epochMillis() >= oldestLive) live.add(s);
+            }
+            live.sort(Comparator.comparingLong(Sample::nanos).reversed());
+            return live.stream()
+                    .map(s -> new WorstRequest(s.uri(), s.nanos() / 1_000_000.0, Instant.ofEpochMilli(s.epochMillis())))
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.amazin.svelteamazin.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GET /actuator/hotpaths?top=N
+ * Slowest REST handlers over the rolling window, by p99.
+ */
+@Component
+@Endpoint(id = "hotpaths")
+public class HotPathsEndpoint {
+
+    private final HotPathRegistry registry;
+
+    public HotPathsEndpoint(HotPathRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, Object> hotPaths(@Nullable Integer top) {
+        List<HotPathRegistry.HandlerSummary> handlers = registry.snapshot(top == null ? 10 : top);
+        return Map.of(
+                "windowSeconds", registry.windowSeconds(),
+                "handlers", handlers
+        );
+    }
+}
@@ -0,0 +1,79 @@
+package com.amazin.svelteamazin.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.List;
+
+/**
+ * Flight Recorder events for the bookstore's domain operations.
+ * They cost next to nothing unless a recording with them enabled is running.
+ */
+public final class JfrEvents {
+
+    private JfrEvents() {}
+
+    /** Every event class here; a recording must enable each one by name or class (no wildcards). */
+    static final List<Class<? extends Event>> ALL =
+            List.of(Checkout.class, RecommendationBuild.class, CatalogImportBatch.class, Search.class);
+
+    @Name("amazin.Checkout")
+    @Label("Checkout")
+    @Category({"Amazin", "Cart"})
+    public static class Checkout extends Event {
+        @Label("Items")
+        public int items;
+
+        @Label("Units")
+        public int units;
+
+        @Label("Total")
+        public double total;
+
+        @Label("Outcome")
+        @Description("OK, EMPTY_CART, INVENTORY_CONFLICT or ERROR")
+        public String outcome = "ERROR";
+    }
+
+    @Name("amazin.RecommendationBuild")
+    @Label("Recommendation Build")
+    @Category({"Amazin", "Catalog"})
+    public static class RecommendationBuild extends Event {
+        @Label("Orders")
+        public int orders;
+
+        @Label("Similar Pairs")
+        public int similarPairs;
+
+        @Label("Recommended")
+        public int recommended;
+    }
+
+    @Name("amazin.CatalogImportBatch")
+    @Label("Catalog Import Batch")
+    @Category({"Amazin", "Catalog"})
+    public static class CatalogImportBatch extends Event {
+        @Label("Rows Loaded")
+        public int loaded;
+
+        @Label("Rows Skipped")
+        public int skipped;
+    }
+
+    @Name("amazin.Search")
+    @Label("Search")
+    @Category({"Amazin", "Catalog"})
+    public static class Search extends Event {
+        @Label("Query")
+        public String query;
+
+        @Label("Fuzzy")
+        public boolean fuzzy;
+
+        @Label("Results")
+        public int results;
+    }
+}
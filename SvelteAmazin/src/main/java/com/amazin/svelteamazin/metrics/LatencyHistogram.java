@@ -0,0 +1,83 @@
+package com.amazin.svelteamazin.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear latency histogram in microseconds (8 sub-buckets per power of two,
+ * so roughly 12% relative error). Written by a single owner thread and read by
+ * anyone, which lets recording skip CAS entirely.
+ */
+public class LatencyHistogram {
+
+    static final int SUB_BUCKETS = 8;
+    private static final int LINEAR_LIMIT = 16;
+    static final int BUCKETS = LINEAR_LIMIT + (64 - 4) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private volatile long epoch = -1;
+
+    /** Single-writer increment: only the owning thread may call this. */
+    void record(long nanos) {
+        int i = indexOf(Math.max(1, nanos / 1_000));
+        counts.lazySet(i, counts.get(i) + 1);
+    }
+
+    long epoch() {
+        return epoch;
+    }
+
+    /** Clears the histogram for reuse in a new window slot. Owner thread only. */
+    void reset(long newEpoch) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.lazySet(i, 0);
+        }
+        epoch = newEpoch;
+    }
+
+    void addTo(long[] merged) {
+        for (int i = 0; i < BUCKETS; i++) {
+            merged[i] += counts.get(i);
+        }
+    }
+
+    static int indexOf(long micros) {
+        if (micros < LINEAR_LIMIT) {
+            return (int) micros;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) ((micros >>> (exp - 3)) & (SUB_BUCKETS - 1));
+        return LINEAR_LIMIT + (exp - 4) * SUB_BUCKETS + sub;
+    }
+
+    /** Highest value (in microseconds) that lands in the given bucket. */
+    static long upperBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int exp = (index - LINEAR_LIMIT) / SUB_BUCKETS + 4;
+        int sub = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + sub) << (exp - 3);
+        return lower + (1L << (exp - 3)) - 1;
+    }
+
+    static long count(long[] merged) {
+        long total = 0;
+        for (long c : merged) total += c;
+        return total;
+    }
+
+    /** Value at the given percentile (0-100) of merged counts, in microseconds. */
+    static long percentile(long[] merged, double percentile) {
+        long total = count(merged);
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < merged.length; i++) {
+            seen += merged[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(merged.length - 1);
+    }
+}
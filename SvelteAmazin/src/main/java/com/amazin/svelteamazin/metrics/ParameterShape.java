@@ -0,0 +1,41 @@
+package com.amazin.svelteamazin.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Types (never values) of the parameters bound to a prepared statement.
+ * Rendering is deferred until a statement actually gets logged.
+ */
+public class ParameterShape {
+
+    private String[] types = new String[8];
+    private int size;
+
+    void bind(int index, Object value) {
+        if (index < 1) return;
+        if (index > types.length) {
+            types = Arrays.copyOf(types, Math.max(index, types.length * 2));
+        }
+        types[index - 1] = value == null ? "null" : value.getClass().getSimpleName();
+        size = Math.max(size, index);
+    }
+
+    void clear() {
+        Arrays.fill(types, 0, size, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(types[i] == null ? "?" : types[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
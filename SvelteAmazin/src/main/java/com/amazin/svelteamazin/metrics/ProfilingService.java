@@ -0,0 +1,134 @@
+package com.amazin.svelteamazin.metrics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs at most one bounded JFR recording at a time so owners can profile a
+ * running instance over HTTP. The last finished recording is kept on disk
+ * until the next one starts.
+ */
+@Service
+public class ProfilingService {
+
+    private final Duration maxDuration;
+    private final long maxSizeBytes;
+
+    private Recording recording;
+    private Path lastDump;
+    private Instant startedAt;
+
+    public ProfilingService(@Value("${app.profiling.max-duration-seconds:600}") long maxDurationSeconds,
+                            @Value("${app.profiling.max-size-mb:100}") long maxSizeMb) {
+        this.maxDuration = Duration.ofSeconds(maxDurationSeconds);
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+    }
+
+    public synchronized Map<String, Object> start(long seconds) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A recording is already running");
+        }
+        closeRecording();
+        try {
+            recording = new Recording(Configuration.getConfiguration("profile"));
+        } catch (IOException | ParseException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "JFR profile settings unavailable", e);
+        }
+        Duration duration = Duration.ofSeconds(Math.max(1, seconds));
+        recording.setName("amazin-owner");
+        recording.setDuration(duration.compareTo(maxDuration) > 0 ? maxDuration : duration);
+        recording.setMaxSize(maxSizeBytes);
+        recording.setToDisk(true);
+        JfrEvents.ALL.forEach(recording::enable);
+        recording.start();
+        startedAt = Instant.now();
+        return status();
+    }
+
+    public synchronized Map<String, Object> stop() {
+        if (recording == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No recording has been started");
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        dump();
+        return status();
+    }
+
+    /** Bytes of the last finished recording (stopping the current one first if its duration elapsed). */
+    public synchronized byte[] download() {
+        if (lastDump == null && recording != null && recording.getState() == RecordingState.STOPPED) {
+            dump();
+        }
+        if (lastDump == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No finished recording to download");
+        }
+        try {
+            return Files.readAllBytes(lastDump);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not read recording", e);
+        }
+    }
+
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", recording == null ? "NONE" : recording.getState().name());
+        if (recording != null) {
+            status.put("startedAt", startedAt.toString());
+            status.put("duration", recording.getDuration().toSeconds());
+        }
+        status.put("downloadable", lastDump != null || (recording != null && recording.getState() == RecordingState.STOPPED));
+        return status;
+    }
+
+    private void dump() {
+        try {
+            Path file = Files.createTempFile("amazin-", ".jfr");
+            recording.dump(file);
+            deleteLastDump();
+            lastDump = file;
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not write recording", e);
+        }
+    }
+
+    private void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+        deleteLastDump();
+    }
+
+    private void deleteLastDump() {
+        if (lastDump != null) {
+            try {
+                Files.deleteIfExists(lastDump);
+            } catch (IOException ignored) {
+                // temp file; the OS will clean it up eventually
+            }
+            lastDump = null;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        closeRecording();
+    }
+}
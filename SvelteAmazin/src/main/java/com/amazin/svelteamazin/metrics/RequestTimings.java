@@ -0,0 +1,58 @@
+package com.amazin.svelteamazin.metrics;
+
+/**
+ * Per-request time breakdown used to build the {@code Server-Timing} header.
+ * The instance for the current request is bound to the handling thread so
+ * JDBC and serialisation code can add to it without any plumbing.
+ */
+public class RequestTimings {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private int statementCount;
+    private long dbNanos;
+    private long serializationNanos;
+
+    public static RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    static void bind(RequestTimings timings) {
+        CURRENT.set(timings);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    public void recordStatement(long nanos) {
+        statementCount++;
+        dbNanos += nanos;
+    }
+
+    public void recordSerialization(long nanos) {
+        serializationNanos += nanos;
+    }
+
+    public int getStatementCount() { return statementCount; }
+    public long getDbNanos() { return dbNanos; }
+    public long getSerializationNanos() { return serializationNanos; }
+
+    /**
+     * Formats the breakdown as a Server-Timing value, e.g.
+     * {@code db;desc="3 queries";dur=1.20, ser;dur=0.40, app;dur=2.10, total;dur=3.70}
+     */
+    public String toHeaderValue() {
+        long total = System.nanoTime() - startNanos;
+        long app = Math.max(0, total - dbNanos - serializationNanos);
+        return "db;desc=\"" + statementCount + (statementCount == 1 ? " query" : " queries") + "\";dur=" + millis(dbNanos)
+                + ", ser;dur=" + millis(serializationNanos)
+                + ", app;dur=" + millis(app)
+                + ", total;dur=" + millis(total);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(java.util.Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,60 @@
+package com.amazin.svelteamazin.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+
+/**
+ * Adds a {@code Server-Timing} header to /api responses splitting the request
+ * into database, serialisation and handler time.
+ * The body is buffered so the header can still be set once serialisation is done,
+ * which is why event streams ({@code /stream} endpoints) are left alone.
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Server-Timing";
+    private static final String TIMINGS_ATTRIBUTE = ServerTimingFilter.class.getName() + ".timings";
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !uri.startsWith("/api/") || uri.endsWith("/stream");
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTimings timings = (RequestTimings) request.getAttribute(TIMINGS_ATTRIBUTE);
+        if (timings == null) {
+            timings = new RequestTimings();
+            request.setAttribute(TIMINGS_ATTRIBUTE, timings);
+        }
+        // On an async dispatch the response is already our wrapper
+        ContentCachingResponseWrapper wrapper = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        if (wrapper == null) {
+            wrapper = new ContentCachingResponseWrapper(response);
+        }
+
+        RequestTimings.bind(timings);
+        try {
+            chain.doFilter(request, wrapper);
+        } finally {
+            RequestTimings.unbind();
+            if (!request.isAsyncStarted()) {
+                wrapper.setHeader(HEADER, timings.toHeaderValue());
+                wrapper.copyBodyToResponse();
+            }
+        }
+    }
+}
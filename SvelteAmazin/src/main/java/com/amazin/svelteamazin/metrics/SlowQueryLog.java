@@ -0,0 +1,73 @@
+package com.amazin.svelteamazin.metrics;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Structured log of statements slower than {@code app.slow-query.threshold-ms}.
+ * Entries are formatted on a single background thread; the request thread only
+ * enqueues, and drops the entry (counting it) if the queue is full.
+ */
+@Component
+public class SlowQueryLog implements StatementListener {
+
+    private static final Logger log = LoggerFactory.getLogger("com.amazin.svelteamazin.slowquery");
+
+    public record Entry(String sql, String parameterShape, long nanos, String handler) {
+        String format() {
+            return String.format(java.util.Locale.ROOT, "duration_ms=%.2f handler=%s params=%s sql=\"%s\"",
+                    nanos / 1_000_000.0, handler == null ? "-" : handler, parameterShape, sql);
+        }
+    }
+
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final ThreadPoolExecutor writer;
+    private final AtomicLong dropped = new AtomicLong();
+
+    public SlowQueryLog(@Value("${app.slow-query.enabled:true}") boolean enabled,
+                        @Value("${app.slow-query.threshold-ms:200}") long thresholdMs,
+                        @Value("${app.slow-query.sample-rate:1.0}") double sampleRate,
+                        @Value("${app.slow-query.queue-capacity:1024}") int queueCapacity) {
+        this.enabled = enabled;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.sampleRate = sampleRate;
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "slow-query-log");
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, executor) -> dropped.incrementAndGet());
+    }
+
+    @Override
+    public void statementExecuted(String sql, ParameterShape parameterShape, long nanos) {
+        if (!enabled || nanos < thresholdNanos) return;
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) return;
+
+        // The shape is reused by the statement, so snapshot it before handing off
+        Entry entry = new Entry(sql, parameterShape.toString(), nanos, HandlerContext.current());
+        writer.execute(() -> log.warn(entry.format()));
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdown();
+    }
+}
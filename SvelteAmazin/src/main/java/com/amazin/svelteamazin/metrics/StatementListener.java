@@ -0,0 +1,14 @@
+package com.amazin.svelteamazin.metrics;
+
+/**
+ * Callback for every JDBC statement executed through {@link TimedDataSource}.
+ */
+public interface StatementListener {
+
+    /**
+     * @param sql            statement text (null if the driver call carried none)
+     * @param parameterShape bound parameter types, e.g. {@code [String, Integer]}
+     * @param nanos          execution time
+     */
+    void statementExecuted(String sql, ParameterShape parameterShape, long nanos);
+}
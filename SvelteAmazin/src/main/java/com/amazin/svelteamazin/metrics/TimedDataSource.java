@@ -0,0 +1,95 @@
+package com.amazin.svelteamazin.metrics;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Wraps a {@link DataSource} so every statement execution is timed, attributed
+ * to the request currently running on the thread and handed to a {@link StatementListener}.
+ * Uses plain JDK proxies, so unwrap()/isWrapperFor() still reach the pool.
+ */
+public final class TimedDataSource {
+
+    private TimedDataSource() {}
+
+    public static DataSource wrap(DataSource target, StatementListener listener) {
+        return proxy(DataSource.class, target, (proxy, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof Connection connection) {
+                return wrapConnection(connection, listener);
+            }
+            return result;
+        });
+    }
+
+    private static Connection wrapConnection(Connection target, StatementListener listener) {
+        return proxy(Connection.class, target, (proxy, method, args) -> {
+            Object result = invoke(target, method, args);
+            // prepareStatement/prepareCall carry the SQL up front; plain statements get it on execute
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+            if (result instanceof CallableStatement statement) {
+                return wrapStatement(CallableStatement.class, statement, sql, listener);
+            }
+            if (result instanceof PreparedStatement statement) {
+                return wrapStatement(PreparedStatement.class, statement, sql, listener);
+            }
+            if (result instanceof Statement statement) {
+                return wrapStatement(Statement.class, statement, null, listener);
+            }
+            return result;
+        });
+    }
+
+    private static <T extends Statement> T wrapStatement(Class<T> type, T target, String preparedSql,
+                                                         StatementListener listener) {
+        ParameterShape shape = new ParameterShape();
+        return proxy(type, target, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                shape.bind(index, name.equals("setNull") ? null : args[1]);
+                return invoke(target, method, args);
+            }
+            if (name.equals("clearParameters")) {
+                shape.clear();
+                return invoke(target, method, args);
+            }
+            if (!name.startsWith("execute")) {
+                return invoke(target, method, args);
+            }
+
+            long start = System.nanoTime();
+            try {
+                return invoke(target, method, args);
+            } finally {
+                long nanos = System.nanoTime() - start;
+                RequestTimings timings = RequestTimings.current();
+                if (timings != null) {
+                    timings.recordStatement(nanos);
+                }
+                String sql = preparedSql != null ? preparedSql
+                        : args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                listener.statementExecuted(sql, shape, nanos);
+            }
+        });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(TimedDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 
 @Entity
 @Table(name = "books")
+@EntityListeners(BookEntityListener.class)
 public class Book {
     @Id @Column(length = 20)
     private String isbn;
@@ -0,0 +1,10 @@
+package com.amazin.svelteamazin.model;
+
+/**
+ * Published whenever a {@link Book} row is inserted, updated or deleted,
+ * so in-memory catalog structures can follow the table incrementally.
+ */
+public record BookChangedEvent(Kind kind, Book book) {
+
+    public enum Kind { CREATED, UPDATED, DELETED }
+}
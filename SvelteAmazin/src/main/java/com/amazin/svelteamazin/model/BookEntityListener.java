@@ -0,0 +1,37 @@
+package com.amazin.svelteamazin.model;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA callbacks for {@link Book}. Every write path (controllers, checkout,
+ * the CSV loader) goes through the repository, so hooking the entity
+ * lifecycle catches them all without touching each caller.
+ */
+@Component
+public class BookEntityListener {
+
+    private final ApplicationEventPublisher events;
+
+    public BookEntityListener(ApplicationEventPublisher events) {
+        this.events = events;
+    }
+
+    @PostPersist
+    public void created(Book book) {
+        events.publishEvent(new BookChangedEvent(BookChangedEvent.Kind.CREATED, book));
+    }
+
+    @PostUpdate
+    public void updated(Book book) {
+        events.publishEvent(new BookChangedEvent(BookChangedEvent.Kind.UPDATED, book));
+    }
+
+    @PostRemove
+    public void deleted(Book book) {
+        events.publishEvent(new BookChangedEvent(BookChangedEvent.Kind.DELETED, book));
+    }
+}
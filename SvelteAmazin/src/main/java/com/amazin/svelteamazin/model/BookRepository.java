@@ -1,11 +1,27 @@
 package com.amazin.svelteamazin.model;
 
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.List;
 
 // JpaRepository<EntityType, IdType>
-public interface BookRepository extends JpaRepository<Book, String> {
+public interface BookRepository extends JpaRepository<Book, String>, BookRepositoryCustom {
+
+    // Listing projections: select only the BookSummary columns
+    List<BookSummary> findSummariesBy(Sort sort);
+
+    List<BookSummary> findSummariesByIsbnIn(Collection<String> isbns);
 
     // Search by title OR author (case-insensitive)
-    List<Book> findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase(String title, String author);
+    List<BookSummary> findSummariesByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase(String title, String author);
+
+    @Query("select b.isbn from Book b")
+    List<String> findAllIsbns();
+
+    @Query("select b.isbn from Book b where b.isbn in :isbns")
+    List<String> findIsbnsIn(@Param("isbns") Collection<String> isbns);
 }
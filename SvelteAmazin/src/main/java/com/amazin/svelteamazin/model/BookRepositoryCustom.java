@@ -0,0 +1,26 @@
+package com.amazin.svelteamazin.model;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sparse fieldsets (?fields=title,price): selects only the requested columns and
+ * returns each row as a field name → value map.
+ */
+public interface BookRepositoryCustom {
+
+    /** Book properties a client may ask for. */
+    Set<String> FIELDS = Set.of("isbn", "title", "author", "publisher", "genre",
+            "description", "price", "inventory", "imageUrl");
+
+    List<Map<String, Object>> findFields(Collection<String> fields, Sort sort);
+
+    List<Map<String, Object>> findFieldsByIsbnIn(Collection<String> fields, Collection<String> isbns);
+
+    // Same match as findSummariesByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase
+    List<Map<String, Object>> findFieldsMatching(Collection<String> fields, String text);
+}
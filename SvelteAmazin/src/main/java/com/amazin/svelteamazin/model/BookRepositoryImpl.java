@@ -0,0 +1,66 @@
+package com.amazin.svelteamazin.model;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+// Picked up by Spring Data as the implementation of BookRepositoryCustom
+class BookRepositoryImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<Map<String, Object>> findFields(Collection<String> fields, Sort sort) {
+        return select(fields, (cb, book) -> null, sort);
+    }
+
+    @Override
+    public List<Map<String, Object>> findFieldsByIsbnIn(Collection<String> fields, Collection<String> isbns) {
+        if (isbns.isEmpty()) return List.of();
+        return select(fields, (cb, book) -> book.get("isbn").in(isbns), Sort.unsorted());
+    }
+
+    @Override
+    public List<Map<String, Object>> findFieldsMatching(Collection<String> fields, String text) {
+        String pattern = "%" + text.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return select(fields, (cb, book) -> cb.or(
+                cb.like(cb.lower(book.get("title")), pattern, '\\'),
+                cb.like(cb.lower(book.get("author")), pattern, '\\')), Sort.unsorted());
+    }
+
+    private List<Map<String, Object>> select(Collection<String> fields,
+                                             BiFunction<CriteriaBuilder, Root<Book>, Predicate> where, Sort sort) {
+        for (String field : fields) {
+            if (!FIELDS.contains(field)) throw new IllegalArgumentException("Unknown book field: " + field);
+        }
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Book> book = query.from(Book.class);
+        query.multiselect(fields.stream().<Selection<?>>map(f -> book.get(f).alias(f)).toList());
+        Predicate predicate = where.apply(cb, book);
+        if (predicate != null) query.where(predicate);
+        if (sort.isSorted()) query.orderBy(QueryUtils.toOrders(sort, book, cb));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : em.createQuery(query).getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                row.put(field, tuple.get(field));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,14 @@
+package com.amazin.svelteamazin.model;
+
+/**
+ * What catalog listings show for a book: cover, title, author, price and stock.
+ * Loaded as a projection so the large genre/description columns are never read;
+ * the full {@link Book} is only returned by GET /api/books/{isbn}.
+ */
+public record BookSummary(String isbn, String title, String author, double price, int inventory, String imageUrl) {
+
+    public static BookSummary of(Book book) {
+        return new BookSummary(book.getIsbn(), book.getTitle(), book.getAuthor(),
+                book.getPrice(), book.getInventory(), book.getImageUrl());
+    }
+}
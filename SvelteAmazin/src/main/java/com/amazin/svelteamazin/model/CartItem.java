@@ -2,12 +2,18 @@ package com.amazin.svelteamazin.model;
 
 import jakarta.persistence.*;
 
+import java.time.Instant;
+
 @Entity
-@Table(name = "cart_items", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "book_isbn"}))
+@Table(name = "cart_items", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "book_isbn"}),
+        indexes = @Index(name = "idx_cart_items_updated_at", columnList = "updated_at"))
 public class CartItem {
 
+    // Sequence rather than identity: Hibernate cannot batch inserts whose ids come back from the insert.
+    // Ids are handed out 50 at a time, so a flushed batch of new lines needs no extra round trips.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_items_seq")
+    @SequenceGenerator(name = "cart_items_seq", sequenceName = "cart_items_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
@@ -21,6 +27,10 @@ public class CartItem {
     @Column(nullable = false)
     private int quantity;
 
+    // Last time any line of this user's cart changed; CartSweeper expires on it
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
     public CartItem() {}
 
     public CartItem(User user, Book book, int quantity) {
@@ -39,4 +49,12 @@ public class CartItem {
 
     public int getQuantity() { return quantity; }
     public void setQuantity(int quantity) { this.quantity = quantity; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+
+    @PrePersist
+    void onCreate() {
+        if (updatedAt == null) updatedAt = Instant.now();
+    }
 }
\ No newline at end of file
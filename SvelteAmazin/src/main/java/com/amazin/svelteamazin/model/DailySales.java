@@ -0,0 +1,95 @@
+package com.amazin.svelteamazin.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Rollup row: units sold and revenue for one ISBN on one day. The key starts with
+ * the day, so date-range reads walk the primary key.
+ */
+@Entity
+@Table(name = "sales_daily")
+@IdClass(DailySales.Key.class)
+public class DailySales implements Persistable<DailySales.Key> {
+
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private String isbn;
+
+        public Key() {}
+
+        public Key(LocalDate day, String isbn) {
+            this.day = day;
+            this.isbn = isbn;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && day.equals(other.day) && isbn.equals(other.isbn);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(day, isbn);
+        }
+    }
+
+    @Id
+    @Column(name = "sales_day")
+    private LocalDate day;
+
+    @Id
+    private String isbn;
+
+    // Title at the time of the latest sale counted
+    private String title;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(nullable = false)
+    private double revenue;
+
+    // Rows are keyed by value, so tell Spring Data which ones to insert rather than merge
+    @Transient
+    private boolean isNew = true;
+
+    public DailySales() {}
+
+    public DailySales(LocalDate day, String isbn) {
+        this.day = day;
+        this.isbn = isbn;
+    }
+
+    public LocalDate getDay() { return day; }
+
+    public String getIsbn() { return isbn; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public long getUnits() { return units; }
+
+    public double getRevenue() { return revenue; }
+
+    public void add(long units, double revenue) {
+        this.units += units;
+        this.revenue += revenue;
+    }
+
+    @Override
+    public Key getId() { return new Key(day, isbn); }
+
+    @Override
+    public boolean isNew() { return isNew; }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        isNew = false;
+    }
+}
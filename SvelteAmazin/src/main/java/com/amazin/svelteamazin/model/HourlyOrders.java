@@ -0,0 +1,63 @@
+package com.amazin.svelteamazin.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Rollup row: orders, units and revenue for one hour (the hour's start).
+ */
+@Entity
+@Table(name = "orders_hourly")
+public class HourlyOrders implements Persistable<LocalDateTime> {
+
+    @Id
+    @Column(name = "sales_hour")
+    private LocalDateTime hour;
+
+    @Column(nullable = false)
+    private long orders;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(nullable = false)
+    private double revenue;
+
+    // Rows are keyed by value, so tell Spring Data which ones to insert rather than merge
+    @Transient
+    private boolean isNew = true;
+
+    public HourlyOrders() {}
+
+    public HourlyOrders(LocalDateTime hour) {
+        this.hour = hour;
+    }
+
+    public LocalDateTime getHour() { return hour; }
+
+    public long getOrders() { return orders; }
+
+    public long getUnits() { return units; }
+
+    public double getRevenue() { return revenue; }
+
+    public void add(long orders, long units, double revenue) {
+        this.orders += orders;
+        this.units += units;
+        this.revenue += revenue;
+    }
+
+    @Override
+    public LocalDateTime getId() { return hour; }
+
+    @Override
+    public boolean isNew() { return isNew; }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        isNew = false;
+    }
+}
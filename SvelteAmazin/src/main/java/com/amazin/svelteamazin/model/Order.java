@@ -7,6 +7,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "orders")
+@EntityListeners(OrderEntityListener.class)
 public class Order {
 
     @Id
@@ -23,6 +24,10 @@ public class Order {
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
     private List<OrderItem> items = new ArrayList<>();
 
+    // Set once the order is counted in the sales rollups (see SalesRollups)
+    @Column(name = "rolled_up", nullable = false)
+    private boolean rolledUp;
+
     public Order() {}
 
     public Order(User user) {
@@ -38,6 +43,8 @@ public class Order {
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
+    public boolean isRolledUp() { return rolledUp; }
+
     public List<OrderItem> getItems() { return items; }
     public void setItems(List<OrderItem> items) { this.items = items; }
 
@@ -0,0 +1,23 @@
+package com.amazin.svelteamazin.model;
+
+import jakarta.persistence.PostPersist;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA callbacks for {@link Order}, mirroring {@link BookEntityListener}.
+ */
+@Component
+public class OrderEntityListener {
+
+    private final ApplicationEventPublisher events;
+
+    public OrderEntityListener(ApplicationEventPublisher events) {
+        this.events = events;
+    }
+
+    @PostPersist
+    public void placed(Order order) {
+        events.publishEvent(new OrderPlacedEvent(order.getId()));
+    }
+}
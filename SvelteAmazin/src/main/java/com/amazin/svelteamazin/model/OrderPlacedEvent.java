@@ -0,0 +1,7 @@
+package com.amazin.svelteamazin.model;
+
+/**
+ * Published when an {@link Order} row is inserted, so derived data (the sales
+ * rollups) can follow checkouts without the checkout path knowing about it.
+ */
+public record OrderPlacedEvent(Long orderId) {}
@@ -13,7 +13,7 @@ public class User {
     @Column(unique = true)
     private String username;
 
-    private String password;   // plain text is fine for demo I think
+    private String password;   // PasswordHasher format; legacy rows may still be plaintext
     private String role;
     public User() {}
 
@@ -3,13 +3,24 @@ package com.amazin.svelteamazin.repository;
 import com.amazin.svelteamazin.model.Book;
 import com.amazin.svelteamazin.model.CartItem;
 import com.amazin.svelteamazin.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     List<CartItem> findByUser(User user);
+    List<CartItem> findByUserIdOrderById(Long userId);
+    List<CartItem> findByUserIdIn(Collection<Long> userIds);
     Optional<CartItem> findByUserAndBook(User user, Book book);
     void deleteByUser(User user);
+
+    // Oldest first, off the updated_at index: [id, user id, isbn] rows
+    @Query("select c.id, c.user.id, c.book.isbn from CartItem c where c.updatedAt < :cutoff order by c.updatedAt")
+    List<Object[]> findExpired(@Param("cutoff") Instant cutoff, Pageable page);
 }
\ No newline at end of file
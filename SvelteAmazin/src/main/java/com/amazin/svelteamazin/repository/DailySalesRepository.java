@@ -0,0 +1,23 @@
+package com.amazin.svelteamazin.repository;
+
+import com.amazin.svelteamazin.model.DailySales;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailySalesRepository extends JpaRepository<DailySales, DailySales.Key> {
+
+    // [day, units, revenue]
+    @Query("select d.day, sum(d.units), sum(d.revenue) from DailySales d"
+            + " where d.day between :from and :to group by d.day order by d.day")
+    List<Object[]> sumByDay(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // [isbn, title, units, revenue], best sellers by revenue first
+    @Query("select d.isbn, max(d.title), sum(d.units), sum(d.revenue) from DailySales d"
+            + " where d.day between :from and :to group by d.isbn order by sum(d.revenue) desc, d.isbn")
+    List<Object[]> sumByIsbn(@Param("from") LocalDate from, @Param("to") LocalDate to, Pageable page);
+}
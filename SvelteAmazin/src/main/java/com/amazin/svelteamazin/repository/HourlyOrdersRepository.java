@@ -0,0 +1,11 @@
+package com.amazin.svelteamazin.repository;
+
+import com.amazin.svelteamazin.model.HourlyOrders;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface HourlyOrdersRepository extends JpaRepository<HourlyOrders, LocalDateTime> {
+    List<HourlyOrders> findByHourGreaterThanEqualAndHourLessThanOrderByHour(LocalDateTime from, LocalDateTime to);
+}
@@ -2,10 +2,42 @@ package com.amazin.svelteamazin.repository;
 
 import com.amazin.svelteamazin.model.Order;
 import com.amazin.svelteamazin.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByUserOrderByCreatedAtDesc(User user);
-}
\ No newline at end of file
+
+    // --- Sales rollups (SalesRollups); order lines come back as [order id, createdAt, isbn, title, price, quantity]
+
+    @Query("select o.id from Order o where o.rolledUp = false")
+    List<Long> findIdsNotRolledUp();
+
+    @Query("select o.id from Order o where o.id in :ids and o.rolledUp = false")
+    List<Long> findIdsNotRolledUp(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update Order o set o.rolledUp = true where o.id in :ids")
+    int markRolledUp(@Param("ids") Collection<Long> ids);
+
+    @Query("select max(o.id) from Order o")
+    Long findMaxId();
+
+    @Query("select o.id, o.createdAt, i.isbn, i.title, i.price, i.quantity from Order o join o.items i where o.id in :ids")
+    List<Object[]> findLines(@Param("ids") Collection<Long> ids);
+
+    @Query("select o.id, o.createdAt, i.isbn, i.title, i.price, i.quantity from Order o join o.items i"
+            + " where o.id between :first and :last")
+    List<Object[]> findLinesBetween(@Param("first") long first, @Param("last") long last);
+
+    // --- Columnar analytics (OrderAnalytics) pages through order ids, then loads lines via findLines
+
+    @Query("select o.id from Order o where o.id > :after order by o.id")
+    List<Long> findIdsAfter(@Param("after") long after, Pageable page);
+}
@@ -0,0 +1,465 @@
+package com.amazin.svelteamazin.search;
+
+import com.amazin.svelteamazin.model.Book;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * In-memory index behind GET /api/books/query.
+ * <p>
+ * Books get a dense int doc id. Each normalised genre maps to a Roaring bitmap of
+ * doc ids, price buckets are bitmaps too (for facet counts), and arbitrary price
+ * ranges are answered from a sorted primitive price array. Writes update the
+ * bitmaps in place and move a repriced book within the price array by binary
+ * search. The title and author orderings are only dropped (and rebuilt on the
+ * next query that sorts by them) when a book is added or that field changes, so
+ * inventory-only updates leave every sorted view intact.
+ */
+@Component
+public class BookFacetIndex implements BookIndex {
+
+    public enum SortKey { NONE, TITLE, AUTHOR, PRICE }
+
+    public record Query(String term, Collection<String> genres, Double minPrice, Double maxPrice,
+                        SortKey sort, boolean descending, int page, int size) {}
+
+    public record PriceFacet(double min, Double max, int count) {}
+
+    public record Result(List<String> isbns, int total, Map<String, Integer> genres, List<PriceFacet> prices) {}
+
+    /** Upper bounds of the price buckets; the last bucket is open-ended. */
+    static final double[] PRICE_BUCKET_BOUNDS = {10, 20, 30, 50};
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> docByIsbn = new HashMap<>();
+    private String[] isbns = new String[1024];
+    private String[] titles = new String[1024];   // lower-cased
+    private String[] authors = new String[1024];  // lower-cased
+    private String[][] genresByDoc = new String[1024][];
+    private double[] prices = new double[1024];
+    private int nextDoc;
+
+    private final RoaringBitmap live = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> genreDocs = new HashMap<>();
+    private final Map<String, String> genreLabels = new HashMap<>();
+    private final RoaringBitmap[] priceBuckets = new RoaringBitmap[PRICE_BUCKET_BOUNDS.length + 1];
+
+    // Live docs ordered by (price, doc), kept sorted across writes
+    private int[] docsByPrice = new int[1024];
+    private double[] sortedPrices = new double[1024];
+    private int priced;
+
+    // Sorted views, rebuilt lazily after a write that can reorder them
+    private volatile Ordering byTitle;
+    private volatile Ordering byAuthor;
+
+    /**
+     * Doc ids in sort order plus each doc's position in that order. Removed docs may
+     * linger until the next rebuild; they are never candidates, so they are skipped.
+     */
+    private record Ordering(int[] docs, int[] rankByDoc) {}
+
+    public BookFacetIndex() {
+        for (int i = 0; i < priceBuckets.length; i++) {
+            priceBuckets[i] = new RoaringBitmap();
+        }
+    }
+
+    @Override
+    public void rebuild(List<Book> books) {
+        lock.writeLock().lock();
+        try {
+            docByIsbn.clear();
+            nextDoc = 0;
+            live.clear();
+            genreDocs.clear();
+            genreLabels.clear();
+            for (RoaringBitmap bucket : priceBuckets) bucket.clear();
+            for (Book book : books) {
+                upsertLocked(book);
+            }
+            sortPrices();
+            byTitle = null;
+            byAuthor = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(Book book) {
+        if (book.getIsbn() == null) return;
+        lock.writeLock().lock();
+        try {
+            Integer existing = docByIsbn.get(book.getIsbn());
+            if (existing == null) {
+                insertPrice(upsertLocked(book));
+                byTitle = null;
+                byAuthor = null;
+                return;
+            }
+            double oldPrice = prices[existing];
+            String oldTitle = titles[existing];
+            String oldAuthor = authors[existing];
+            int doc = upsertLocked(book);
+            if (Double.compare(oldPrice, prices[doc]) != 0) {
+                removePrice(oldPrice, doc);
+                insertPrice(doc);
+            }
+            if (!oldTitle.equals(titles[doc])) byTitle = null;
+            if (!oldAuthor.equals(authors[doc])) byAuthor = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String isbn) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docByIsbn.remove(isbn);
+            if (doc != null) {
+                unindex(doc);
+                removePrice(prices[doc], doc);
+                live.remove(doc);
+                isbns[doc] = null;
+                titles[doc] = null;
+                authors[doc] = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Result query(Query query) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap base = live.clone();
+            if (query.term() != null && !query.term().isBlank()) {
+                base = matchTerm(base, query.term().trim().toLowerCase(Locale.ROOT));
+            }
+            RoaringBitmap genreFilter = genreFilter(query.genres());
+            RoaringBitmap priceFilter = priceFilter(query.minPrice(), query.maxPrice());
+
+            // Each facet is counted with every filter applied except its own
+            RoaringBitmap forGenreFacet = priceFilter == null ? base : RoaringBitmap.and(base, priceFilter);
+            RoaringBitmap forPriceFacet = genreFilter == null ? base : RoaringBitmap.and(base, genreFilter);
+            RoaringBitmap candidates = genreFilter == null ? forGenreFacet : RoaringBitmap.and(forGenreFacet, genreFilter);
+
+            return new Result(page(candidates, query), candidates.getCardinality(),
+                    genreCounts(forGenreFacet), priceCounts(forPriceFacet));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static String normaliseGenre(String genre) {
+        return genre.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Doc arrays, bitmaps and the price order; the caller holds the write lock
+
+    /** Indexes everything but the price array; returns the book's doc id. */
+    private int upsertLocked(Book book) {
+        Integer existing = docByIsbn.get(book.getIsbn());
+        int doc;
+        if (existing != null) {
+            doc = existing;
+            unindex(doc);
+        } else {
+            doc = nextDoc++;
+            ensureCapacity(doc + 1);
+            docByIsbn.put(book.getIsbn(), doc);
+        }
+        isbns[doc] = book.getIsbn();
+        titles[doc] = lower(book.getTitle());
+        authors[doc] = lower(book.getAuthor());
+        prices[doc] = book.getPrice();
+        genresByDoc[doc] = splitGenres(book.getGenre());
+        for (String genre : genresByDoc[doc]) {
+            genreDocs.computeIfAbsent(genre, g -> new RoaringBitmap()).add(doc);
+        }
+        priceBuckets[bucketOf(book.getPrice())].add(doc);
+        live.add(doc);
+        return doc;
+    }
+
+    private void unindex(int doc) {
+        String[] genres = genresByDoc[doc];
+        if (genres != null) {
+            for (String genre : genres) {
+                RoaringBitmap docs = genreDocs.get(genre);
+                if (docs != null) {
+                    docs.remove(doc);
+                    if (docs.isEmpty()) {
+                        genreDocs.remove(genre);
+                        genreLabels.remove(genre);
+                    }
+                }
+            }
+            genresByDoc[doc] = null;
+        }
+        priceBuckets[bucketOf(prices[doc])].remove(doc);
+    }
+
+    private String[] splitGenres(String genre) {
+        if (genre == null || genre.isBlank()) return new String[0];
+        List<String> result = new ArrayList<>();
+        for (String part : genre.split(",")) {
+            if (part.isBlank()) continue;
+            String normalised = normaliseGenre(part);
+            genreLabels.putIfAbsent(normalised, part.trim());
+            if (!result.contains(normalised)) result.add(normalised);
+        }
+        return result.toArray(new String[0]);
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= isbns.length) return;
+        int newSize = Math.max(size, isbns.length * 2);
+        isbns = Arrays.copyOf(isbns, newSize);
+        titles = Arrays.copyOf(titles, newSize);
+        authors = Arrays.copyOf(authors, newSize);
+        genresByDoc = Arrays.copyOf(genresByDoc, newSize);
+        prices = Arrays.copyOf(prices, newSize);
+    }
+
+    private void sortPrices() {
+        int count = live.getCardinality();
+        double[] sorted = new double[Math.max(1024, count)];
+        IntIterator it = live.getIntIterator();
+        for (int i = 0; it.hasNext(); i++) sorted[i] = prices[it.next()];
+        Arrays.sort(sorted, 0, count);
+
+        // Pack (price rank, doc) into a long so the docs sort as primitives too
+        long[] keys = new long[count];
+        it = live.getIntIterator();
+        for (int i = 0; it.hasNext(); i++) {
+            int doc = it.next();
+            keys[i] = (long) lowerBound(sorted, count, prices[doc]) << 32 | doc;
+        }
+        Arrays.sort(keys);
+        int[] docs = new int[sorted.length];
+        for (int i = 0; i < count; i++) docs[i] = (int) keys[i];
+
+        docsByPrice = docs;
+        sortedPrices = sorted;
+        priced = count;
+    }
+
+    private void insertPrice(int doc) {
+        if (priced == docsByPrice.length) {
+            docsByPrice = Arrays.copyOf(docsByPrice, priced * 2);
+            sortedPrices = Arrays.copyOf(sortedPrices, priced * 2);
+        }
+        int at = priceSlot(prices[doc], doc);
+        System.arraycopy(docsByPrice, at, docsByPrice, at + 1, priced - at);
+        System.arraycopy(sortedPrices, at, sortedPrices, at + 1, priced - at);
+        docsByPrice[at] = doc;
+        sortedPrices[at] = prices[doc];
+        priced++;
+    }
+
+    private void removePrice(double price, int doc) {
+        int at = priceSlot(price, doc);
+        if (at == priced || docsByPrice[at] != doc) return;
+        System.arraycopy(docsByPrice, at + 1, docsByPrice, at, priced - at - 1);
+        System.arraycopy(sortedPrices, at + 1, sortedPrices, at, priced - at - 1);
+        priced--;
+    }
+
+    // Filtering, facet counts and paging; the caller holds the read lock
+
+    private RoaringBitmap matchTerm(RoaringBitmap docs, String term) {
+        RoaringBitmap matches = new RoaringBitmap();
+        IntIterator it = docs.getIntIterator();
+        while (it.hasNext()) {
+            int doc = it.next();
+            if (titles[doc].contains(term) || authors[doc].contains(term)) {
+                matches.add(doc);
+            }
+        }
+        return matches;
+    }
+
+    private RoaringBitmap genreFilter(Collection<String> genres) {
+        if (genres == null || genres.isEmpty()) return null;
+        RoaringBitmap union = new RoaringBitmap();
+        for (String genre : genres) {
+            RoaringBitmap docs = genreDocs.get(normaliseGenre(genre));
+            if (docs != null) union.or(docs);
+        }
+        return union;
+    }
+
+    private RoaringBitmap priceFilter(Double min, Double max) {
+        if (min == null && max == null) return null;
+        int from = min == null ? 0 : lowerBound(sortedPrices, priced, min);
+        int to = max == null ? priced : upperBound(sortedPrices, priced, max);
+        if (from >= to) return new RoaringBitmap();
+        return RoaringBitmap.bitmapOfUnordered(Arrays.copyOfRange(docsByPrice, from, to));
+    }
+
+    private Map<String, Integer> genreCounts(RoaringBitmap docs) {
+        Map<String, Integer> counts = new TreeMap<>();
+        genreDocs.forEach((genre, genreBitmap) -> {
+            int count = RoaringBitmap.andCardinality(docs, genreBitmap);
+            if (count > 0) counts.put(genreLabels.getOrDefault(genre, genre), count);
+        });
+        return counts;
+    }
+
+    private List<PriceFacet> priceCounts(RoaringBitmap docs) {
+        List<PriceFacet> facets = new ArrayList<>();
+        for (int i = 0; i < priceBuckets.length; i++) {
+            double min = i == 0 ? 0 : PRICE_BUCKET_BOUNDS[i - 1];
+            Double max = i < PRICE_BUCKET_BOUNDS.length ? PRICE_BUCKET_BOUNDS[i] : null;
+            facets.add(new PriceFacet(min, max, RoaringBitmap.andCardinality(docs, priceBuckets[i])));
+        }
+        return facets;
+    }
+
+    private List<String> page(RoaringBitmap candidates, Query query) {
+        int offset = Math.max(0, query.page()) * query.size();
+        int total = candidates.getCardinality();
+        if (offset >= total || query.size() <= 0) return List.of();
+        int limit = Math.min(query.size(), total - offset);
+        List<String> page = new ArrayList<>(limit);
+
+        if (query.sort() == SortKey.NONE) {
+            IntIterator it = query.descending() ? candidates.getReverseIntIterator() : candidates.getIntIterator();
+            for (int skipped = 0; it.hasNext() && page.size() < limit; ) {
+                int doc = it.next();
+                if (skipped++ >= offset) page.add(isbns[doc]);
+            }
+            return page;
+        }
+
+        int[] docs;
+        int count;
+        IntUnaryOperator rankOf;
+        if (query.sort() == SortKey.PRICE) {
+            docs = docsByPrice;
+            count = priced;
+            rankOf = doc -> priceSlot(prices[doc], doc);
+        } else {
+            Ordering ordering = query.sort() == SortKey.TITLE ? titleOrdering() : authorOrdering();
+            docs = ordering.docs();
+            count = docs.length;
+            rankOf = doc -> ordering.rankByDoc()[doc];
+        }
+
+        if ((long) total * 16 < count) {
+            // Few candidates: sort their ranks instead of walking the whole ordering
+            int[] ranks = new int[total];
+            IntIterator it = candidates.getIntIterator();
+            for (int i = 0; it.hasNext(); i++) ranks[i] = rankOf.applyAsInt(it.next());
+            Arrays.sort(ranks);
+            for (int i = 0; i < limit; i++) {
+                int r = query.descending() ? ranks[total - 1 - offset - i] : ranks[offset + i];
+                page.add(isbns[docs[r]]);
+            }
+            return page;
+        }
+
+        // Many candidates: walk the ordering and stop once the page is full
+        int skipped = 0;
+        for (int i = 0; i < count && page.size() < limit; i++) {
+            int doc = docs[query.descending() ? count - 1 - i : i];
+            if (candidates.contains(doc) && skipped++ >= offset) {
+                page.add(isbns[doc]);
+            }
+        }
+        return page;
+    }
+
+    private Ordering titleOrdering() {
+        Ordering ordering = byTitle;
+        if (ordering == null) {
+            ordering = buildOrdering(Comparator.comparing(doc -> titles[doc]));
+            byTitle = ordering;
+        }
+        return ordering;
+    }
+
+    private Ordering authorOrdering() {
+        Ordering ordering = byAuthor;
+        if (ordering == null) {
+            ordering = buildOrdering(Comparator.comparing(doc -> authors[doc]));
+            byAuthor = ordering;
+        }
+        return ordering;
+    }
+
+    // Built under the read lock, so no writer can interleave before it is published
+    private Ordering buildOrdering(Comparator<Integer> comparator) {
+        Integer[] boxed = new Integer[live.getCardinality()];
+        IntIterator it = live.getIntIterator();
+        for (int i = 0; it.hasNext(); i++) boxed[i] = it.next();
+        Arrays.sort(boxed, comparator);
+
+        int[] docs = new int[boxed.length];
+        int[] rankByDoc = new int[nextDoc];
+        for (int i = 0; i < boxed.length; i++) {
+            docs[i] = boxed[i];
+            rankByDoc[docs[i]] = i;
+        }
+        return new Ordering(docs, rankByDoc);
+    }
+
+    private static int bucketOf(double price) {
+        for (int i = 0; i < PRICE_BUCKET_BOUNDS.length; i++) {
+            if (price < PRICE_BUCKET_BOUNDS[i]) return i;
+        }
+        return PRICE_BUCKET_BOUNDS.length;
+    }
+
+    /** First index of the price array at or after (price, doc); also the doc's rank when present. */
+    private int priceSlot(double price, int doc) {
+        int lo = 0, hi = priced;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = Double.compare(sortedPrices[mid], price);
+            if (cmp < 0 || (cmp == 0 && docsByPrice[mid] < doc)) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /** First index below length with sorted[i] >= value. */
+    private static int lowerBound(double[] sorted, int length, double value) {
+        int lo = 0, hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < value) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /** First index below length with sorted[i] > value. */
+    private static int upperBound(double[] sorted, int length, double value) {
+        int lo = 0, hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= value) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,19 @@
+package com.amazin.svelteamazin.search;
+
+import com.amazin.svelteamazin.model.Book;
+
+import java.util.List;
+
+/**
+ * An in-memory view of the catalog, kept current by {@link BookIndexUpdater}.
+ */
+interface BookIndex {
+
+    /** Replaces the whole index with the given books. */
+    void rebuild(List<Book> books);
+
+    /** Adds a book or replaces the indexed copy of it. */
+    void upsert(Book book);
+
+    void remove(String isbn);
+}
@@ -0,0 +1,51 @@
+package com.amazin.svelteamazin.search;
+
+import com.amazin.svelteamazin.model.Book;
+import com.amazin.svelteamazin.model.BookChangedEvent;
+import com.amazin.svelteamazin.model.BookRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Loads every {@link BookIndex} from one catalog read at startup and applies book
+ * writes to all of them.
+ * <p>
+ * Writes are applied only after they commit. BookChangedEvent is published from the
+ * JPA callbacks, which run at flush, so a write that later rolls back would
+ * otherwise stay searchable.
+ */
+@Component
+public class BookIndexUpdater {
+
+    private final BookRepository repo;
+    private final List<BookIndex> indexes;
+
+    BookIndexUpdater(BookRepository repo, List<BookIndex> indexes) {
+        this.repo = repo;
+        this.indexes = indexes;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<Book> books = repo.findAll();
+        for (BookIndex index : indexes) {
+            index.rebuild(books);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        for (BookIndex index : indexes) {
+            if (event.kind() == BookChangedEvent.Kind.DELETED) {
+                index.remove(event.book().getIsbn());
+            } else {
+                index.upsert(event.book());
+            }
+        }
+    }
+}
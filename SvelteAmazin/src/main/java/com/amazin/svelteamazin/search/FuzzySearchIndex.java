@@ -0,0 +1,340 @@
+package com.amazin.svelteamazin.search;
+
+import com.amazin.svelteamazin.model.Book;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typo-tolerant search over title and author words, used by
+ * GET /api/books/search?fuzzy=true.
+ * <p>
+ * Distinct words form a vocabulary indexed by padded trigrams. A query word only
+ * verifies vocabulary words that share enough trigrams to possibly be within the
+ * allowed edit distance (q-gram lemma), and verification is a banded
+ * Damerau (OSA) distance that gives up as soon as the bound is exceeded. Each
+ * vocabulary word keeps a bitmap of the books containing it; query words are ANDed.
+ */
+@Component
+public class FuzzySearchIndex implements BookIndex {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> docByIsbn = new HashMap<>();
+    private final List<String> isbnByDoc = new ArrayList<>();
+    private final List<int[]> wordsByDoc = new ArrayList<>();
+
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    private final List<RoaringBitmap> docsByWord = new ArrayList<>();
+    private final Map<Long, IntList> wordsByTrigram = new HashMap<>();
+
+    @Override
+    public void rebuild(List<Book> books) {
+        lock.writeLock().lock();
+        try {
+            docByIsbn.clear();
+            isbnByDoc.clear();
+            wordsByDoc.clear();
+            wordIds.clear();
+            words.clear();
+            docsByWord.clear();
+            wordsByTrigram.clear();
+            for (Book book : books) {
+                upsertLocked(book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(Book book) {
+        if (book.getIsbn() == null) return;
+        lock.writeLock().lock();
+        try {
+            upsertLocked(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String isbn) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docByIsbn.remove(isbn);
+            if (doc != null) {
+                unindex(doc);
+                isbnByDoc.set(doc, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * ISBNs of books where every query word is within its edit-distance budget of
+     * some title or author word, best total distance first.
+     */
+    public List<String> search(String query, int limit) {
+        List<String> terms = Tokens.of(query);
+        if (terms.isEmpty() || limit <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            // levels.get(t)[d] = books whose best match for term t is at distance d
+            List<RoaringBitmap[]> levels = new ArrayList<>(terms.size());
+            RoaringBitmap candidates = null;
+            for (String term : terms) {
+                RoaringBitmap[] byDistance = matchTerm(term);
+                RoaringBitmap any = RoaringBitmap.or(byDistance);
+                candidates = candidates == null ? any : RoaringBitmap.and(candidates, any);
+                if (candidates.isEmpty()) return List.of();
+                levels.add(byDistance);
+            }
+
+            // Bounded selection: keep only the best `limit` (score, doc) pairs
+            long[] best = new long[limit];
+            int size = 0;
+            IntIterator it = candidates.getIntIterator();
+            while (it.hasNext()) {
+                int doc = it.next();
+                int score = 0;
+                for (RoaringBitmap[] byDistance : levels) {
+                    int d = 0;
+                    while (!byDistance[d].contains(doc)) d++;
+                    score += d;
+                }
+                long key = ((long) score << 32) | doc;
+                if (size < limit) {
+                    best[size++] = key;
+                    if (size == limit) Arrays.sort(best);
+                } else if (key < best[limit - 1]) {
+                    int at = Arrays.binarySearch(best, key);
+                    at = at < 0 ? -at - 1 : at;
+                    System.arraycopy(best, at, best, at + 1, limit - 1 - at);
+                    best[at] = key;
+                }
+            }
+            if (size < limit) Arrays.sort(best, 0, size);
+
+            List<String> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(isbnByDoc.get((int) best[i]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Edit distance budget for a query word of the given length. */
+    static int maxDistance(int length) {
+        if (length <= 3) return 0;
+        if (length <= 6) return 1;
+        return 2;
+    }
+
+    // Candidate words by shared trigrams, then bounded verification; the caller holds the read lock
+
+    private RoaringBitmap[] matchTerm(String term) {
+        int maxDistance = maxDistance(term.length());
+        RoaringBitmap[] byDistance = new RoaringBitmap[maxDistance + 1];
+        for (int d = 0; d <= maxDistance; d++) byDistance[d] = new RoaringBitmap();
+
+        Integer exact = wordIds.get(term);
+        if (maxDistance == 0) {
+            if (exact != null) byDistance[0].or(docsByWord.get(exact));
+            return byDistance;
+        }
+
+        long[] grams = trigrams(term);
+        // A Damerau edit touches at most 4 padded trigrams
+        int required = Math.max(1, grams.length - 4 * maxDistance);
+
+        // Pigeonhole: a word with `required` of the g grams must be in one of the
+        // g - required + 1 shortest postings. Scan-count those, then probe the long
+        // ones by binary search only for words that got that far.
+        IntList[] postings = new IntList[grams.length];
+        int present = 0;
+        for (long gram : grams) {
+            IntList posting = wordsByTrigram.get(gram);
+            if (posting != null) postings[present++] = posting;
+        }
+        if (present < required) return byDistance;
+        Arrays.sort(postings, 0, present, (x, y) -> Integer.compare(x.size, y.size));
+        int scanned = grams.length - required + 1;
+
+        // Counts live only for this query, sized from the postings scanned rather than the vocabulary
+        int bound = 0;
+        for (int p = 0; p < Math.min(scanned, present); p++) bound += postings[p].size;
+        HitCounts hits = new HitCounts(bound);
+        for (int p = 0; p < Math.min(scanned, present); p++) {
+            IntList posting = postings[p];
+            for (int i = 0; i < posting.size; i++) hits.increment(posting.values[i]);
+        }
+        for (int i = 0; i < hits.touched.size; i++) {
+            int word = hits.touched.values[i];
+            int count = hits.count(word);
+            String candidate = words.get(word);
+            if (Math.abs(candidate.length() - term.length()) > maxDistance) continue;
+            for (int p = scanned; p < present && count < required; p++) {
+                if (Arrays.binarySearch(postings[p].values, 0, postings[p].size, word) >= 0) count++;
+            }
+            if (count < required) continue;
+            RoaringBitmap docs = docsByWord.get(word);
+            if (!docs.isEmpty()) {
+                int d = boundedDistance(term, candidate, maxDistance);
+                if (d <= maxDistance) byDistance[d].or(docs);
+            }
+        }
+        return byDistance;
+    }
+
+    /**
+     * Optimal string alignment distance between a and b, or max + 1 as soon as it
+     * is certain to exceed max.
+     */
+    static int boundedDistance(String a, String b, int max) {
+        int n = a.length(), m = b.length();
+        if (Math.abs(n - m) > max) return max + 1;
+        int[] prevPrev = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] cur = new int[m + 1];
+        for (int j = 0; j <= m; j++) prev[j] = j;
+        for (int i = 1; i <= n; i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int cost = ca == cb ? 0 : 1;
+                int v = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    v = Math.min(v, prevPrev[j - 2] + 1);
+                }
+                cur[j] = v;
+                rowMin = Math.min(rowMin, v);
+            }
+            if (rowMin > max) return max + 1;
+            int[] t = prevPrev; prevPrev = prev; prev = cur; cur = t;
+        }
+        return Math.min(prev[m], max + 1);
+    }
+
+    // Vocabulary, trigram lists and word bitmaps; the caller holds the write lock
+
+    private void upsertLocked(Book book) {
+        Integer existing = docByIsbn.get(book.getIsbn());
+        int doc;
+        if (existing != null) {
+            doc = existing;
+            unindex(doc);
+        } else {
+            doc = isbnByDoc.size();
+            isbnByDoc.add(book.getIsbn());
+            wordsByDoc.add(null);
+            docByIsbn.put(book.getIsbn(), doc);
+        }
+        Set<String> tokens = new LinkedHashSet<>(Tokens.of(book.getTitle()));
+        tokens.addAll(Tokens.of(book.getAuthor()));
+        int[] ids = new int[tokens.size()];
+        int i = 0;
+        for (String token : tokens) {
+            int word = wordId(token);
+            docsByWord.get(word).add(doc);
+            ids[i++] = word;
+        }
+        wordsByDoc.set(doc, ids);
+    }
+
+    private void unindex(int doc) {
+        int[] ids = wordsByDoc.get(doc);
+        if (ids != null) {
+            for (int word : ids) docsByWord.get(word).remove(doc);
+            wordsByDoc.set(doc, null);
+        }
+    }
+
+    // Words whose last book goes away stay in the vocabulary with an empty bitmap
+    // until the next rebuild; matching skips them.
+    private int wordId(String word) {
+        Integer id = wordIds.get(word);
+        if (id != null) return id;
+        int newId = words.size();
+        wordIds.put(word, newId);
+        words.add(word);
+        docsByWord.add(new RoaringBitmap());
+        for (long gram : trigrams(word)) {
+            wordsByTrigram.computeIfAbsent(gram, g -> new IntList()).add(newId);
+        }
+        return newId;
+    }
+
+    /** Distinct trigrams of the word padded with two leading and one trailing space. */
+    static long[] trigrams(String word) {
+        String padded = "  " + word + " ";
+        long[] grams = new long[padded.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+        }
+        return Arrays.stream(grams).distinct().toArray();
+    }
+
+    /** Open-addressing word id -> hit count map for one query; ids are never negative. */
+    private static final class HitCounts {
+        private final int[] keys;
+        private final int[] counts;
+        private final int mask;
+        private final IntList touched = new IntList();
+
+        HitCounts(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(8, expected * 2 - 1)) << 1;
+            keys = new int[capacity];
+            counts = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(keys, -1);
+        }
+
+        void increment(int word) {
+            int slot = slot(word);
+            if (keys[slot] < 0) {
+                keys[slot] = word;
+                touched.add(word);
+            }
+            counts[slot]++;
+        }
+
+        int count(int word) {
+            int slot = slot(word);
+            return keys[slot] < 0 ? 0 : counts[slot];
+        }
+
+        private int slot(int word) {
+            int slot = (word * 0x9E3779B9) >>> 1 & mask;
+            while (keys[slot] >= 0 && keys[slot] != word) slot = (slot + 1) & mask;
+            return slot;
+        }
+    }
+
+    /** Growable primitive int list, so postings don't box. Word ids are appended in increasing order. */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+}
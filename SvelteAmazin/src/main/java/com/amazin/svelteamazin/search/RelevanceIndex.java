@@ -0,0 +1,302 @@
+package com.amazin.svelteamazin.search;
+
+import com.amazin.svelteamazin.model.Book;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * BM25 ranking over title, author and description, used by GET /api/books/search.
+ * <p>
+ * Fields are combined BM25F-style: each field's term frequency is length-normalised
+ * against that field's average length and weighted (title > author > description)
+ * before the usual k1 saturation. Document frequencies and field lengths are kept
+ * up to date on every book write, and only the best K documents are kept while
+ * scoring, in a bounded min-heap.
+ */
+@Component
+public class RelevanceIndex implements BookIndex {
+
+    static final int TITLE = 0, AUTHOR = 1, DESCRIPTION = 2;
+    static final double[] FIELD_WEIGHTS = {3.0, 2.0, 1.0};
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> docByIsbn = new HashMap<>();
+    private final List<String> isbnByDoc = new ArrayList<>();
+    private final List<int[]> lengthsByDoc = new ArrayList<>();
+    private final List<String[]> termsByDoc = new ArrayList<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final long[] fieldLengthTotals = new long[3];
+    private int liveDocs;
+
+    // Per-thread score accumulator, sized to the doc id space
+    private final ThreadLocal<double[]> scratch = ThreadLocal.withInitial(() -> new double[0]);
+
+    @Override
+    public void rebuild(List<Book> books) {
+        lock.writeLock().lock();
+        try {
+            docByIsbn.clear();
+            isbnByDoc.clear();
+            lengthsByDoc.clear();
+            termsByDoc.clear();
+            postings.clear();
+            Arrays.fill(fieldLengthTotals, 0);
+            liveDocs = 0;
+            for (Book book : books) {
+                upsertLocked(book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(Book book) {
+        if (book.getIsbn() == null) return;
+        lock.writeLock().lock();
+        try {
+            upsertLocked(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String isbn) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docByIsbn.remove(isbn);
+            if (doc != null) {
+                unindex(doc);
+                isbnByDoc.set(doc, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** ISBNs of the best {@code limit} matches for any of the query's words, best first. */
+    public List<String> search(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(Tokens.of(query)));
+        if (terms.isEmpty() || limit <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0) return List.of();
+            double[] avgLength = new double[3];
+            for (int f = 0; f < 3; f++) {
+                avgLength[f] = Math.max(1.0, (double) fieldLengthTotals[f] / liveDocs);
+            }
+
+            double[] scores = scratch.get();
+            if (scores.length < isbnByDoc.size()) {
+                scores = new double[isbnByDoc.size() + isbnByDoc.size() / 2];
+                scratch.set(scores);
+            }
+            List<Integer> touched = new ArrayList<>();
+
+            for (String term : terms) {
+                Postings p = postings.get(term);
+                if (p == null) continue;
+                double idf = Math.log(1 + (liveDocs - p.size + 0.5) / (p.size + 0.5));
+                for (int i = 0; i < p.size; i++) {
+                    int doc = p.docs[i];
+                    int[] lengths = lengthsByDoc.get(doc);
+                    double tf = 0;
+                    for (int f = 0; f < 3; f++) {
+                        int raw = p.frequency(i, f);
+                        if (raw > 0) {
+                            tf += FIELD_WEIGHTS[f] * raw / (1 - B + B * lengths[f] / avgLength[f]);
+                        }
+                    }
+                    if (scores[doc] == 0) touched.add(doc);
+                    scores[doc] += idf * tf / (K1 + tf);
+                }
+            }
+
+            TopK top = new TopK(Math.min(limit, touched.size()));
+            for (int doc : touched) {
+                top.offer(scores[doc], doc);
+                scores[doc] = 0;
+            }
+            List<String> result = new ArrayList<>();
+            for (int doc : top.drainBestFirst()) {
+                result.add(isbnByDoc.get(doc));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Postings, field lengths and their totals; the caller holds the write lock
+
+    private void upsertLocked(Book book) {
+        Integer existing = docByIsbn.get(book.getIsbn());
+        int doc;
+        if (existing != null) {
+            doc = existing;
+            unindex(doc);
+        } else {
+            doc = isbnByDoc.size();
+            isbnByDoc.add(book.getIsbn());
+            lengthsByDoc.add(null);
+            termsByDoc.add(null);
+            docByIsbn.put(book.getIsbn(), doc);
+        }
+
+        String[] texts = {book.getTitle(), book.getAuthor(), book.getDescription()};
+        int[] lengths = new int[3];
+        Map<String, int[]> frequencies = new HashMap<>();
+        for (int f = 0; f < 3; f++) {
+            List<String> tokens = Tokens.of(texts[f]);
+            lengths[f] = tokens.size();
+            fieldLengthTotals[f] += tokens.size();
+            for (String token : tokens) {
+                frequencies.computeIfAbsent(token, t -> new int[3])[f]++;
+            }
+        }
+        frequencies.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new Postings()).add(doc, tf));
+        lengthsByDoc.set(doc, lengths);
+        termsByDoc.set(doc, frequencies.keySet().toArray(new String[0]));
+        liveDocs++;
+    }
+
+    private void unindex(int doc) {
+        String[] terms = termsByDoc.get(doc);
+        if (terms == null) return;
+        for (String term : terms) {
+            Postings p = postings.get(term);
+            if (p != null && p.remove(doc) && p.size == 0) {
+                postings.remove(term);
+            }
+        }
+        int[] lengths = lengthsByDoc.get(doc);
+        for (int f = 0; f < 3; f++) {
+            fieldLengthTotals[f] -= lengths[f];
+        }
+        termsByDoc.set(doc, null);
+        lengthsByDoc.set(doc, null);
+        liveDocs--;
+    }
+
+    /**
+     * Docs containing a term, sorted by doc id, with the three field frequencies
+     * packed into one int (title and author 8 bits each, description 16 bits).
+     */
+    private static final class Postings {
+        int[] docs = new int[2];
+        int[] packed = new int[2];
+        int size;
+
+        void add(int doc, int[] tf) {
+            int at = Arrays.binarySearch(docs, 0, size, doc);
+            if (at >= 0) return;
+            at = -at - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                packed = Arrays.copyOf(packed, size * 2);
+            }
+            System.arraycopy(docs, at, docs, at + 1, size - at);
+            System.arraycopy(packed, at, packed, at + 1, size - at);
+            docs[at] = doc;
+            packed[at] = Math.min(tf[TITLE], 0xFF) << 24 | Math.min(tf[AUTHOR], 0xFF) << 16 | Math.min(tf[DESCRIPTION], 0xFFFF);
+            size++;
+        }
+
+        boolean remove(int doc) {
+            int at = Arrays.binarySearch(docs, 0, size, doc);
+            if (at < 0) return false;
+            System.arraycopy(docs, at + 1, docs, at, size - at - 1);
+            System.arraycopy(packed, at + 1, packed, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        int frequency(int i, int field) {
+            return switch (field) {
+                case TITLE -> packed[i] >>> 24;
+                case AUTHOR -> (packed[i] >>> 16) & 0xFF;
+                default -> packed[i] & 0xFFFF;
+            };
+        }
+    }
+
+    /** Bounded min-heap of (score, doc): the root is the weakest of the current best K. */
+    private static final class TopK {
+        private final double[] scores;
+        private final int[] docs;
+        private int size;
+
+        TopK(int capacity) {
+            scores = new double[capacity];
+            docs = new int[capacity];
+        }
+
+        void offer(double score, int doc) {
+            if (scores.length == 0) return;
+            if (size < scores.length) {
+                scores[size] = score;
+                docs[size] = doc;
+                siftUp(size++);
+            } else if (better(score, doc, 0)) {
+                scores[0] = score;
+                docs[0] = doc;
+                siftDown(0);
+            }
+        }
+
+        int[] drainBestFirst() {
+            int[] result = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                result[i] = docs[0];
+                size--;
+                scores[0] = scores[size];
+                docs[0] = docs[size];
+                siftDown(0);
+            }
+            return result;
+        }
+
+        // Higher score wins; ties go to the older (lower) doc id
+        private boolean better(double score, int doc, int i) {
+            return score > scores[i] || (score == scores[i] && doc < docs[i]);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!better(scores[parent], docs[parent], i)) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                    if (better(scores[smallest], docs[smallest], child)) smallest = child;
+                }
+                if (smallest == i) return;
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            double s = scores[a]; scores[a] = scores[b]; scores[b] = s;
+            int d = docs[a]; docs[a] = docs[b]; docs[b] = d;
+        }
+    }
+}
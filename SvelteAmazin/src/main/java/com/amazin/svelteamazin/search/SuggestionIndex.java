@@ -0,0 +1,307 @@
+package com.amazin.svelteamazin.search;
+
+import com.amazin.svelteamazin.model.Book;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix trie behind GET /api/books/suggest.
+ * <p>
+ * Every word start of a title or author is a key ("the martian" and "martian"),
+ * and every node caches the top {@link #MAX_SUGGESTIONS} entries of its subtree,
+ * so a lookup is one walk down the prefix with no subtree scan. Entries are
+ * ranked by stock (an author's score is the stock of all their books).
+ */
+@Component
+public class SuggestionIndex implements BookIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+    private static final int MAX_KEY_LENGTH = 64;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Suggestion(String text, String type, String isbn) {}
+
+    private static final Comparator<Entry> RANK = Comparator
+            .comparingLong((Entry e) -> -e.score)
+            .thenComparingInt(e -> e.text.length())
+            .thenComparing(e -> e.text);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Node root = new Node();
+    private final Map<String, Entry> titles = new HashMap<>();          // by isbn
+    private final Map<String, Entry> authors = new HashMap<>();         // by normalised author
+    private final Map<String, Integer> stockByIsbn = new HashMap<>();
+    private final Map<String, String> authorKeyByIsbn = new HashMap<>();
+
+    @Override
+    public void rebuild(List<Book> books) {
+        lock.writeLock().lock();
+        try {
+            root = new Node();
+            titles.clear();
+            authors.clear();
+            stockByIsbn.clear();
+            authorKeyByIsbn.clear();
+            for (Book book : books) {
+                upsertLocked(book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(Book book) {
+        if (book.getIsbn() == null) return;
+        lock.writeLock().lock();
+        try {
+            upsertLocked(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String isbn) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(isbn);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalise(prefix);
+        if (key.isEmpty()) return List.of();
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) return List.of();
+            int n = Math.min(Math.min(limit, MAX_SUGGESTIONS), node.top.length);
+            List<Suggestion> result = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                Entry e = node.top[i];
+                result.add(new Suggestion(e.text, e.type, e.isbn));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Trie maintenance; the caller holds the write lock
+
+    private void upsertLocked(Book book) {
+        removeLocked(book.getIsbn());
+        String isbn = book.getIsbn();
+        int stock = Math.max(0, book.getInventory());
+        stockByIsbn.put(isbn, stock);
+
+        if (book.getTitle() != null && !book.getTitle().isBlank()) {
+            Entry title = new Entry(book.getTitle().trim(), "title", isbn, stock);
+            titles.put(isbn, title);
+            addKeys(title);
+        }
+
+        if (book.getAuthor() != null && !book.getAuthor().isBlank()) {
+            String authorKey = normalise(book.getAuthor());
+            authorKeyByIsbn.put(isbn, authorKey);
+            Entry author = authors.get(authorKey);
+            if (author == null) {
+                author = new Entry(book.getAuthor().trim(), "author", null, stock);
+                authors.put(authorKey, author);
+                addKeys(author);
+            } else {
+                removeKeys(author);
+                author.score += stock;
+                addKeys(author);
+            }
+            author.books++;
+        }
+    }
+
+    private void removeLocked(String isbn) {
+        Entry title = titles.remove(isbn);
+        if (title != null) {
+            removeKeys(title);
+        }
+        Integer stock = stockByIsbn.remove(isbn);
+        String authorKey = authorKeyByIsbn.remove(isbn);
+        if (authorKey != null) {
+            Entry author = authors.get(authorKey);
+            removeKeys(author);
+            author.score -= stock;
+            if (--author.books > 0) {
+                addKeys(author);
+            } else {
+                authors.remove(authorKey);
+            }
+        }
+    }
+
+    private void addKeys(Entry entry) {
+        for (String key : keysOf(entry.text)) {
+            Node node = root;
+            node.offer(entry);
+            for (int i = 0; i < key.length(); i++) {
+                node = node.childOrCreate(key.charAt(i));
+                node.offer(entry);
+            }
+            node.terminals.add(entry);
+        }
+    }
+
+    private void removeKeys(Entry entry) {
+        keys:
+        for (String key : keysOf(entry.text)) {
+            Node[] path = new Node[key.length() + 1];
+            path[0] = root;
+            for (int i = 0; i < key.length(); i++) {
+                path[i + 1] = path[i].child(key.charAt(i));
+                if (path[i + 1] == null) continue keys;
+            }
+            path[key.length()].terminals.remove(entry);
+            // Recompute cached top lists bottom-up, pruning nodes that became empty
+            for (int i = key.length(); i >= 0; i--) {
+                Node node = path[i];
+                if (i > 0 && node.isEmpty()) {
+                    path[i - 1].removeChild(key.charAt(i - 1));
+                } else {
+                    node.recompute();
+                }
+            }
+        }
+    }
+
+    /** Every word start of the normalised text, e.g. "andy weir" and "weir". */
+    private static Set<String> keysOf(String text) {
+        String normalised = normalise(text);
+        Set<String> keys = new LinkedHashSet<>();
+        int start = 0;
+        while (start < normalised.length()) {
+            String key = normalised.substring(start);
+            keys.add(key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key);
+            int space = normalised.indexOf(' ', start);
+            if (space < 0) break;
+            start = space + 1;
+        }
+        return keys;
+    }
+
+    static String normalise(String text) {
+        if (text == null) return "";
+        return text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    private static final class Entry {
+        final String text;
+        final String type;
+        final String isbn;
+        long score;
+        int books;   // authors only: how many books contribute to the score
+
+        Entry(String text, String type, String isbn, long score) {
+            this.text = text;
+            this.type = type;
+            this.isbn = isbn;
+            this.score = score;
+        }
+    }
+
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Entry[] NO_ENTRIES = new Entry[0];
+
+        // Children kept in sorted parallel arrays: far smaller than a map per node
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        final List<Entry> terminals = new ArrayList<>(1);
+        Entry[] top = NO_ENTRIES;
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) return children[i];
+            int at = -i - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            newKeys[at] = c;
+            newChildren[at] = new Node();
+            System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[at];
+        }
+
+        void removeChild(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i < 0) return;
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            System.arraycopy(keys, i + 1, newKeys, i, keys.length - i - 1);
+            System.arraycopy(children, i + 1, newChildren, i, children.length - i - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        boolean isEmpty() {
+            return terminals.isEmpty() && children.length == 0;
+        }
+
+        /** Adds an entry to the cached top list if it ranks high enough. */
+        void offer(Entry entry) {
+            for (Entry e : top) {
+                if (e == entry) return;
+            }
+            if (top.length == MAX_SUGGESTIONS && RANK.compare(entry, top[top.length - 1]) >= 0) return;
+            int size = Math.min(top.length + 1, MAX_SUGGESTIONS);
+            Entry[] merged = new Entry[size];
+            int j = 0;
+            boolean placed = false;
+            for (int i = 0; j < size; ) {
+                if (!placed && (i >= top.length || RANK.compare(entry, top[i]) < 0)) {
+                    merged[j++] = entry;
+                    placed = true;
+                } else {
+                    merged[j++] = top[i++];
+                }
+            }
+            top = merged;
+        }
+
+        /** Top list = best of own terminals and the children's (already cached) top lists. */
+        void recompute() {
+            Set<Entry> candidates = new LinkedHashSet<>(terminals);
+            for (Node child : children) {
+                candidates.addAll(Arrays.asList(child.top));
+            }
+            top = candidates.stream().sorted(RANK).limit(MAX_SUGGESTIONS).toArray(Entry[]::new);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.amazin.svelteamazin.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Shared tokenizer for the text indexes: lower-cased runs of letters/digits,
+ * at least two characters long.
+ */
+final class Tokens {
+
+    private Tokens() {}
+
+    static List<String> of(String text) {
+        if (text == null) return List.of();
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() >= 2) tokens.add(token);
+        }
+        return tokens;
+    }
+}
@@ -1,40 +1,59 @@
 package com.amazin.svelteamazin.service;
 
 import com.amazin.svelteamazin.model.User;
-import com.amazin.svelteamazin.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 @Service
 public class AuthService {
 
     private final UserService users;
+    private final PasswordHasher hasher;
+    // Checked against for unknown usernames, so they cost as much as a wrong password
+    private final String decoyHash;
 
     @Autowired
-    public AuthService(UserService users) {
+    public AuthService(UserService users, PasswordHasher hasher) {
         this.users = users;
+        this.hasher = hasher;
+        this.decoyHash = hasher.hash("decoy-password");
     }
 
     // ---------------------------
     // USER AUTHENTICATION
+    // Completes with null on bad credentials
     // ---------------------------
-    public User authenticateUser(String username, String password) {
+    public CompletableFuture<User> authenticateUser(String username, String password) {
         User u = users.findByUsername(username);
-        if (u == null) return null;
-        if (!u.getPassword().equals(password)) return null;
-        return u;
+        if (u == null) {
+            return hasher.verify(password, decoyHash).thenApply(ignored -> null);
+        }
+        return verify(u, password).thenApply(ok -> ok ? u : null);
     }
 
     // ---------------------------
     // OWNER AUTH
     // (optional: stored in DB)
     // ---------------------------
-    public boolean authenticateOwner(String password) {
+    public CompletableFuture<Boolean> authenticateOwner(String password) {
         // Check database for any user with role OWNER
         User owner = users.findByUsername("owner"); // you can change this
-        if (owner != null && owner.getPassword().equals(password)) {
-            return true;
+        if (owner == null) {
+            return CompletableFuture.completedFuture(false);
         }
-        return false;
+        return verify(owner, password);
+    }
+
+    // Plaintext rows and hashes of an older cost are upgraded once the password is known
+    private CompletableFuture<Boolean> verify(User u, String password) {
+        String stored = u.getPassword();
+        return hasher.verify(password, stored).thenApply(ok -> {
+            if (ok && hasher.needsRehash(stored)) {
+                hasher.runInBackground(() -> users.updatePassword(u.getId(), stored, hasher.hash(password)));
+            }
+            return ok;
+        });
     }
 }
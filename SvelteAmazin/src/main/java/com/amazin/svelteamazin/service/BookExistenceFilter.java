@@ -0,0 +1,181 @@
+package com.amazin.svelteamazin.service;
+
+import com.amazin.svelteamazin.model.BookChangedEvent;
+import com.amazin.svelteamazin.model.BookRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory guard for single-book lookups: a {@link ScalableBloomFilter} of every
+ * ISBN in the catalog, so a request for an ISBN that does not exist gets its 404
+ * without a primary-key query.
+ *
+ * Loaded once the application is ready and added to on every created book. A
+ * Bloom filter cannot forget, so deleted ISBNs keep passing until the next
+ * rebuild, which runs every {@code rebuild-minutes} when books were deleted or the
+ * filter had to grow. A false positive only costs the lookup it would have cost
+ * anyway. Until the first load everything passes.
+ *
+ * Metrics: {@code amazin.isbn.filter.saved} (lookups answered from memory),
+ * {@code amazin.isbn.filter.false.positives} (passed, then not found), and as
+ * gauges the observed and expected false-positive rates and the number of ISBNs
+ * held ({@code amazin.isbn.filter.size}).
+ */
+@Service
+public class BookExistenceFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(BookExistenceFilter.class);
+
+    private final BookRepository books;
+    private final double falsePositiveRate;
+    private final Counter saved;
+    private final Counter falsePositives;
+    private volatile ScalableBloomFilter filter;
+    // ISBNs created while a rebuild is loading, replayed into the new filter; null otherwise
+    private volatile Set<String> createdDuringRebuild;
+    private final AtomicLong deletedSinceRebuild = new AtomicLong();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "isbn-filter-rebuild");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public BookExistenceFilter(BookRepository books, MeterRegistry registry,
+                               @Value("${app.isbn-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                               @Value("${app.isbn-filter.rebuild-minutes:60}") long rebuildMinutes) {
+        this.books = books;
+        this.falsePositiveRate = falsePositiveRate;
+        this.saved = Counter.builder("amazin.isbn.filter.saved")
+                .description("Unknown-ISBN lookups answered from the Bloom filter without a query")
+                .register(registry);
+        this.falsePositives = Counter.builder("amazin.isbn.filter.false.positives")
+                .description("Lookups the Bloom filter passed that found no book")
+                .register(registry);
+        Gauge.builder("amazin.isbn.filter.false.positive.rate", this, BookExistenceFilter::getObservedFalsePositiveRate)
+                .description("Share of unknown-ISBN lookups the filter let through")
+                .register(registry);
+        Gauge.builder("amazin.isbn.filter.expected.false.positive.rate", this, BookExistenceFilter::getExpectedFalsePositiveRate)
+                .description("False-positive rate expected from the filter's fill")
+                .register(registry);
+        Gauge.builder("amazin.isbn.filter.size", this, BookExistenceFilter::getSize)
+                .description("ISBNs added to the Bloom filter since its last rebuild, deleted books included")
+                .register(registry);
+        if (rebuildMinutes > 0) {
+            scheduler.scheduleWithFixedDelay(this::rebuildIfStale, rebuildMinutes, rebuildMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    /**
+     * False only if no book with this ISBN exists; the caller can answer 404 directly.
+     * When true and the lookup then finds nothing, call {@link #recordFalsePositive()}.
+     */
+    public boolean mightExist(String isbn) {
+        ScalableBloomFilter current = filter;
+        if (current == null || current.mightContain(isbn)) return true;
+        saved.increment();
+        return false;
+    }
+
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    // Added as soon as the row is written, so the book is never refused while its transaction commits
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.kind() == BookChangedEvent.Kind.CREATED) {
+            add(event.book().getIsbn());
+        } else if (event.kind() == BookChangedEvent.Kind.DELETED) {
+            deletedSinceRebuild.incrementAndGet();
+        }
+    }
+
+    // Added again after commit: a rebuild that started before the commit could not see the row
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onBookCommitted(BookChangedEvent event) {
+        if (event.kind() == BookChangedEvent.Kind.CREATED) {
+            add(event.book().getIsbn());
+        }
+    }
+
+    /** Replaces the filter with one built from the current catalog, dropping deleted ISBNs. */
+    public synchronized void rebuild() {
+        Set<String> pending = ConcurrentHashMap.newKeySet();
+        createdDuringRebuild = pending;
+        try {
+            long deleted = deletedSinceRebuild.get();
+            List<String> isbns = books.findAllIsbns();
+            // Headroom so books created before the next rebuild rarely force a second layer
+            ScalableBloomFilter next = new ScalableBloomFilter(Math.max(1024, isbns.size() * 2), falsePositiveRate);
+            isbns.forEach(next::add);
+            filter = next;
+            pending.forEach(next::add);
+            deletedSinceRebuild.addAndGet(-deleted);
+        } finally {
+            createdDuringRebuild = null;
+        }
+    }
+
+    /** ISBNs in the filter, including deleted books not yet rebuilt away. */
+    public long getSize() {
+        ScalableBloomFilter current = filter;
+        return current == null ? 0 : current.size();
+    }
+
+    public double getExpectedFalsePositiveRate() {
+        ScalableBloomFilter current = filter;
+        return current == null ? 0 : current.expectedFalsePositiveRate();
+    }
+
+    /** False positives over all lookups of unknown ISBNs the filter has seen. */
+    public double getObservedFalsePositiveRate() {
+        double passed = falsePositives.count();
+        double absent = passed + saved.count();
+        return absent == 0 ? 0 : passed / absent;
+    }
+
+    private void add(String isbn) {
+        Set<String> pending = createdDuringRebuild;
+        if (pending != null) pending.add(isbn);
+        ScalableBloomFilter current = filter;
+        if (current != null) current.add(isbn);
+    }
+
+    private void rebuildIfStale() {
+        ScalableBloomFilter current = filter;
+        if (current == null || (deletedSinceRebuild.get() == 0 && current.layerCount() == 1)) return;
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("ISBN filter rebuild failed; keeping the current filter", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
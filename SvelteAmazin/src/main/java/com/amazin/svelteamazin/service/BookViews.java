@@ -0,0 +1,174 @@
+package com.amazin.svelteamazin.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Approximate view counts per book in fixed memory, for "most viewed" and as a
+ * popularity signal (e.g. cache admission or prefetch).
+ *
+ * Each window is a Count-Min Sketch ({@code depth} rows of {@code width} atomic
+ * counters) plus a small candidate set of heavy hitters: any ISBN whose estimate
+ * beats the current top-K floor. Recording is lock-free; whichever thread pushes the
+ * candidate set past 2K trims it back to K. Estimates never undercount and
+ * overcount by at most about e/width of the window's views per row, with
+ * probability 1 - e^-depth. Windows roll over every {@code window-minutes}; the
+ * previous one is kept for reporting.
+ */
+@Service
+public class BookViews {
+
+    public record BookCount(String isbn, long views) {}
+
+    public record Window(Instant start, Instant end, long views, List<BookCount> top) {}
+
+    private final int depth;
+    private final int mask;
+    private final int topK;
+    private volatile Sketch current;
+    private volatile Sketch previous;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "book-views-rollover");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public BookViews(@Value("${app.book-views.depth:4}") int depth,
+                     @Value("${app.book-views.width:16384}") int width,
+                     @Value("${app.book-views.top-k:100}") int topK,
+                     @Value("${app.book-views.window-minutes:60}") long windowMinutes) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("app.book-views.width must be a power of two: " + width);
+        }
+        this.depth = depth;
+        this.mask = width - 1;
+        this.topK = topK;
+        this.current = new Sketch(Instant.now());
+        if (windowMinutes > 0) {
+            scheduler.scheduleAtFixedRate(this::rollover, windowMinutes, windowMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    public void record(String isbn) {
+        current.add(isbn);
+    }
+
+    /** Estimated views over the current and previous window. */
+    public long estimate(String isbn) {
+        Sketch last = previous;
+        return current.estimate(isbn) + (last == null ? 0 : last.estimate(isbn));
+    }
+
+    /** The window being counted, up to now. */
+    public Window current(int limit) {
+        return current.window(Instant.now(), limit);
+    }
+
+    /** The last completed window, or null before the first rollover. */
+    public Window previous(int limit) {
+        Sketch last = previous;
+        return last == null ? null : last.window(current.start, limit);
+    }
+
+    /** Starts a new window; the current one becomes the previous. */
+    public void rollover() {
+        Sketch next = new Sketch(Instant.now());
+        previous = current;
+        current = next;
+    }
+
+    private final class Sketch {
+        private final Instant start;
+        private final AtomicLongArray counters = new AtomicLongArray(depth * (mask + 1));
+        private final LongAdder views = new LongAdder();
+        // Heavy-hitter candidates with their latest estimate; at most 2 * topK between trims
+        private final Map<String, Long> candidates = new ConcurrentHashMap<>();
+        private final AtomicBoolean trimming = new AtomicBoolean();
+        // Lowest estimate kept by the last trim; anything below cannot be in the top K
+        private volatile long floor;
+
+        private Sketch(Instant start) {
+            this.start = start;
+        }
+
+        private void add(String isbn) {
+            views.increment();
+            int h1 = mix(isbn.hashCode());
+            int h2 = mix(h1 ^ 0x9e3779b9) | 1;
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < depth; row++) {
+                int index = row * (mask + 1) + ((h1 + row * h2) & mask);
+                estimate = Math.min(estimate, counters.incrementAndGet(index));
+            }
+            if (estimate > floor || candidates.containsKey(isbn)) {
+                candidates.put(isbn, estimate);
+                if (candidates.size() > 2 * topK && trimming.compareAndSet(false, true)) {
+                    try {
+                        trim();
+                    } finally {
+                        trimming.set(false);
+                    }
+                }
+            }
+        }
+
+        private long estimate(String isbn) {
+            int h1 = mix(isbn.hashCode());
+            int h2 = mix(h1 ^ 0x9e3779b9) | 1;
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < depth; row++) {
+                estimate = Math.min(estimate, counters.get(row * (mask + 1) + ((h1 + row * h2) & mask)));
+            }
+            return estimate;
+        }
+
+        private void trim() {
+            List<Map.Entry<String, Long>> ranked = new ArrayList<>(candidates.entrySet());
+            if (ranked.size() <= topK) return;
+            ranked.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+            floor = ranked.get(topK - 1).getValue();
+            for (Map.Entry<String, Long> entry : ranked.subList(topK, ranked.size())) {
+                candidates.remove(entry.getKey(), entry.getValue());
+            }
+        }
+
+        private Window window(Instant end, int limit) {
+            // Re-estimate: a candidate's stored value is from its last view
+            List<BookCount> top = candidates.keySet().stream()
+                    .map(isbn -> new BookCount(isbn, estimate(isbn)))
+                    .sorted(Comparator.comparingLong(BookCount::views).reversed().thenComparing(BookCount::isbn))
+                    .limit(Math.min(limit, topK))
+                    .toList();
+            return new Window(start, end, views.sum(), top);
+        }
+    }
+
+    // Murmur3 finalizer
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,432 @@
+package com.amazin.svelteamazin.service;
+
+import com.amazin.svelteamazin.model.BookChangedEvent;
+import com.amazin.svelteamazin.model.BookRepository;
+import com.amazin.svelteamazin.model.BookSummary;
+import com.amazin.svelteamazin.model.CartItem;
+import com.amazin.svelteamazin.repository.CartItemRepository;
+import com.amazin.svelteamazin.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Carts held in memory and written behind to {@code cart_items}.
+ *
+ * Carts are sharded by user id; each shard is guarded by its own lock, so users
+ * only contend with the few others in their shard. A cart is loaded from the
+ * table on first use (so carts survive a restart) and every change is recorded
+ * as the latest quantity per user and ISBN, which the flusher writes every
+ * {@code flush-ms} in one transaction (falling back to one per cart if that fails,
+ * so one bad cart cannot hold back the rest). Lines for books deleted in the
+ * meantime are dropped rather than written. Checkout calls {@link #flush(Long)} first,
+ * so the table is complete before it is read; changes made while it runs stay in
+ * memory until it ends, so they are neither written under it nor cleared by it.
+ * Changes made less than {@code flush-ms} before a crash are lost; a clean shutdown
+ * flushes them.
+ *
+ * Book details shown in cart responses come from a snapshot kept current by
+ * committed book writes, so a cart read needs no query.
+ */
+@Service
+public class CartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CartStore.class);
+
+    private static final class Cart {
+        // Insertion order = the order lines were added, as with the table's ids
+        private final LinkedHashMap<String, Integer> lines = new LinkedHashMap<>();
+        private long lastUsed;
+    }
+
+    private static final class Shard {
+        // Guarded by this
+        private final Map<Long, Cart> carts = new HashMap<>();
+        // Latest quantity per user and ISBN not yet written (in first-change order); 0 means delete
+        private final Map<Long, Map<String, Integer>> dirty = new HashMap<>();
+        // Users whose checkout has flushed and not yet finished; the flusher leaves their changes alone
+        private final Set<Long> checkingOut = new HashSet<>();
+    }
+
+    private final CartItemRepository cartItems;
+    private final BookRepository books;
+    private final UserRepository users;
+    private final TransactionTemplate writes;
+    private final Shard[] shards;
+    private final long idleMillis;
+    private final Map<String, BookSummary> snapshots = new ConcurrentHashMap<>();
+    // Serialises writers so a flush never overtakes an earlier one for the same line
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cart-store-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public CartStore(CartItemRepository cartItems, BookRepository books, UserRepository users,
+                     PlatformTransactionManager transactionManager,
+                     @Value("${app.cart-store.shards:16}") int shards,
+                     @Value("${app.cart-store.flush-ms:500}") long flushMillis,
+                     @Value("${app.cart-store.idle-minutes:30}") long idleMinutes) {
+        this.cartItems = cartItems;
+        this.books = books;
+        this.users = users;
+        this.writes = new TransactionTemplate(transactionManager);
+        // Own transaction, so a checkout that rolls back keeps the cart it flushed
+        this.writes.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) this.shards[i] = new Shard();
+        this.idleMillis = TimeUnit.MINUTES.toMillis(idleMinutes);
+        flusher.scheduleWithFixedDelay(this::flushAll, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * ISBN to quantity, in the order the lines were added.
+     */
+    public Map<String, Integer> get(Long userId) {
+        Shard shard = shardOf(userId);
+        Cart cart = load(userId);
+        synchronized (shard) {
+            return new LinkedHashMap<>(cart.lines);
+        }
+    }
+
+    /**
+     * Sets the quantity of one line (0 removes it) and returns the updated cart.
+     */
+    public Map<String, Integer> set(Long userId, String isbn, int quantity) {
+        return setAll(userId, Map.of(isbn, quantity));
+    }
+
+    /**
+     * Applies several line quantities at once (0 removes a line), so readers never see
+     * half of the batch, and returns the updated cart.
+     */
+    public Map<String, Integer> setAll(Long userId, Map<String, Integer> quantities) {
+        Shard shard = shardOf(userId);
+        Cart cart = load(userId);
+        synchronized (shard) {
+            Map<String, Integer> dirty = null;
+            for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+                String isbn = line.getKey();
+                int quantity = line.getValue();
+                if (quantity == 0) {
+                    if (cart.lines.remove(isbn) == null) continue;
+                } else {
+                    cart.lines.put(isbn, quantity);
+                }
+                if (dirty == null) dirty = shard.dirty.computeIfAbsent(userId, k -> new LinkedHashMap<>());
+                dirty.put(isbn, quantity);
+            }
+            return new LinkedHashMap<>(cart.lines);
+        }
+    }
+
+    /**
+     * Writes this user's pending changes now, waiting for any flush already under way.
+     * Inside a transaction, the user's later changes are not written until it completes,
+     * so the rows it reads are exactly the rows it may delete.
+     */
+    public void flush(Long userId) {
+        Shard shard = shardOf(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (shard) {
+                shard.checkingOut.add(userId);
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    synchronized (shard) {
+                        shard.checkingOut.remove(userId);
+                    }
+                }
+            });
+        }
+        flushLock.lock();
+        try {
+            Map<String, Integer> pending;
+            synchronized (shard) {
+                pending = shard.dirty.remove(userId);
+            }
+            if (pending != null) write(Map.of(userId, pending));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the given lines (the ones checkout read and deleted) from the in-memory
+     * cart once the surrounding transaction commits; nothing changes if it rolls back.
+     * Lines changed since the flush keep their new quantity and are written as new rows.
+     */
+    public void clear(Long userId, Collection<String> consumed) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            clearNow(userId, consumed);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                clearNow(userId, consumed);
+            }
+        });
+    }
+
+    /**
+     * Catches the in-memory carts up with rows deleted behind the store's back, e.g.
+     * expired by CartSweeper: user id to the ISBNs of the deleted lines. A cart with
+     * no unwritten changes is forgotten and reloads on next access. A cart edited in
+     * the meantime drops the deleted lines its pending changes do not touch, which
+     * leaves it as its rows will be once those changes are written.
+     */
+    public void evict(Map<Long, ? extends Collection<String>> deletedLines) {
+        // Changes a running flush has taken out of dirty are written (or requeued) before this looks
+        flushLock.lock();
+        try {
+            deletedLines.forEach((userId, isbns) -> {
+                Shard shard = shardOf(userId);
+                synchronized (shard) {
+                    Map<String, Integer> dirty = shard.dirty.get(userId);
+                    if (dirty == null) {
+                        shard.carts.remove(userId);
+                        return;
+                    }
+                    Cart cart = shard.carts.get(userId);
+                    if (cart == null) return;
+                    for (String isbn : isbns) {
+                        if (!dirty.containsKey(isbn)) cart.lines.remove(isbn);
+                    }
+                }
+            });
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Catalog details for the given ISBNs, loading any not yet in the snapshot in one query.
+     * Books that no longer exist are left out.
+     */
+    public Map<String, BookSummary> books(Collection<String> isbns) {
+        Map<String, BookSummary> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String isbn : isbns) {
+            BookSummary book = snapshots.get(isbn);
+            if (book != null) found.put(isbn, book); else missing.add(isbn);
+        }
+        if (!missing.isEmpty()) {
+            for (BookSummary book : books.findSummariesByIsbnIn(missing)) {
+                snapshots.put(book.isbn(), book);
+                found.put(book.isbn(), book);
+            }
+        }
+        return found;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        String isbn = event.book().getIsbn();
+        if (event.kind() == BookChangedEvent.Kind.DELETED) {
+            snapshots.remove(isbn);
+        } else {
+            // Only books already in someone's cart are tracked
+            snapshots.computeIfPresent(isbn, (k, old) -> BookSummary.of(event.book()));
+        }
+    }
+
+    /** Cart lines changed in memory but not yet written. */
+    public int getPending() {
+        int pending = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                for (Map<String, Integer> lines : shard.dirty.values()) pending += lines.size();
+            }
+        }
+        return pending;
+    }
+
+    private Cart load(Long userId) {
+        Shard shard = shardOf(userId);
+        synchronized (shard) {
+            Cart cart = shard.carts.get(userId);
+            if (cart != null) {
+                cart.lastUsed = System.currentTimeMillis();
+                return cart;
+            }
+        }
+        // Query outside the lock; a cart with pending changes is never evicted, so the rows are current
+        Cart loaded = new Cart();
+        for (CartItem item : cartItems.findByUserIdOrderById(userId)) {
+            loaded.lines.put(item.getBook().getIsbn(), item.getQuantity());
+        }
+        synchronized (shard) {
+            Cart cart = shard.carts.putIfAbsent(userId, loaded);
+            cart = cart != null ? cart : loaded;
+            cart.lastUsed = System.currentTimeMillis();
+            return cart;
+        }
+    }
+
+    private void clearNow(Long userId, Collection<String> consumed) {
+        Shard shard = shardOf(userId);
+        synchronized (shard) {
+            Cart cart = shard.carts.get(userId);
+            if (cart == null) return;
+            Map<String, Integer> dirty = shard.dirty.getOrDefault(userId, Map.of());
+            for (String isbn : consumed) {
+                if (!dirty.containsKey(isbn)) cart.lines.remove(isbn);
+            }
+        }
+    }
+
+    private void flushAll() {
+        flushLock.lock();
+        try {
+            Map<Long, Map<String, Integer>> pending = new HashMap<>();
+            long idleBefore = System.currentTimeMillis() - idleMillis;
+            for (Shard shard : shards) {
+                synchronized (shard) {
+                    Iterator<Map.Entry<Long, Map<String, Integer>>> dirty = shard.dirty.entrySet().iterator();
+                    while (dirty.hasNext()) {
+                        Map.Entry<Long, Map<String, Integer>> entry = dirty.next();
+                        if (shard.checkingOut.contains(entry.getKey())) continue;
+                        pending.put(entry.getKey(), entry.getValue());
+                        dirty.remove();
+                    }
+                    // Idle carts are dropped; their rows bring them back on next use
+                    Iterator<Map.Entry<Long, Cart>> carts = shard.carts.entrySet().iterator();
+                    while (carts.hasNext()) {
+                        Map.Entry<Long, Cart> entry = carts.next();
+                        Long userId = entry.getKey();
+                        if (entry.getValue().lastUsed < idleBefore && !pending.containsKey(userId)
+                                && !shard.dirty.containsKey(userId)) {
+                            carts.remove();
+                        }
+                    }
+                }
+            }
+            if (!pending.isEmpty()) write(pending);
+        } catch (RuntimeException e) {
+            log.warn("Could not write cart changes; retrying on the next flush", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(Map<Long, Map<String, Integer>> pending) {
+        try {
+            writeCarts(pending);
+        } catch (RuntimeException e) {
+            if (pending.size() == 1) {
+                requeue(pending);
+                throw e;
+            }
+            log.warn("Could not write {} carts together; writing them one by one", pending.size(), e);
+            RuntimeException failure = null;
+            for (Map.Entry<Long, Map<String, Integer>> cart : pending.entrySet()) {
+                Map<Long, Map<String, Integer>> single = Map.of(cart.getKey(), cart.getValue());
+                try {
+                    writeCarts(single);
+                } catch (RuntimeException cartFailure) {
+                    requeue(single);
+                    if (failure == null) failure = cartFailure; else failure.addSuppressed(cartFailure);
+                }
+            }
+            if (failure != null) throw failure;
+        }
+    }
+
+    private void writeCarts(Map<Long, Map<String, Integer>> pending) {
+        Map<Long, List<String>> dropped = new HashMap<>();
+        writes.executeWithoutResult(status -> {
+            dropped.clear();
+            Map<Long, Map<String, CartItem>> rows = new HashMap<>();
+            for (CartItem item : cartItems.findByUserIdIn(pending.keySet())) {
+                rows.computeIfAbsent(item.getUser().getId(), k -> new HashMap<>()).put(item.getBook().getIsbn(), item);
+            }
+            // A line added for a book deleted since would fail the insert; check the new ISBNs in one query
+            List<String> added = new ArrayList<>();
+            pending.forEach((userId, lines) -> lines.forEach((isbn, quantity) -> {
+                if (quantity != 0 && !rows.getOrDefault(userId, Map.of()).containsKey(isbn)) added.add(isbn);
+            }));
+            Set<String> existing = added.isEmpty() ? Set.of() : new HashSet<>(books.findIsbnsIn(added));
+            // Any edit keeps the whole cart alive for CartSweeper
+            Instant now = Instant.now();
+            rows.values().forEach(lines -> lines.values().forEach(row -> row.setUpdatedAt(now)));
+            List<CartItem> saves = new ArrayList<>();
+            List<CartItem> deletes = new ArrayList<>();
+            pending.forEach((userId, lines) -> lines.forEach((isbn, quantity) -> {
+                CartItem row = rows.getOrDefault(userId, Map.of()).get(isbn);
+                if (quantity == 0) {
+                    if (row != null) deletes.add(row);
+                } else if (row != null) {
+                    row.setQuantity(quantity);
+                    saves.add(row);
+                } else if (existing.contains(isbn)) {
+                    saves.add(new CartItem(users.getReferenceById(userId), books.getReferenceById(isbn), quantity));
+                } else {
+                    dropped.computeIfAbsent(userId, k -> new ArrayList<>()).add(isbn);
+                }
+            }));
+            cartItems.deleteAll(deletes);
+            cartItems.saveAll(saves);
+        });
+        dropped.forEach((userId, isbns) -> {
+            Shard shard = shardOf(userId);
+            synchronized (shard) {
+                Cart cart = shard.carts.get(userId);
+                Map<String, Integer> dirty = shard.dirty.get(userId);
+                for (String isbn : isbns) {
+                    // Unless the line was set again since; that change gets the same check on its flush
+                    if (cart != null && (dirty == null || !dirty.containsKey(isbn))) cart.lines.remove(isbn);
+                }
+            }
+        });
+    }
+
+    // Put failed changes back unless the line has been changed again since
+    private void requeue(Map<Long, Map<String, Integer>> pending) {
+        pending.forEach((userId, lines) -> {
+            Shard shard = shardOf(userId);
+            synchronized (shard) {
+                Map<String, Integer> dirty = shard.dirty.computeIfAbsent(userId, k -> new LinkedHashMap<>());
+                lines.forEach(dirty::putIfAbsent);
+            }
+        });
+    }
+
+    private Shard shardOf(Long userId) {
+        return shards[Math.floorMod(userId.hashCode(), shards.length)];
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flushAll();
+    }
+}
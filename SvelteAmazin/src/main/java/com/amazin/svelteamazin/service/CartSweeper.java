@@ -0,0 +1,141 @@
+package com.amazin.svelteamazin.service;
+
+import com.amazin.svelteamazin.repository.CartItemRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes carts nobody has edited for {@code ttl-days}.
+ *
+ * Each run walks the {@code updated_at} index oldest first and deletes at most
+ * {@code batch-size} rows per statement, each batch in its own short transaction,
+ * pausing {@code pause-ms} between batches so row locks are never held long
+ * against cart edits or checkouts. A run stops after {@code max-batches}; whatever
+ * is left goes in the next one. Rows reclaimed are logged per run and counted in
+ * {@code amazin.cart.sweeper.reclaimed}.
+ */
+@Service
+public class CartSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(CartSweeper.class);
+
+    public record Run(Instant finishedAt, int rows, int carts, int batches, long millis) {}
+
+    private final CartItemRepository cartItems;
+    private final CartStore cartStore;
+    private final Duration ttl;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final int maxBatches;
+    private final Counter reclaimed;
+    private volatile Run lastRun;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cart-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public CartSweeper(CartItemRepository cartItems, CartStore cartStore, MeterRegistry registry,
+                       @Value("${app.cart-sweeper.enabled:true}") boolean enabled,
+                       @Value("${app.cart-sweeper.ttl-days:30}") long ttlDays,
+                       @Value("${app.cart-sweeper.interval-minutes:60}") long intervalMinutes,
+                       @Value("${app.cart-sweeper.batch-size:500}") int batchSize,
+                       @Value("${app.cart-sweeper.pause-ms:100}") long pauseMillis,
+                       @Value("${app.cart-sweeper.max-batches:200}") int maxBatches) {
+        this.cartItems = cartItems;
+        this.cartStore = cartStore;
+        this.ttl = Duration.ofDays(ttlDays);
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+        this.maxBatches = maxBatches;
+        this.reclaimed = Counter.builder("amazin.cart.sweeper.reclaimed")
+                .description("Expired cart rows deleted")
+                .register(registry);
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::sweepSafely, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Deletes up to {@code max-batches} batches of rows last touched before now - ttl.
+     */
+    public Run sweep() {
+        return sweep(Instant.now().minus(ttl));
+    }
+
+    Run sweep(Instant cutoff) {
+        long start = System.nanoTime();
+        int rows = 0;
+        int batches = 0;
+        Set<Long> users = new HashSet<>();
+        while (batches < maxBatches) {
+            List<Object[]> expired = cartItems.findExpired(cutoff, PageRequest.of(0, batchSize));
+            if (expired.isEmpty()) break;
+            List<Long> ids = new ArrayList<>(expired.size());
+            Map<Long, List<String>> lines = new HashMap<>();
+            for (Object[] row : expired) {
+                ids.add((Long) row[0]);
+                lines.computeIfAbsent((Long) row[1], k -> new ArrayList<>()).add((String) row[2]);
+            }
+            cartItems.deleteAllByIdInBatch(ids);
+            cartStore.evict(lines);
+            users.addAll(lines.keySet());
+            rows += ids.size();
+            batches++;
+            reclaimed.increment(ids.size());
+            if (expired.size() < batchSize) break;
+            if (!pause()) break;
+        }
+        Run run = new Run(Instant.now(), rows, users.size(), batches, (System.nanoTime() - start) / 1_000_000);
+        lastRun = run;
+        return run;
+    }
+
+    /** The most recent run, or null before the first one. */
+    public Run getLastRun() {
+        return lastRun;
+    }
+
+    private void sweepSafely() {
+        try {
+            Run run = sweep();
+            log.info("Cart sweep reclaimed {} rows from {} carts in {} batches ({} ms)",
+                    run.rows(), run.carts(), run.batches(), run.millis());
+        } catch (RuntimeException e) {
+            log.warn("Cart sweep failed; retrying next interval", e);
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
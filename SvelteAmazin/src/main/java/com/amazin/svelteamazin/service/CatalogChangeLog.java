@@ -0,0 +1,125 @@
+package com.amazin.svelteamazin.service;
+
+import com.amazin.svelteamazin.model.BookChangedEvent;
+import com.amazin.svelteamazin.model.BookSummary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Versioned log of committed book writes behind GET /api/books/changes, so clients
+ * can apply deltas instead of reloading the catalog.
+ *
+ * The log is compacted: only the latest change per ISBN is kept (deletes as
+ * tombstones), and past {@code app.catalog-changes.max-entries} the oldest entries
+ * are dropped. A client whose version predates what was dropped, or that comes from
+ * a previous run of the server, is told to resync.
+ *
+ * Versions are opaque strings, {@code <run>:<counter>}. The counter restarts with
+ * every run, so the run id is what tells an old client apart: a clock-seeded
+ * counter could not, because writes (e.g. the startup import) can push it past
+ * the wall clock and into the range the next run starts from.
+ */
+@Service
+public class CatalogChangeLog {
+
+    /** {@code book} is null for a tombstone. */
+    public record Change(String version, String isbn, boolean deleted, BookSummary book) {}
+
+    public record Changes(String version, boolean resync, List<Change> changes) {}
+
+    private final String run;
+    private final int maxEntries;
+    private final TreeMap<Long, Change> byVersion = new TreeMap<>();
+    private final Map<String, Long> latestVersion = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long version;
+    // Clients below this version may have missed a dropped entry
+    private long floor;
+
+    public CatalogChangeLog(@Value("${app.catalog-changes.max-entries:5000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        // Start time plus a random part, so two runs started in the same millisecond still differ
+        this.run = Long.toString(System.currentTimeMillis(), 36) + "-"
+                + Integer.toString(ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE), 36);
+    }
+
+    // After commit, so a client never sees a version whose rows are not readable yet
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        boolean deleted = event.kind() == BookChangedEvent.Kind.DELETED;
+        String isbn = event.book().getIsbn();
+        BookSummary book = deleted ? null : BookSummary.of(event.book());
+
+        lock.writeLock().lock();
+        try {
+            version++;
+            Long previous = latestVersion.put(isbn, version);
+            if (previous != null) {
+                byVersion.remove(previous);
+            }
+            byVersion.put(version, new Change(token(version), isbn, deleted, book));
+
+            while (byVersion.size() > maxEntries) {
+                Map.Entry<Long, Change> oldest = byVersion.pollFirstEntry();
+                latestVersion.remove(oldest.getValue().isbn());
+                floor = oldest.getKey();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public String getVersion() {
+        lock.readLock().lock();
+        try {
+            return token(version);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Changes after {@code since}; a null {@code since} just reports the current version.
+     * A version from another run, or one that is not a version at all, means resync.
+     */
+    public Changes since(String since) {
+        long after = counterOf(since);
+        lock.readLock().lock();
+        try {
+            if (after < floor || after > version) {
+                return new Changes(token(version), true, List.of());
+            }
+            return new Changes(token(version), false, new ArrayList<>(byVersion.tailMap(after, false).values()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private String token(long counter) {
+        return run + ":" + counter;
+    }
+
+    // -1 unless the version was handed out by this run
+    private long counterOf(String since) {
+        if (since == null || since.length() <= run.length() + 1
+                || !since.startsWith(run) || since.charAt(run.length()) != ':') {
+            return -1;
+        }
+        try {
+            return Long.parseLong(since.substring(run.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.amazin.svelteamazin.service;
+
+import com.amazin.svelteamazin.model.BookChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialised (plain and gzip) bytes of the unsorted catalog listings, so GET /api/books
+ * does no database work and no Jackson work once a variant is warm.
+ *
+ * Every committed book write bumps a version and schedules a background re-render
+ * of each cached variant; until it finishes, requests get the previous bytes
+ * (stale-while-revalidate). Only a variant's first render blocks, and concurrent
+ * requests for it share that one render. Each listing carries the
+ * {@link CatalogChangeLog} version read before it was loaded, so a client that syncs
+ * from it replays whatever the listing may have missed.
+ */
+@Service
+public class CatalogListingCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogListingCache.class);
+
+    public record Listing(byte[] json, byte[] gzip, String catalogVersion) {}
+
+    private record Rendered(long version, Listing listing) {}
+
+    private final class Variant {
+        private final String key;
+        private final Supplier<?> loader;
+        private final AtomicReference<Rendered> current = new AtomicReference<>();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Variant(String key, Supplier<?> loader) {
+            this.key = key;
+            this.loader = loader;
+        }
+
+        private Listing get() {
+            Rendered rendered = current.get();
+            if (rendered == null) {
+                synchronized (this) {
+                    rendered = current.get();
+                    if (rendered == null) {
+                        return refresh();
+                    }
+                }
+            }
+            if (rendered.version() != version.get()) {
+                refreshInBackground();
+            }
+            return rendered.listing();
+        }
+
+        // One re-render per variant at a time; writes during it are caught by the re-check
+        private void refreshInBackground() {
+            if (!refreshing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                refresher.execute(() -> {
+                    boolean rendered = false;
+                    try {
+                        refresh();
+                        rendered = true;
+                    } catch (RuntimeException e) {
+                        // Requests keep the old bytes and retry on the next one
+                        log.warn("Could not re-render catalog listing '{}'", key, e);
+                    } finally {
+                        refreshing.set(false);
+                    }
+                    if (rendered && current.get().version() != version.get()) {
+                        refreshInBackground();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                refreshing.set(false);
+            }
+        }
+
+        // Read both versions before loading: a write committed mid-load leaves the result stale
+        private Listing refresh() {
+            long seen = version.get();
+            String catalogVersion = changeLog.getVersion();
+            Listing listing = render(loader.get(), catalogVersion);
+            current.accumulateAndGet(new Rendered(seen, listing),
+                    (old, fresh) -> old != null && old.version() > fresh.version() ? old : fresh);
+            return listing;
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final CatalogChangeLog changeLog;
+    private final int maxVariants;
+    private final Map<String, Variant> variants = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "catalog-listing-cache");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public CatalogListingCache(ObjectMapper objectMapper, CatalogChangeLog changeLog,
+                               @Value("${app.catalog-cache.max-variants:16}") int maxVariants) {
+        this.objectMapper = objectMapper;
+        this.changeLog = changeLog;
+        this.maxVariants = maxVariants;
+    }
+
+    /**
+     * Bytes for the listing named {@code key}. The loader is remembered so the variant
+     * can be re-rendered after writes; past {@code max-variants} keys, listings are
+     * rendered per request instead of cached.
+     */
+    public Listing get(String key, Supplier<?> loader) {
+        Variant variant = variants.get(key);
+        if (variant == null) {
+            if (variants.size() >= maxVariants) {
+                String catalogVersion = changeLog.getVersion();
+                return render(loader.get(), catalogVersion);
+            }
+            variant = variants.computeIfAbsent(key, k -> new Variant(k, loader));
+        }
+        return variant.get();
+    }
+
+    // After commit, so the re-render reads the new rows (inventory changes at checkout included)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        version.incrementAndGet();
+        // A burst of writes (an import, a multi-book checkout) coalesces into one re-render per variant
+        variants.values().forEach(Variant::refreshInBackground);
+    }
+
+    private Listing render(Object body, String catalogVersion) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+                out.write(json);
+            }
+            return new Listing(json, gzip.toByteArray(), catalogVersion);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialise catalog listing", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdown();
+    }
+}
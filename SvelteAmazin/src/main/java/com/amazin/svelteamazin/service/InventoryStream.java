@@ -0,0 +1,292 @@
+package com.amazin.svelteamazin.service;
+
+import com.amazin.svelteamazin.model.Book;
+import com.amazin.svelteamazin.model.BookChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live price/inventory updates behind GET /api/books/stream (Server-Sent Events).
+ *
+ * Connections are servlet-async, so idle subscribers hold no request thread.
+ * Committed writes are fanned out on a small scheduler: each subscriber gets a
+ * bounded buffer keyed by ISBN, so repeated changes to a book collapse to the
+ * latest one and, when the buffer is full, the oldest pending book is dropped.
+ * A buffer is flushed at most once per {@code coalesce-ms}.
+ *
+ * The scheduler never writes to a socket. Each flush (heartbeats included) is
+ * its own task on a separate sender pool, so a client that stops reading only
+ * ties up its own send; a send still running after {@code send-timeout-ms}
+ * gets the subscriber dropped.
+ */
+@Service
+public class InventoryStream {
+
+    public record InventoryUpdate(String isbn, double price, int inventory, boolean deleted) {}
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<String> isbns;
+        // Guarded by this; insertion order = oldest pending first
+        private final LinkedHashMap<String, InventoryUpdate> pending = new LinkedHashMap<>();
+        private boolean keepAliveDue;
+        private boolean flushScheduled;
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter, Set<String> isbns) {
+            this.emitter = emitter;
+            this.isbns = isbns;
+        }
+
+        private void offer(InventoryUpdate update) {
+            synchronized (this) {
+                pending.remove(update.isbn());
+                pending.put(update.isbn(), update);
+                if (pending.size() > bufferSize) {
+                    Iterator<String> oldest = pending.keySet().iterator();
+                    oldest.next();
+                    oldest.remove();
+                    dropped.incrementAndGet();
+                }
+                if (flushScheduled || closed) return;
+                flushScheduled = true;
+            }
+            scheduler.schedule(this::startFlush, coalesceMillis, TimeUnit.MILLISECONDS);
+        }
+
+        // A subscriber mid-flush gets its keep-alive with the next batch instead
+        private void keepAlive() {
+            synchronized (this) {
+                keepAliveDue = true;
+                if (flushScheduled || closed) return;
+                flushScheduled = true;
+            }
+            startFlush();
+        }
+
+        private void startFlush() {
+            if (closed) return;
+            Future<?> send = senders.submit(this::flush);
+            scheduler.schedule(() -> {
+                if (!send.isDone()) stalled(send);
+            }, sendTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        // Only one flush per subscriber runs at a time; offers during a slow send just coalesce
+        private void flush() {
+            List<InventoryUpdate> batch;
+            boolean keepAlive;
+            synchronized (this) {
+                batch = new ArrayList<>(pending.values());
+                pending.clear();
+                keepAlive = keepAliveDue;
+                keepAliveDue = false;
+            }
+            try {
+                for (InventoryUpdate update : batch) {
+                    emitter.send(SseEmitter.event().name("inventory").data(update, MediaType.APPLICATION_JSON));
+                }
+                if (keepAlive) {
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; the emitter callbacks unsubscribe it
+                emitter.completeWithError(e);
+                return;
+            }
+            synchronized (this) {
+                if (pending.isEmpty() || closed) {
+                    flushScheduled = false;
+                    return;
+                }
+            }
+            scheduler.schedule(this::startFlush, coalesceMillis, TimeUnit.MILLISECONDS);
+        }
+
+        // Runs on the scheduler, so it must not touch the emitter: the stuck send holds its lock.
+        // The interrupted send fails and completes the emitter from the sender thread.
+        private void stalled(Future<?> send) {
+            closed = true;
+            stalledSends.incrementAndGet();
+            unsubscribe(this);
+            send.cancel(true);
+        }
+    }
+
+    private final int bufferSize;
+    private final long coalesceMillis;
+    private final long timeoutMillis;
+    private final long sendTimeoutMillis;
+    private final int maxIsbns;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService senders;
+
+    // Subscribers without an ISBN filter, and the filtered ones indexed by ISBN
+    private final Set<Subscriber> everything = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<Subscriber>> byIsbn = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong stalledSends = new AtomicLong();
+    // Last price/inventory pushed per ISBN, so edits to other fields are not broadcast
+    private final Map<String, InventoryUpdate> lastPublished = new ConcurrentHashMap<>();
+
+    public InventoryStream(@Value("${app.inventory-stream.buffer-size:256}") int bufferSize,
+                           @Value("${app.inventory-stream.coalesce-ms:250}") long coalesceMillis,
+                           @Value("${app.inventory-stream.timeout-minutes:30}") long timeoutMinutes,
+                           @Value("${app.inventory-stream.heartbeat-seconds:30}") long heartbeatSeconds,
+                           @Value("${app.inventory-stream.max-isbns:100}") int maxIsbns,
+                           @Value("${app.inventory-stream.send-timeout-ms:5000}") long sendTimeoutMillis,
+                           @Value("${app.inventory-stream.threads:2}") int threads) {
+        this.bufferSize = bufferSize;
+        this.coalesceMillis = coalesceMillis;
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.maxIsbns = maxIsbns;
+        AtomicInteger threadIds = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread t = new Thread(r, "inventory-stream-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.scheduler = executor;
+        // Unbounded on purpose: at most one send per subscriber is in flight, and a stalled
+        // subscriber is dropped, so it holds a thread only until its socket write gives up
+        AtomicInteger senderIds = new AtomicInteger();
+        this.senders = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "inventory-stream-send-" + senderIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // Keeps proxies from closing idle streams and surfaces dead clients
+        scheduler.scheduleAtFixedRate(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Opens a stream of updates for the given ISBNs, or for every book when none are given.
+     */
+    public SseEmitter subscribe(Collection<String> isbns) {
+        Set<String> filter = isbns == null ? Set.of() : Set.copyOf(isbns);
+        if (filter.size() > maxIsbns) {
+            throw new IllegalArgumentException("At most " + maxIsbns + " ISBNs per stream");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, filter);
+        if (filter.isEmpty()) {
+            everything.add(subscriber);
+        } else {
+            for (String isbn : filter) {
+                byIsbn.compute(isbn, (k, watching) -> {
+                    Set<Subscriber> set = watching != null ? watching : ConcurrentHashMap.newKeySet();
+                    set.add(subscriber);
+                    return set;
+                });
+            }
+        }
+        subscribers.incrementAndGet();
+
+        Runnable unsubscribe = () -> unsubscribe(subscriber);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        Book book = event.book();
+        boolean deleted = event.kind() == BookChangedEvent.Kind.DELETED;
+        InventoryUpdate update = new InventoryUpdate(book.getIsbn(), book.getPrice(),
+                deleted ? 0 : book.getInventory(), deleted);
+
+        InventoryUpdate previous = deleted ? lastPublished.remove(update.isbn()) : lastPublished.put(update.isbn(), update);
+        if (update.equals(previous) || subscribers.get() == 0) return;
+        // Hand off so the committing request thread never walks the subscriber sets
+        scheduler.execute(() -> fanOut(update));
+    }
+
+    private void fanOut(InventoryUpdate update) {
+        for (Subscriber subscriber : everything) {
+            subscriber.offer(update);
+        }
+        Set<Subscriber> watching = byIsbn.get(update.isbn());
+        if (watching != null) {
+            for (Subscriber subscriber : watching) {
+                subscriber.offer(update);
+            }
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        boolean removed;
+        if (subscriber.isbns.isEmpty()) {
+            removed = everything.remove(subscriber);
+        } else {
+            boolean[] found = {false};
+            for (String isbn : subscriber.isbns) {
+                // Atomic per ISBN so a concurrent subscribe never lands in a set being discarded
+                byIsbn.computeIfPresent(isbn, (k, watching) -> {
+                    found[0] |= watching.remove(subscriber);
+                    return watching.isEmpty() ? null : watching;
+                });
+            }
+            removed = found[0];
+        }
+        if (removed) subscribers.decrementAndGet();
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : everything) {
+            subscriber.keepAlive();
+        }
+        // A subscriber watching several ISBNs is visited once per ISBN; repeat calls just coalesce
+        for (Set<Subscriber> watching : byIsbn.values()) {
+            for (Subscriber subscriber : watching) {
+                subscriber.keepAlive();
+            }
+        }
+    }
+
+    public int getSubscribers() {
+        return subscribers.get();
+    }
+
+    /** Pending updates discarded because a subscriber's buffer was full. */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /** Subscribers dropped because a send did not finish within the send timeout. */
+    public long getStalledSends() {
+        return stalledSends.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+    }
+}
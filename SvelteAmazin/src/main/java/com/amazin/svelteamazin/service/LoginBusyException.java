@@ -0,0 +1,22 @@
+package com.amazin.svelteamazin.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * 503 + Retry-After when too many password verifications are already queued.
+ */
+public class LoginBusyException extends ResponseStatusException {
+
+    public LoginBusyException() {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "Too many logins in progress, retry shortly");
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return headers;
+    }
+}
@@ -0,0 +1,110 @@
+package com.amazin.svelteamazin.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Feeds committed order ids to one background thread in batches, for the read
+ * models kept alongside the orders table (sales rollups, order analytics).
+ *
+ * Ids are queued by {@link #offer(Long)} and handed to {@code apply} up to
+ * {@code batchSize} at a time. An id that does not fit in the queue is not kept;
+ * instead the thread runs {@code catchUp}, which must find every order not applied
+ * yet. A failed batch is recovered the same way after {@code retryMillis}, and a
+ * catch-up also runs first, for orders placed while the application was down.
+ * Both callbacks run on the consumer thread only, so they never overlap, and both
+ * must skip orders already applied. The list passed to {@code apply} is reused for
+ * the next batch, so it must not be kept.
+ */
+public final class OrderEventConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderEventConsumer.class);
+
+    private final String name;
+    private final int batchSize;
+    private final long retryMillis;
+    private final Runnable catchUp;
+    private final Consumer<List<Long>> apply;
+    private final BlockingQueue<Long> queue;
+    // Set when an id could not be queued (or a batch failed); the thread then catches up
+    private final AtomicBoolean missed = new AtomicBoolean(true);
+    private final Thread thread;
+
+    public OrderEventConsumer(String name, int queueCapacity, int batchSize, long retryMillis,
+                              Runnable catchUp, Consumer<List<Long>> apply) {
+        this.name = name;
+        this.batchSize = batchSize;
+        this.retryMillis = retryMillis;
+        this.catchUp = catchUp;
+        this.apply = apply;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.thread = new Thread(this::consume, name);
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the consumer thread. Call it once the application is ready rather than
+     * from a constructor: the first catch-up queries the database.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    public void offer(Long orderId) {
+        if (!queue.offer(orderId)) {
+            missed.set(true);
+        }
+    }
+
+    /** Committed orders queued but not yet applied. */
+    public int getBacklog() {
+        return queue.size();
+    }
+
+    /**
+     * Interrupts the thread and waits up to {@code joinMillis} for an in-flight batch to
+     * give up, so it does not run on after the data source has closed.
+     */
+    public void stop(long joinMillis) {
+        thread.interrupt();
+        try {
+            thread.join(joinMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void consume() {
+        List<Long> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (missed.getAndSet(false)) {
+                    catchUp.run();
+                    continue;
+                }
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                apply.accept(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("{}: could not apply orders; catching up from the orders table", name, e);
+                missed.set(true);
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+}
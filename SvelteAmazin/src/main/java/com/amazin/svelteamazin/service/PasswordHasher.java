@@ -0,0 +1,140 @@
+package com.amazin.svelteamazin.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Salted PBKDF2-HMAC-SHA256 password hashes, stored as
+ * {@code pbkdf2-sha256$<iterations>$<salt>$<hash>} so the cost can be raised later
+ * without invalidating existing rows.
+ *
+ * Verification is deliberately slow, so it runs on its own small pool instead of on
+ * request threads: a login storm queues here (up to {@code queue-capacity}) and is
+ * then refused with 503, while browsing traffic keeps its Tomcat threads. The queue
+ * depth is published as {@code amazin.password.hashing.queued}.
+ */
+@Service
+public class PasswordHasher {
+
+    private static final String PREFIX = "pbkdf2-sha256$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadPoolExecutor executor;
+
+    public PasswordHasher(MeterRegistry registry,
+                          @Value("${app.password-hashing.iterations:310000}") int iterations,
+                          @Value("${app.password-hashing.threads:2}") int threads,
+                          @Value("${app.password-hashing.queue-capacity:64}") int queueCapacity) {
+        this.iterations = iterations;
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "password-hasher-" + threadIds.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        Gauge.builder("amazin.password.hashing.queued", executor, pool -> pool.getQueue().size())
+                .description("Password verifications and re-hashes waiting for a hashing thread")
+                .register(registry);
+    }
+
+    /**
+     * Hashes on the calling thread; meant for account creation, not the login path.
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + base64.encodeToString(salt) + "$"
+                + base64.encodeToString(derive(password, salt, iterations));
+    }
+
+    /**
+     * Checks {@code password} against a stored hash (or a legacy plaintext value) on
+     * the hashing pool. Fails with {@link LoginBusyException} when the queue is full.
+     */
+    public CompletableFuture<Boolean> verify(String password, String stored) {
+        try {
+            return CompletableFuture.supplyAsync(() -> matches(password, stored), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new LoginBusyException());
+        }
+    }
+
+    /**
+     * Runs {@code task} on the hashing pool, e.g. to re-hash after a login. It takes a
+     * slot in the same bounded queue as verifications and is dropped, not waited
+     * for, when that queue is full.
+     */
+    public void runInBackground(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Picked up again on the next successful login
+        }
+    }
+
+    boolean matches(String password, String stored) {
+        if (stored == null) return false;
+        if (!stored.startsWith(PREFIX)) {
+            // Legacy plaintext row
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3) return false;
+        Base64.Decoder base64 = Base64.getDecoder();
+        try {
+            byte[] expected = base64.decode(parts[2]);
+            byte[] actual = derive(password, base64.decode(parts[1]), Integer.parseInt(parts[0]));
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            // Corrupt row (bad Base64, iteration count or empty salt): nothing can match it
+            return false;
+        }
+    }
+
+    /**
+     * True for plaintext rows and hashes made with a different iteration count.
+     */
+    public boolean needsRehash(String stored) {
+        return stored == null || !stored.startsWith(PREFIX + iterations + "$");
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 is unavailable", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,255 @@
+package com.amazin.svelteamazin.service;
+
+import com.amazin.svelteamazin.model.DailySales;
+import com.amazin.svelteamazin.model.HourlyOrders;
+import com.amazin.svelteamazin.model.OrderPlacedEvent;
+import com.amazin.svelteamazin.repository.DailySalesRepository;
+import com.amazin.svelteamazin.repository.HourlyOrdersRepository;
+import com.amazin.svelteamazin.repository.OrderRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pre-aggregated sales for the owner dashboard: revenue and units per ISBN per day
+ * ({@code sales_daily}) and orders per hour ({@code orders_hourly}).
+ *
+ * Committed orders are folded in by the single thread of an {@link OrderEventConsumer},
+ * in batches, so rollup rows are never updated concurrently. Each order's
+ * {@code rolled_up} flag is set in the same transaction as its increments, which
+ * makes counting idempotent: an order is added exactly once whether it arrives as an
+ * event, in a catch-up scan for orders not yet rolled up, or through {@link #rebuild()}.
+ * Orders still queued are published as {@code amazin.sales.rollups.backlog}.
+ */
+@Service
+public class SalesRollups {
+
+    public record DayTotal(LocalDate day, long units, double revenue) {}
+
+    public record BookTotal(String isbn, String title, long units, double revenue) {}
+
+    public record HourTotal(LocalDateTime hour, long orders, long units, double revenue) {}
+
+    public record Rebuild(long orders, int dailyRows, int hourlyRows, long millis) {}
+
+    // Increments for a set of orders; partitions over disjoint orders merge by addition
+    private static final class Rollup {
+        private final Map<DailySales.Key, DailySales> daily = new HashMap<>();
+        private final Map<LocalDateTime, HourlyOrders> hourly = new HashMap<>();
+        private final Set<Long> orders = new HashSet<>();
+
+        private Rollup add(List<Object[]> lines) {
+            for (Object[] line : lines) {
+                Long orderId = (Long) line[0];
+                LocalDateTime createdAt = (LocalDateTime) line[1];
+                String isbn = (String) line[2];
+                double revenue = ((Number) line[4]).doubleValue() * ((Number) line[5]).intValue();
+                int units = ((Number) line[5]).intValue();
+
+                DailySales day = daily.computeIfAbsent(new DailySales.Key(createdAt.toLocalDate(), isbn),
+                        k -> new DailySales(createdAt.toLocalDate(), isbn));
+                day.setTitle((String) line[3]);
+                day.add(units, revenue);
+                hourly.computeIfAbsent(createdAt.truncatedTo(ChronoUnit.HOURS), HourlyOrders::new)
+                        .add(orders.add(orderId) ? 1 : 0, units, revenue);
+            }
+            return this;
+        }
+
+        private Rollup merge(Rollup other) {
+            other.daily.forEach((key, row) -> daily.merge(key, row, (mine, theirs) -> {
+                mine.add(theirs.getUnits(), theirs.getRevenue());
+                mine.setTitle(theirs.getTitle());
+                return mine;
+            }));
+            other.hourly.forEach((hour, row) -> hourly.merge(hour, row, (mine, theirs) -> {
+                mine.add(theirs.getOrders(), theirs.getUnits(), theirs.getRevenue());
+                return mine;
+            }));
+            orders.addAll(other.orders);
+            return this;
+        }
+    }
+
+    private final OrderRepository orders;
+    private final DailySalesRepository daily;
+    private final HourlyOrdersRepository hourly;
+    private final TransactionTemplate writes;
+    private final int batchSize;
+    private final int rebuildChunk;
+    private final OrderEventConsumer events;
+    // Held by the writer per batch and by a rebuild for its whole run
+    private final ReentrantLock writer = new ReentrantLock();
+    private final ExecutorService rebuildPool;
+
+    public SalesRollups(OrderRepository orders, DailySalesRepository daily, HourlyOrdersRepository hourly,
+                        PlatformTransactionManager transactionManager, MeterRegistry registry,
+                        @Value("${app.sales-rollups.queue-capacity:10000}") int queueCapacity,
+                        @Value("${app.sales-rollups.batch-size:200}") int batchSize,
+                        @Value("${app.sales-rollups.retry-ms:1000}") long retryMillis,
+                        @Value("${app.sales-rollups.rebuild-threads:4}") int rebuildThreads,
+                        @Value("${app.sales-rollups.rebuild-chunk:5000}") int rebuildChunk) {
+        this.orders = orders;
+        this.daily = daily;
+        this.hourly = hourly;
+        this.writes = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.rebuildChunk = rebuildChunk;
+        this.events = new OrderEventConsumer("sales-rollups", queueCapacity, batchSize, retryMillis,
+                this::catchUp, this::apply);
+        Gauge.builder("amazin.sales.rollups.backlog", events, OrderEventConsumer::getBacklog)
+                .description("Committed orders queued but not yet folded into the sales rollups")
+                .register(registry);
+        AtomicInteger threadIds = new AtomicInteger();
+        this.rebuildPool = Executors.newFixedThreadPool(rebuildThreads, r -> {
+            Thread t = new Thread(r, "sales-rollup-rebuild-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        events.start();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        events.offer(event.orderId());
+    }
+
+    public List<DayTotal> byDay(LocalDate from, LocalDate to) {
+        return daily.sumByDay(from, to).stream()
+                .map(row -> new DayTotal((LocalDate) row[0], ((Number) row[1]).longValue(), ((Number) row[2]).doubleValue()))
+                .toList();
+    }
+
+    public List<BookTotal> topBooks(LocalDate from, LocalDate to, int limit) {
+        return daily.sumByIsbn(from, to, PageRequest.of(0, limit)).stream()
+                .map(row -> new BookTotal((String) row[0], (String) row[1],
+                        ((Number) row[2]).longValue(), ((Number) row[3]).doubleValue()))
+                .toList();
+    }
+
+    public List<HourTotal> byHour(LocalDate from, LocalDate to) {
+        return hourly.findByHourGreaterThanEqualAndHourLessThanOrderByHour(from.atStartOfDay(), to.plusDays(1).atStartOfDay())
+                .stream()
+                .map(row -> new HourTotal(row.getHour(), row.getOrders(), row.getUnits(), row.getRevenue()))
+                .toList();
+    }
+
+    /**
+     * Recomputes both rollup tables from the full order history. Orders are split into
+     * id ranges aggregated in parallel; events arriving meanwhile wait for the writer.
+     * The counted orders are marked rolled up in the same transaction that replaces
+     * the tables, so a failed rebuild leaves both as they were.
+     */
+    public Rebuild rebuild() {
+        writer.lock();
+        try {
+            long start = System.nanoTime();
+            // Every order committed by the time its range is read is counted; later ones come through events
+            Long maxId = orders.findMaxId();
+            List<CompletableFuture<Rollup>> parts = new ArrayList<>();
+            for (long first = 0; maxId != null && first <= maxId; first += rebuildChunk) {
+                long from = first;
+                long to = first + rebuildChunk - 1;
+                parts.add(CompletableFuture.supplyAsync(() -> new Rollup().add(orders.findLinesBetween(from, to)), rebuildPool));
+            }
+            Rollup total = new Rollup();
+            for (CompletableFuture<Rollup> part : parts) {
+                total.merge(part.join());
+            }
+            writes.executeWithoutResult(status -> {
+                daily.deleteAllInBatch();
+                hourly.deleteAllInBatch();
+                daily.saveAll(total.daily.values());
+                hourly.saveAll(total.hourly.values());
+                List<Long> counted = new ArrayList<>(total.orders);
+                for (int i = 0; i < counted.size(); i += rebuildChunk) {
+                    orders.markRolledUp(counted.subList(i, Math.min(counted.size(), i + rebuildChunk)));
+                }
+            });
+            return new Rebuild(total.orders.size(), total.daily.size(), total.hourly.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    private void catchUp() {
+        List<Long> unrolled = orders.findIdsNotRolledUp();
+        for (int i = 0; i < unrolled.size(); i += batchSize) {
+            apply(unrolled.subList(i, Math.min(unrolled.size(), i + batchSize)));
+        }
+    }
+
+    private void apply(Collection<Long> orderIds) {
+        writer.lock();
+        try {
+            writes.executeWithoutResult(status -> {
+                List<Long> fresh = orders.findIdsNotRolledUp(orderIds);
+                if (fresh.isEmpty()) return;
+                orders.markRolledUp(fresh);
+                Rollup delta = new Rollup().add(orders.findLines(fresh));
+
+                Map<DailySales.Key, DailySales> days = new HashMap<>();
+                daily.findAllById(delta.daily.keySet()).forEach(row -> days.put(row.getId(), row));
+                delta.daily.forEach((key, row) -> {
+                    DailySales current = days.get(key);
+                    if (current == null) {
+                        days.put(key, row);
+                    } else {
+                        current.add(row.getUnits(), row.getRevenue());
+                        current.setTitle(row.getTitle());
+                    }
+                });
+                Map<LocalDateTime, HourlyOrders> hours = new HashMap<>();
+                hourly.findAllById(delta.hourly.keySet()).forEach(row -> hours.put(row.getHour(), row));
+                delta.hourly.forEach((hour, row) -> {
+                    HourlyOrders current = hours.get(hour);
+                    if (current == null) {
+                        hours.put(hour, row);
+                    } else {
+                        current.add(row.getOrders(), row.getUnits(), row.getRevenue());
+                    }
+                });
+                daily.saveAll(days.values());
+                hourly.saveAll(hours.values());
+            });
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        events.stop(1_000);
+        rebuildPool.shutdownNow();
+    }
+}
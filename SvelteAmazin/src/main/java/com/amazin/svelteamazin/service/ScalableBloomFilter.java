@@ -0,0 +1,145 @@
+package com.amazin.svelteamazin.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter that grows instead of degrading: when a layer has taken its
+ * capacity a new one twice as large is added with half the false-positive rate,
+ * so the combined rate stays under the target however many keys arrive
+ * (Almeida et al., "Scalable Bloom Filters").
+ *
+ * Bits are set with CAS, so adds and lookups need no lock; only adding a layer is
+ * synchronised. Never reports a present key as absent. Keys cannot be removed.
+ */
+public final class ScalableBloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private static final class Layer {
+        private final AtomicLongArray words;
+        private final long bits;
+        private final int hashes;
+        private final int capacity;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private Layer(int capacity, double falsePositiveRate) {
+            long bits = Math.max(64, (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN2 * LN2)));
+            this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+            this.bits = bits;
+            this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * LN2));
+            this.capacity = capacity;
+        }
+
+        private boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        private void add(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bits);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current = words.get(word);
+                while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                    current = words.get(word);
+                }
+            }
+            count.incrementAndGet();
+        }
+
+        // (1 - e^(-k n / m))^k for the keys added so far
+        private double falsePositiveRate() {
+            return Math.pow(1 - Math.exp(-hashes * (double) count.get() / bits), hashes);
+        }
+    }
+
+    private final double falsePositiveRate;
+    private volatile Layer[] layers;
+
+    /**
+     * @param initialCapacity   keys the first layer holds at {@code falsePositiveRate}
+     * @param falsePositiveRate target for the whole filter, however many layers it grows
+     */
+    public ScalableBloomFilter(int initialCapacity, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be in (0, 1): " + falsePositiveRate);
+        }
+        this.falsePositiveRate = falsePositiveRate;
+        // Layer i gets rate p/2^(i+1); the series sums to at most p
+        this.layers = new Layer[] { new Layer(Math.max(1, initialCapacity), falsePositiveRate / 2) };
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        for (Layer layer : layers) {
+            if (layer.mightContain(hash)) return true;
+        }
+        return false;
+    }
+
+    public void add(String key) {
+        long hash = hash(key);
+        Layer[] current = layers;
+        for (Layer layer : current) {
+            if (layer.mightContain(hash)) return;
+        }
+        Layer last = current[current.length - 1];
+        if (last.count.get() >= last.capacity) last = grow(last);
+        last.add(hash);
+    }
+
+    /** Keys added (duplicates and keys already reported present are not counted). */
+    public long size() {
+        long size = 0;
+        for (Layer layer : layers) size += layer.count.get();
+        return size;
+    }
+
+    public int layerCount() {
+        return layers.length;
+    }
+
+    /** Expected false-positive rate for the keys added so far, from each layer's fill. */
+    public double expectedFalsePositiveRate() {
+        double allNegative = 1;
+        for (Layer layer : layers) allNegative *= 1 - layer.falsePositiveRate();
+        return 1 - allNegative;
+    }
+
+    private synchronized Layer grow(Layer full) {
+        Layer[] current = layers;
+        Layer last = current[current.length - 1];
+        if (last != full) return last;
+        Layer next = new Layer((int) Math.min(Integer.MAX_VALUE / 2, full.capacity * 2L),
+                falsePositiveRate / Math.pow(2, current.length + 1));
+        Layer[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = next;
+        layers = grown;
+        return next;
+    }
+
+    // 64-bit FNV-1a over the UTF-16 chars, then a Murmur3 finalizer for the high bits
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe5f4cb1bL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
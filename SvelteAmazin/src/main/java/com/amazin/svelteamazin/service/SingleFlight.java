@@ -0,0 +1,70 @@
+package com.amazin.svelteamazin.service;
+
+import com.amazin.svelteamazin.model.BookChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent identical requests share one computation: the first caller for a
+ * key computes, everyone arriving while it runs waits for the same result, and a
+ * successful result keeps being handed out for {@code app.single-flight.fresh-ms}.
+ *
+ * A failure is rethrown to every waiter of that flight and is never reused, so the
+ * next caller starts a new computation. Results are shared, so callers must not
+ * mutate them. Everything shared here is derived from the catalog, so a committed
+ * book write forgets all flights and the next caller recomputes.
+ */
+@Component
+public class SingleFlight {
+
+    private final Map<String, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+    private final Executor expiry;
+
+    public SingleFlight(@Value("${app.single-flight.fresh-ms:500}") long freshMillis) {
+        this.expiry = CompletableFuture.delayedExecutor(freshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> computation) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> flight = flights.putIfAbsent(key, mine);
+        if (flight == null) {
+            lead(key, mine, computation);
+            flight = mine;
+        }
+        try {
+            return (T) flight.join();
+        } catch (CompletionException e) {
+            // Rethrow what the computation threw (e.g. a ResponseStatusException) as-is
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error error) throw error;
+            throw e;
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        flights.clear();
+    }
+
+    private void lead(String key, CompletableFuture<Object> flight, Supplier<?> computation) {
+        try {
+            flight.complete(computation.get());
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(e);
+            return;
+        }
+        expiry.execute(() -> flights.remove(key, flight));
+    }
+}
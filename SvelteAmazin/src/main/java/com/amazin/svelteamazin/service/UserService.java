@@ -3,14 +3,17 @@ package com.amazin.svelteamazin.service;
 import com.amazin.svelteamazin.model.User;
 import com.amazin.svelteamazin.repository.UserRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class UserService {
 
     private final UserRepository repo;
+    private final PasswordHasher hasher;
 
-    public UserService(UserRepository repo) {
+    public UserService(UserRepository repo, PasswordHasher hasher) {
         this.repo = repo;
+        this.hasher = hasher;
     }
 
     public User findByUsername(String username) {
@@ -20,8 +23,18 @@ public class UserService {
     public User createUser(String username, String password, String role) {
         User u = new User();
         u.setUsername(username);
-        u.setPassword(password);  // for demo, no hashing
+        u.setPassword(hasher.hash(password));
         u.setRole(role);
         return repo.save(u);
     }
+
+    /**
+     * Replaces the stored password, unless it changed since {@code expected} was read.
+     */
+    @Transactional
+    public void updatePassword(Long id, String expected, String hash) {
+        repo.findById(id)
+                .filter(u -> expected.equals(u.getPassword()))
+                .ifPresent(u -> u.setPassword(hash));
+    }
 }
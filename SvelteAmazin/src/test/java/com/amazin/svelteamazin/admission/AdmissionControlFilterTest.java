@@ -0,0 +1,54 @@
+package com.amazin.svelteamazin.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControlFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AimdLimit recommendations = new AimdLimit(1, 1, 1, 1000);
+    private final AimdLimit catalog = new AimdLimit(5, 1, 5, 1000);
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(List.of(
+            AdmissionControlFilter.Bulkhead.of("recommendations", "GET", "/api/books/recommended_books", recommendations),
+            AdmissionControlFilter.Bulkhead.of("catalog", "GET", "/api/books/**", catalog)), 2, registry);
+
+    @Test
+    void shedsWith503AndRetryAfterWhenTheBulkheadIsFull() throws Exception {
+        assertThat(recommendations.tryAcquire()).isTrue(); // someone else holds the only permit
+
+        MockHttpServletResponse response = run("GET", "/api/books/recommended_books");
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(response.getContentAsString()).contains("\"bulkhead\":\"recommendations\"");
+        assertThat(registry.counter("amazin.admission.rejected", "bulkhead", "recommendations").count()).isEqualTo(1);
+
+        // The catalog has its own budget and is unaffected
+        assertThat(run("GET", "/api/books").getStatus()).isEqualTo(200);
+        assertThat(catalog.getInflight()).isZero();
+    }
+
+    @Test
+    void unmatchedRequestsAndStreamsAreNotLimited() throws Exception {
+        assertThat(recommendations.tryAcquire()).isTrue();
+        while (catalog.tryAcquire()) { }
+
+        assertThat(run("POST", "/api/books").getStatus()).isEqualTo(200);
+        assertThat(run("GET", "/api/books/stream").getStatus()).isEqualTo(200);
+        assertThat(run("GET", "/api/orders").getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse run(String method, String uri) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
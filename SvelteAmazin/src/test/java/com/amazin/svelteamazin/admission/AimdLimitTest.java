@@ -0,0 +1,79 @@
+package com.amazin.svelteamazin.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AimdLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Test
+    void rejectsOnceTheLimitIsInUse() {
+        AimdLimit limit = new AimdLimit(2, 1, 10, 100);
+
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isFalse();
+
+        limit.release(0, FAST);
+        assertThat(limit.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void slowResponsesShrinkTheLimitDownToTheMinimum() {
+        AimdLimit limit = new AimdLimit(20, 5, 50, 100);
+
+        long now = 0;
+        for (int i = 0; i < 100; i++) {
+            limit.tryAcquire();
+            limit.release(now, now + SLOW);
+            now += SLOW;
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void aBurstOfSlowResponsesBacksOffOnce() {
+        AimdLimit limit = new AimdLimit(20, 5, 50, 100);
+
+        for (int i = 0; i < 10; i++) limit.tryAcquire();
+        for (int i = 0; i < 10; i++) limit.release(i, SLOW + i);
+        assertThat(limit.getLimit()).isEqualTo(18);
+
+        // Admitted after that decrease, so it may shrink the limit again
+        limit.tryAcquire();
+        limit.release(SLOW + 20, 2 * SLOW + 20);
+        assertThat(limit.getLimit()).isEqualTo(16);
+    }
+
+    @Test
+    void fastResponsesUnderLoadGrowTheLimitUpToTheMaximum() {
+        AimdLimit limit = new AimdLimit(4, 1, 8, 100);
+
+        for (int round = 0; round < 200; round++) {
+            int admitted = 0;
+            while (limit.tryAcquire()) admitted++;
+            for (int i = 0; i < admitted; i++) limit.release(0, FAST);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(8);
+        assertThat(limit.getInflight()).isZero();
+    }
+
+    @Test
+    void idleTrafficDoesNotInflateTheLimit() {
+        AimdLimit limit = new AimdLimit(10, 1, 100, 100);
+
+        for (int i = 0; i < 1000; i++) {
+            limit.tryAcquire();
+            limit.release(0, FAST);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(10);
+    }
+}
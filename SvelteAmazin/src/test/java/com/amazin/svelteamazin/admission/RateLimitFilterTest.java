@@ -0,0 +1,58 @@
+package com.amazin.svelteamazin.admission;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+
+    private final RateLimiter limiter = new RateLimiter(new MockEnvironment()
+            .withProperty("app.rate-limit.policies.cart-ip.capacity", "3")
+            .withProperty("app.rate-limit.policies.cart-ip.refill-per-minute", "1")
+            .withProperty("app.rate-limit.policies.cart.capacity", "2")
+            .withProperty("app.rate-limit.policies.cart.refill-per-minute", "1"),
+            true, 100);
+    private final RateLimitFilter filter = new RateLimitFilter(limiter,
+            List.of(RateLimitFilter.Route.of(RateLimiter.CART_IP, RateLimiter.CART, null, "/api/cart/**")));
+
+    @Test
+    void chargesTheUserAndTheirIp() throws Exception {
+        assertThat(run("alice", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(run("alice", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(run("alice", "10.0.0.1").getStatus()).isEqualTo(429);
+
+        // Another user on the same address shares its spent budget
+        assertThat(run("bob", "10.0.0.1").getStatus()).isEqualTo(429);
+        assertThat(run("bob", "10.0.0.2").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void inventedUsernamesDoNotEscapeTheIpLimit() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(run("user-" + i, "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+
+        MockHttpServletResponse refused = run("user-3", "10.0.0.1");
+        assertThat(refused.getStatus()).isEqualTo(429);
+        assertThat(refused.getHeader("Retry-After")).isNotNull();
+        assertThat(run(null, "10.0.0.1").getStatus()).isEqualTo(429);
+    }
+
+    private MockHttpServletResponse run(String username, String ip) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cart");
+        request.setRemoteAddr(ip);
+        if (username != null) {
+            request.setCookies(new Cookie("username", username));
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
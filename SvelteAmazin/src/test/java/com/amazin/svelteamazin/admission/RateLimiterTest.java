@@ -0,0 +1,92 @@
+package com.amazin.svelteamazin.admission;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimiterTest {
+
+    private static RateLimiter limiter(int capacity, double refillPerMinute, int maxKeys) {
+        return new RateLimiter(new MockEnvironment()
+                .withProperty("app.rate-limit.policies.test.capacity", String.valueOf(capacity))
+                .withProperty("app.rate-limit.policies.test.refill-per-minute", String.valueOf(refillPerMinute)),
+                true, maxKeys);
+    }
+
+    @Test
+    void allowsABurstUpToCapacityThenRefuses() {
+        RateLimiter limiter = limiter(3, 1, 100);
+
+        assertThat(limiter.tryAcquire("test", "a").remaining()).isEqualTo(2);
+        assertThat(limiter.tryAcquire("test", "a").allowed()).isTrue();
+        assertThat(limiter.tryAcquire("test", "a").allowed()).isTrue();
+
+        RateLimiter.Decision refused = limiter.tryAcquire("test", "a");
+        assertThat(refused.allowed()).isFalse();
+        assertThat(refused.retryAfterSeconds()).isBetween(1L, 60L);
+
+        // Identities have separate buckets
+        assertThat(limiter.tryAcquire("test", "b").allowed()).isTrue();
+    }
+
+    @Test
+    void refillsOverTime() throws Exception {
+        RateLimiter limiter = limiter(1, 600, 100); // one token every 100 ms
+
+        assertThat(limiter.tryAcquire("test", "a").allowed()).isTrue();
+        assertThat(limiter.tryAcquire("test", "a").allowed()).isFalse();
+        Thread.sleep(150);
+        assertThat(limiter.tryAcquire("test", "a").allowed()).isTrue();
+    }
+
+    @Test
+    void concurrentCallersNeverExceedCapacity() throws Exception {
+        RateLimiter limiter = limiter(100, 0.001, 100);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(() -> {
+                    int allowed = 0;
+                    for (int i = 0; i < 50; i++) {
+                        if (limiter.tryAcquire("test", "shared").allowed()) allowed++;
+                    }
+                    return allowed;
+                });
+            }
+            int total = 0;
+            for (Future<Integer> result : pool.invokeAll(tasks)) {
+                total += result.get();
+            }
+            assertThat(total).isEqualTo(100);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void tracksABoundedNumberOfKeys() {
+        RateLimiter limiter = limiter(5, 1, 50);
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.tryAcquire("test", "ip-" + i);
+        }
+
+        assertThat(limiter.trackedKeys()).isLessThanOrEqualTo(51);
+    }
+
+    @Test
+    void unknownPoliciesFailLoudly() {
+        assertThatThrownBy(() -> limiter(1, 1, 10).tryAcquire("missing", "a"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,80 @@
+package com.amazin.svelteamazin.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Group-by latency over twenty million synthetic order lines held in columns.
+ * Run with: ./mvnw test -Dtest=OrderAnalyticsBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OrderAnalyticsBenchmarkTest {
+
+    private static final int LINES = 20_000_000;
+    private static final int BOOKS = 200_000;
+    private static final int QUERIES = 50;
+    private static final String[] GENRES = {
+            "Fantasy", "History", "Science", "Romance", "Mystery", "Poetry", "Travel", "Cooking", "Art", "Biography"
+    };
+
+    @Test
+    void groupByOverTwentyMillionLines() {
+        Random random = new Random(42);
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            OrderLineColumns columns = new OrderLineColumns(65_536, pool);
+            LocalDate first = LocalDate.of(2024, 1, 1);
+            long loadStart = System.nanoTime();
+            long orderId = 0;
+            for (int lines = 0; lines < LINES; ) {
+                int size = 1 + random.nextInt(5);
+                List<OrderLineColumns.Line> order = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    int book = random.nextInt(BOOKS);
+                    order.add(new OrderLineColumns.Line("isbn-" + book, GENRES[book % GENRES.length],
+                            500 + book % 5_000, 1 + random.nextInt(3)));
+                }
+                columns.append(++orderId, first.plusDays(orderId * 730 / (LINES / 3)), order);
+                lines += size;
+            }
+            long loadMs = (System.nanoTime() - loadStart) / 1_000_000;
+
+            List<OrderLineColumns.Query> queries = List.of(
+                    new OrderLineColumns.Query(OrderLineColumns.GroupBy.GENRE, 1_000, OrderLineColumns.Filter.NONE, null, 50),
+                    new OrderLineColumns.Query(OrderLineColumns.GroupBy.DAY, 1_000,
+                            new OrderLineColumns.Filter(null, null, "History", null, 1_000L, 3_000L), null, 1_000),
+                    new OrderLineColumns.Query(OrderLineColumns.GroupBy.ISBN, 1_000,
+                            new OrderLineColumns.Filter(first.plusDays(100), first.plusDays(400), null, null, null, null),
+                            OrderLineColumns.Sort.UNITS, 10),
+                    new OrderLineColumns.Query(OrderLineColumns.GroupBy.PRICE_BAND, 500, OrderLineColumns.Filter.NONE, null, 50));
+            for (int i = 0; i < 10; i++) queries.forEach(columns::query);   // warm-up
+
+            for (OrderLineColumns.Query query : queries) {
+                long[] nanos = new long[QUERIES];
+                OrderLineColumns.Result result = null;
+                for (int i = 0; i < QUERIES; i++) {
+                    long start = System.nanoTime();
+                    result = columns.query(query);
+                    nanos[i] = System.nanoTime() - start;
+                }
+                Arrays.sort(nanos);
+                System.out.printf("columnar %s: %d lines (%d segments, load %d ms), p50 %.1f ms, max %.1f ms, %d groups%n",
+                        query.groupBy(), columns.getLines(), columns.getSegments(), loadMs,
+                        nanos[QUERIES / 2] / 1e6, nanos[QUERIES - 1] / 1e6, result.groups().size());
+                assertThat(result.scannedLines()).isEqualTo(columns.getLines());
+                assertThat(result.groups()).isNotEmpty();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.amazin.svelteamazin.analytics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class OrderLineColumnsTest {
+
+    private static final LocalDate DAY = LocalDate.of(2001, 3, 14);
+
+    private ForkJoinPool pool;
+    private OrderLineColumns columns;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(2);
+        // Tiny segments so orders are spread over many of them and several scan tasks
+        columns = new OrderLineColumns(4, pool);
+        columns.append(1, DAY, List.of(
+                line("a", "Fantasy", 1000, 2),
+                line("b", "History", 2500, 1),
+                line("c", "Fantasy", 500, 1)));
+        columns.append(2, DAY, List.of(
+                line("a", "Fantasy", 1000, 1),
+                line("d", "History", 4000, 3)));
+        columns.append(3, DAY.plusDays(2), List.of(
+                line("b", "History", 2500, 2)));
+        for (long id = 4; id < 40; id++) {
+            columns.append(id, DAY.plusDays(3), List.of(line("e", null, 100, 1), line("e", null, 100, 1)));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void ordersNeverStraddleSegments() {
+        assertThat(columns.getLines()).isEqualTo(78);
+        // Order 2 does not fit beside order 1 and opens a segment; the 36 two-line orders fill 18 more
+        assertThat(columns.getSegments()).isEqualTo(20);
+    }
+
+    @Test
+    void groupsByGenreCountingEachOrderOncePerGroup() {
+        OrderLineColumns.Result result = columns.query(query(OrderLineColumns.GroupBy.GENRE,
+                new OrderLineColumns.Filter(DAY, DAY.plusDays(2), null, null, null, null), null));
+
+        assertThat(result.scannedLines()).isEqualTo(78);
+        assertThat(result.matchedLines()).isEqualTo(6);
+        assertThat(result.groups())
+                .extracting(OrderLineColumns.Group::key, OrderLineColumns.Group::lines, OrderLineColumns.Group::orders,
+                        OrderLineColumns.Group::units, OrderLineColumns.Group::revenue)
+                .containsExactly(
+                        tuple("History", 3L, 3L, 6L, 195.0),
+                        tuple("Fantasy", 3L, 2L, 4L, 35.0));
+        assertThat(result.groups().get(1).avgBasket()).isEqualTo(2.0);
+    }
+
+    @Test
+    void filtersByIsbnAndPriceAndGroupsByDay() {
+        OrderLineColumns.Result byIsbn = columns.query(query(OrderLineColumns.GroupBy.DAY,
+                new OrderLineColumns.Filter(null, null, null, "b", null, null), null));
+        assertThat(byIsbn.groups())
+                .extracting(OrderLineColumns.Group::key, OrderLineColumns.Group::units)
+                .containsExactly(tuple("2001-03-14", 1L), tuple("2001-03-16", 2L));
+
+        OrderLineColumns.Result byPrice = columns.query(query(OrderLineColumns.GroupBy.NONE,
+                new OrderLineColumns.Filter(null, null, null, null, 1000L, 2500L), null));
+        assertThat(byPrice.groups())
+                .extracting(OrderLineColumns.Group::lines, OrderLineColumns.Group::orders)
+                .containsExactly(tuple(4L, 3L));
+    }
+
+    @Test
+    void groupsByPriceBandInBandOrder() {
+        OrderLineColumns.Result result = columns.query(new OrderLineColumns.Query(OrderLineColumns.GroupBy.PRICE_BAND,
+                2000, OrderLineColumns.Filter.NONE, null, 10));
+
+        assertThat(result.groups())
+                .extracting(OrderLineColumns.Group::key, OrderLineColumns.Group::lines)
+                .containsExactly(tuple("0.00-19.99", 75L), tuple("20.00-39.99", 2L), tuple("40.00-59.99", 1L));
+    }
+
+    @Test
+    void unknownValuesMatchNothingAndHugeGroupingsAreRejected() {
+        OrderLineColumns.Result result = columns.query(query(OrderLineColumns.GroupBy.GENRE,
+                new OrderLineColumns.Filter(null, null, "Poetry", null, null, null), null));
+        assertThat(result.groups()).isEmpty();
+        assertThat(result.scannedLines()).isEqualTo(78);
+
+        columns.append(40, DAY, List.of(line("z", "Art", Integer.MAX_VALUE, 1)));
+        assertThatThrownBy(() -> columns.query(new OrderLineColumns.Query(OrderLineColumns.GroupBy.PRICE_BAND,
+                1, OrderLineColumns.Filter.NONE, null, 10)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void fineBandsAreScannedWithinTheGroupCap() {
+        // $50,000: 500,001 ten-cent bands fit under the cap, 5,000,001 one-cent bands do not
+        columns.append(40, DAY, List.of(line("z", "Art", 5_000_000, 1)));
+
+        OrderLineColumns.Result result = columns.query(new OrderLineColumns.Query(OrderLineColumns.GroupBy.PRICE_BAND,
+                10, OrderLineColumns.Filter.NONE, OrderLineColumns.Sort.KEY, 100));
+        assertThat(result.matchedLines()).isEqualTo(79);
+        assertThat(result.groups()).extracting(OrderLineColumns.Group::key).last().isEqualTo("50000.00-50000.09");
+        assertThatThrownBy(() -> columns.query(new OrderLineColumns.Query(OrderLineColumns.GroupBy.PRICE_BAND,
+                1, OrderLineColumns.Filter.NONE, null, 10)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void sortsByTheRequestedMetricAndAppliesTheLimit() {
+        OrderLineColumns.Result result = columns.query(query(OrderLineColumns.GroupBy.ISBN,
+                OrderLineColumns.Filter.NONE, OrderLineColumns.Sort.ORDERS));
+
+        assertThat(result.groups()).extracting(OrderLineColumns.Group::key).containsExactly("e", "a", "b");
+    }
+
+    private static OrderLineColumns.Query query(OrderLineColumns.GroupBy groupBy, OrderLineColumns.Filter filter,
+                                                OrderLineColumns.Sort sort) {
+        return new OrderLineColumns.Query(groupBy, 1000, filter, sort, 3);
+    }
+
+    private static OrderLineColumns.Line line(String isbn, String genre, long priceCents, int quantity) {
+        return new OrderLineColumns.Line(isbn, genre, priceCents, quantity);
+    }
+}
@@ -1,7 +1,9 @@
 package com.amazin.svelteamazin.controller;
 
+import com.amazin.svelteamazin.admission.RateLimiter;
 import com.amazin.svelteamazin.model.User;
 import com.amazin.svelteamazin.service.AuthService;
+import com.amazin.svelteamazin.service.LoginBusyException;
 import com.amazin.svelteamazin.service.UserService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,14 +12,19 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import org.junit.jupiter.api.BeforeEach;
+import org.springframework.mock.env.MockEnvironment;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
@@ -39,6 +46,9 @@ public class AuthControllerTest {
         AuthController controller = new AuthController();
         ReflectionTestUtils.setField(controller, "auth", auth);
         ReflectionTestUtils.setField(controller, "users", users);
+        ReflectionTestUtils.setField(controller, "rateLimiter", new RateLimiter(new MockEnvironment()
+                .withProperty("app.rate-limit.policies.login-user.capacity", "2")
+                .withProperty("app.rate-limit.policies.login-user.refill-per-minute", "1"), true, 100));
         // set configured owner password to the test property value
         ReflectionTestUtils.setField(controller, "configuredOwnerPassword", "testpw");
 
@@ -47,11 +57,15 @@ public class AuthControllerTest {
 
     public void userLogin_success_setsCookiesAndReturnsUser() throws Exception {
         User u = new User(1L, "alice", "secret", "USER");
-        when(auth.authenticateUser("alice", "secret")).thenReturn(u);
+        when(auth.authenticateUser("alice", "secret")).thenReturn(CompletableFuture.completedFuture(u));
 
-        mvc.perform(post("/api/auth/user-login")
+        MvcResult login = mvc.perform(post("/api/auth/user-login")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("{\"username\":\"alice\",\"password\":\"secret\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(login))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.username").value("alice"))
                 .andExpect(jsonPath("$.role").value("USER"))
@@ -61,21 +75,66 @@ public class AuthControllerTest {
 
     @Test
     public void userLogin_invalidCredentials_returns401() throws Exception {
-        when(auth.authenticateUser(anyString(), anyString())).thenReturn(null);
+        when(auth.authenticateUser(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
 
-        mvc.perform(post("/api/auth/user-login")
+        MvcResult login = mvc.perform(post("/api/auth/user-login")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("{\"username\":\"bad\",\"password\":\"wrong\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(login))
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    public void userLogin_repeatedGuesses_return429WithRateLimitHeaders() throws Exception {
+        when(auth.authenticateUser(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+
+        for (int i = 0; i < 2; i++) {
+            MvcResult login = mvc.perform(post("/api/auth/user-login")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"username\":\"Carol\",\"password\":\"guess\"}"))
+                    .andReturn();
+            mvc.perform(asyncDispatch(login))
+                    .andExpect(status().isUnauthorized());
+        }
+
+        mvc.perform(post("/api/auth/user-login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"carol\",\"password\":\"guess\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("RateLimit-Limit", "2"))
+                .andExpect(header().string("RateLimit-Remaining", "0"))
+                .andExpect(header().exists("Retry-After"));
+    }
+
+    @Test
+    public void userLogin_hashingQueueFull_returns503WithRetryAfter() throws Exception {
+        when(auth.authenticateUser(anyString(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new LoginBusyException()));
+
+        MvcResult login = mvc.perform(post("/api/auth/user-login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"alice\",\"password\":\"secret\"}"))
+                .andReturn();
+
+        mvc.perform(asyncDispatch(login))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
     @Test
     public void ownerLogin_success_withAuthService() throws Exception {
-        when(auth.authenticateOwner("ownerpw")).thenReturn(true);
+        when(auth.authenticateOwner("ownerpw")).thenReturn(CompletableFuture.completedFuture(true));
 
-        mvc.perform(post("/api/auth/owner-login")
+        MvcResult login = mvc.perform(post("/api/auth/owner-login")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("{\"password\":\"ownerpw\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(login))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.role").value("OWNER"))
                 .andExpect(cookie().exists("role"))
@@ -85,22 +144,30 @@ public class AuthControllerTest {
     @Test
     public void ownerLogin_success_withConfiguredPassword() throws Exception {
         // AuthService returns false but the configured property (testpw) should allow login
-        when(auth.authenticateOwner("testpw")).thenReturn(false);
+        when(auth.authenticateOwner("testpw")).thenReturn(CompletableFuture.completedFuture(false));
 
-        mvc.perform(post("/api/auth/owner-login")
+        MvcResult login = mvc.perform(post("/api/auth/owner-login")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("{\"password\":\"testpw\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(login))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.role").value("OWNER"));
     }
 
     @Test
     public void ownerLogin_badPassword_returns401() throws Exception {
-        when(auth.authenticateOwner("nope")).thenReturn(false);
+        when(auth.authenticateOwner("nope")).thenReturn(CompletableFuture.completedFuture(false));
 
-        mvc.perform(post("/api/auth/owner-login")
+        MvcResult login = mvc.perform(post("/api/auth/owner-login")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("{\"password\":\"nope\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(login))
                 .andExpect(status().isUnauthorized());
     }
 
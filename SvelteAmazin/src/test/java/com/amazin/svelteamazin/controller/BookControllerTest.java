@@ -2,7 +2,18 @@ package com.amazin.svelteamazin.controller;
 
 import com.amazin.svelteamazin.model.Book;
 import com.amazin.svelteamazin.model.BookRepository;
+import com.amazin.svelteamazin.model.BookSummary;
 import com.amazin.svelteamazin.repository.OrderRepository;
+import com.amazin.svelteamazin.search.BookFacetIndex;
+import com.amazin.svelteamazin.search.FuzzySearchIndex;
+import com.amazin.svelteamazin.search.RelevanceIndex;
+import com.amazin.svelteamazin.search.SuggestionIndex;
+import com.amazin.svelteamazin.service.BookExistenceFilter;
+import com.amazin.svelteamazin.service.BookViews;
+import com.amazin.svelteamazin.service.CatalogChangeLog;
+import com.amazin.svelteamazin.service.CatalogListingCache;
+import com.amazin.svelteamazin.service.InventoryStream;
+import com.amazin.svelteamazin.service.SingleFlight;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +22,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 @SpringBootTest
@@ -24,10 +36,42 @@ class BookControllerTest {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private BookFacetIndex facetIndex;
+
+    @Autowired
+    private SuggestionIndex suggestionIndex;
+
+    @Autowired
+    private FuzzySearchIndex fuzzyIndex;
+
+    @Autowired
+    private RelevanceIndex relevanceIndex;
+
+    @Autowired
+    private CatalogListingCache listingCache;
+
+    @Autowired
+    private CatalogChangeLog changeLog;
+
+    @Autowired
+    private InventoryStream inventoryStream;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @Autowired
+    private BookViews views;
+
+    @Autowired
+    private BookExistenceFilter existence;
+
     @BeforeEach
     void setUp() {
         // Instantiate the controller
-        bookController = new BookController(bookRepository, orderRepository);
+        bookController = new BookController(bookRepository, orderRepository, facetIndex, suggestionIndex, fuzzyIndex,
+                relevanceIndex, listingCache, changeLog, inventoryStream, singleFlight, views,
+                existence);
         bookRepository.deleteAll();
 
         Book book1 = new Book("9780804139021", "The Martian", "Andy Weir", "Crown",
@@ -47,13 +91,38 @@ class BookControllerTest {
 
     @Test
     void getAllBooks() {
-        List<Book> result = bookController.getAllBooks(null, null);
+        List<BookSummary> result = bookController.getAllBooks(null, null);
 
         // Assert
         assertNotNull(result);
         assertEquals(2, result.size());
-        assertEquals("9780804139021", result.get(0).getIsbn());
-        assertEquals("1234", result.get(1).getIsbn());
+        assertEquals("9780804139021", result.get(0).isbn());
+        assertEquals("1234", result.get(1).isbn());
+    }
+
+    @Test
+    void getBookByIsbnCountsViewsOfExistingBooksOnly() {
+        long before = views.estimate("9780804139021");
+        bookController.getBookByIsbn("9780804139021");
+        bookController.getBookByIsbn("9780804139021");
+        assertThrows(ResponseStatusException.class, () -> bookController.getBookByIsbn("-99"));
+
+        assertTrue(views.estimate("9780804139021") >= before + 2);
+        assertEquals(0, views.estimate("-99"));
+    }
+
+    @Test
+    void getBookByIsbnAnswersUnknownIsbnsFromTheExistenceFilter() {
+        existence.rebuild();
+        assertFalse(existence.mightExist("no-such-isbn"));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () ->
+                bookController.getBookByIsbn("no-such-isbn"));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+
+        // Books saved after the rebuild pass straight away
+        bookRepository.save(new Book("9780000000099", "New", "a", "p", "g", null, 1.0, 1, null));
+        assertEquals("New", bookController.getBookByIsbn("9780000000099").getTitle());
     }
 
     @Test
@@ -73,7 +142,7 @@ class BookControllerTest {
 
     @Test
     void create() {
-        List<Book> result = bookController.getAllBooks(null, null);
+        List<BookSummary> result = bookController.getAllBooks(null, null);
 
         // Assert
         assertNotNull(result);
@@ -84,18 +153,15 @@ class BookControllerTest {
         bookRepository.save(book2);
 
 
-        List<Book> result2 = bookController.getAllBooks(null, null);
+        List<BookSummary> result2 = bookController.getAllBooks(null, null);
 
         assertEquals(3, result2.size());
-        assertEquals("12343", result2.get(2).getIsbn());
-        assertEquals("Test3", result2.get(2).getTitle());
-        assertEquals("Author3", result2.get(2).getAuthor());
-        assertEquals("pub3", result2.get(2).getPublisher());
-        assertEquals("genre3", result2.get(2).getGenre());
-        assertEquals("This is a test description", result2.get(2).getDescription());
-        assertEquals(9.993, result2.get(2).getPrice());
-        assertEquals(33, result2.get(2).getInventory());
-        assertEquals("https://google.ca3", result2.get(2).getImageUrl());
+        assertEquals("12343", result2.get(2).isbn());
+        assertEquals("Test3", result2.get(2).title());
+        assertEquals("Author3", result2.get(2).author());
+        assertEquals(9.993, result2.get(2).price());
+        assertEquals(33, result2.get(2).inventory());
+        assertEquals("https://google.ca3", result2.get(2).imageUrl());
     }
 
     @Test
@@ -130,21 +196,21 @@ class BookControllerTest {
 
     @Test
     void delete() {
-        List<Book> result = bookController.getAllBooks(null, null);
+        List<BookSummary> result = bookController.getAllBooks(null, null);
 
         // Assert
         assertNotNull(result);
         assertEquals(2, result.size());
 
 
-        Book bookToDelete = result.get(0); // Assuming you want to delete the first book
-        bookController.delete(bookToDelete.getIsbn());
+        BookSummary bookToDelete = result.get(0); // Assuming you want to delete the first book
+        bookController.delete(bookToDelete.isbn());
 
-        List<Book> updatedResult = bookController.getAllBooks(null, null);
+        List<BookSummary> updatedResult = bookController.getAllBooks(null, null);
 
         // Assert the record is deleted
         assertEquals(1, updatedResult.size());
-        assertFalse(updatedResult.stream().anyMatch(b -> b.getIsbn().equals(bookToDelete.getIsbn())));
+        assertFalse(updatedResult.stream().anyMatch(b -> b.isbn().equals(bookToDelete.isbn())));
     }
 
     @Test
@@ -159,17 +225,128 @@ class BookControllerTest {
         bookRepository.save(b3);
 
         // case-insensitive title search
-        List<Book> javaResults = bookController.searchBooks("java");
+        List<BookSummary> javaResults = bookController.searchBooks("java", false);
         assertEquals(2, javaResults.size(), "should find both Java titles ignoring case");
 
         // author search
-        List<Book> aliceResults = bookController.searchBooks("alice");
+        List<BookSummary> aliceResults = bookController.searchBooks("alice", false);
         assertEquals(1, aliceResults.size());
-        assertEquals("Java Programming", aliceResults.get(0).getTitle());
+        assertEquals("Java Programming", aliceResults.get(0).title());
 
         // verify the returned list is affected by mutating the live list
         bookRepository.delete(b1);
-        List<Book> javaAfterRemove = bookController.searchBooks("java");
+        List<BookSummary> javaAfterRemove = bookController.searchBooks("java", false);
         assertEquals(1, javaAfterRemove.size(), "removing from the live list should change search results");
     }
-}
\ No newline at end of file
+
+    @Test
+    void searchAppendsSubstringMatchesAfterRankedHits() {
+        bookRepository.save(new Book("1", "Java Basics", "Alice Example", "Pub", "Desc", "Learn Java", 10.0, 1, "www.1.com"));
+        bookRepository.save(new Book("2", "JavaScript Guide", "Bob Example", "Pub", "Desc", "Web scripting", 15.0, 2, "www.2.com"));
+
+        List<String> isbns = bookController.searchBooks("java", false).stream().map(BookSummary::isbn).toList();
+        assertEquals(List.of("1", "2"), isbns, "ranked whole-word hit first, then the substring match");
+
+        List<Map<String, Object>> fields = bookController.searchBookFields("java", false, "title");
+        assertEquals(List.of("1", "2"), fields.stream().map(m -> m.get("isbn")).toList());
+    }
+
+    @Test
+    void queryBooksFiltersSortsAndCountsFacets() {
+        bookRepository.save(new Book("5", "Project Hail Mary", "Andy Weir", "Pub", "Science Fiction, Space", null, 24.99, 4, "img"));
+
+        BookController.BookQueryResponse response =
+                bookController.queryBooks("weir", List.of("science fiction"), null, 30.0, "price-desc", 0, 10);
+
+        assertEquals(2, response.total());
+        assertEquals(List.of("5", "9780804139021"), response.books().stream().map(BookSummary::isbn).toList());
+        assertEquals(2, response.genres().get("Science Fiction"));
+        assertEquals(1, response.genres().get("Space"));
+
+        bookRepository.deleteById("5");
+        assertEquals(1, bookController.queryBooks("weir", null, null, null, "none", 0, 10).total());
+    }
+
+    @Test
+    void fuzzySearchToleratesTypos() {
+        List<BookSummary> results = bookController.searchBooks("Martain", true);
+
+        assertEquals(1, results.size());
+        assertEquals("The Martian", results.get(0).title());
+        assertTrue(bookController.searchBooks("Martain", false).isEmpty());
+    }
+
+    @Test
+    void searchRanksByRelevanceAndFallsBackToSubstrings() {
+        bookRepository.save(new Book("7", "Mars Direct", "Robert Zubrin", "Pub", "Science", "Getting humans to mars", 12.0, 2, "img"));
+
+        List<BookSummary> ranked = bookController.searchBooks("mars", false);
+        assertEquals(List.of("7", "9780804139021"), ranked.stream().map(BookSummary::isbn).toList());
+
+        List<BookSummary> partial = bookController.searchBooks("mart", false);
+        assertEquals(1, partial.size());
+        assertEquals("The Martian", partial.get(0).title());
+    }
+
+    @Test
+    void sparseFieldsetsReturnOnlyRequestedFields() {
+        List<Map<String, Object>> rows = bookController.getAllBookFields("price", "desc", "title, price");
+
+        assertEquals(List.of(
+                Map.of("isbn", "9780804139021", "title", "The Martian", "price", 19.99),
+                Map.of("isbn", "1234", "title", "Test2", "price", 9.99)), rows);
+        assertEquals(List.of("isbn", "title", "price"), List.copyOf(rows.get(0).keySet()));
+
+        List<Map<String, Object>> found = bookController.searchBookFields("mars", false, "description");
+        assertEquals(List.of(Map.of("isbn", "9780804139021", "description", "Astronaut stranded on Mars")), found);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () ->
+                bookController.getAllBookFields(null, null, "title,password"));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
+    @Test
+    void changesSinceVersionIncludeUpdatesAndTombstones() {
+        CatalogChangeLog.Changes start = bookController.getChanges(null);
+        assertTrue(start.resync());
+
+        Book martian = bookRepository.findById("9780804139021").orElseThrow();
+        martian.setPrice(14.99);
+        bookRepository.save(martian);
+        bookController.delete("1234");
+
+        CatalogChangeLog.Changes changes = bookController.getChanges(start.version());
+        assertFalse(changes.resync());
+        assertEquals(2, changes.changes().size());
+        assertEquals(14.99, changes.changes().get(0).book().price());
+        assertTrue(changes.changes().get(1).deleted());
+        assertEquals("1234", changes.changes().get(1).isbn());
+
+        assertTrue(bookController.getChanges(changes.version()).changes().isEmpty());
+        // A version handed out before a restart
+        assertTrue(bookController.getChanges("lx3k2m1a-1f9b2c:" + changes.changes().size()).resync());
+    }
+
+    @Test
+    void batchLookupKeepsRequestOrderAndMarksMissing() {
+        List<BookController.BookLookup> results = bookController.getBooksByIsbns(List.of("1234", "nope", "9780804139021", "1234"));
+
+        assertEquals(List.of("1234", "nope", "9780804139021", "1234"),
+                results.stream().map(BookController.BookLookup::isbn).toList());
+        assertFalse(results.get(1).found());
+        assertNull(results.get(1).book());
+        assertEquals("The Martian", results.get(2).book().getTitle());
+
+        List<String> tooMany = java.util.stream.IntStream.range(0, 301).mapToObj(String::valueOf).toList();
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () ->
+                bookController.postBooksByIsbns(tooMany));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+
+        // JSON bodies can carry null or blank entries
+        List<String> withNull = java.util.Arrays.asList("1234", null);
+        exception = assertThrows(ResponseStatusException.class, () -> bookController.postBooksByIsbns(withNull));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        exception = assertThrows(ResponseStatusException.class, () -> bookController.postBooksByIsbns(List.of(" ")));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+}
@@ -2,14 +2,24 @@ package com.amazin.svelteamazin.controller;
 
 import com.amazin.svelteamazin.model.Book;
 import com.amazin.svelteamazin.model.BookRepository;
+import com.amazin.svelteamazin.service.CatalogChangeLog;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -25,6 +35,9 @@ class BookTest {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private CatalogChangeLog changeLog;
+
     @BeforeEach
     void setup() {
         bookRepository.deleteAll();
@@ -41,11 +54,72 @@ class BookTest {
 
     @Test
     void getAllBooks_returnsList() throws Exception {
+        awaitFreshListing(get("/api/books"));
         mockMvc.perform(get("/api/books"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$", hasSize(1)))
-                .andExpect(jsonPath("$[0].title").value("Test Book"));
+                .andExpect(jsonPath("$[0].title").value("Test Book"))
+                .andExpect(jsonPath("$[0].description").doesNotExist());
+    }
+
+    @Test
+    void getAllBooks_withFields_returnsSparseRows() throws Exception {
+        awaitFreshListing(get("/api/books").param("fields", "title"));
+        mockMvc.perform(get("/api/books").param("fields", "title"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].isbn").value("9780000000001"))
+                .andExpect(jsonPath("$[0].title").value("Test Book"))
+                .andExpect(jsonPath("$[0].author").doesNotExist());
+    }
+
+    @Test
+    void getAllBooks_servesGzipBytesAndReflectsWrites() throws Exception {
+        awaitFreshListing(get("/api/books"));
+        byte[] gzip = mockMvc.perform(get("/api/books").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).contains("\"Test Book\"");
+        }
+
+        Book book = bookRepository.findById("9780000000001").orElseThrow();
+        book.setInventory(2);
+        bookRepository.save(book);
+
+        awaitFreshListing(get("/api/books"));
+        mockMvc.perform(get("/api/books"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(jsonPath("$[0].inventory").value(2));
+    }
+
+    @Test
+    void stream_pushesCoalescedInventoryForWatchedIsbns() throws Exception {
+        Book other = new Book("9780000000009", "Other", "Someone", "Pub", "g", null, 5.0, 1, "img");
+        bookRepository.save(other);
+
+        MvcResult stream = mockMvc.perform(get("/api/books/stream").param("isbns", "9780000000001"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        Book book = bookRepository.findById("9780000000001").orElseThrow();
+        book.setInventory(4);
+        bookRepository.save(book);
+        book.setInventory(3);
+        bookRepository.save(book);
+        other.setInventory(9);
+        bookRepository.save(other);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        // Wait for the whole event (the blank line that terminates it), not just its first chunk
+        while (!stream.getResponse().getContentAsString().endsWith("\n\n") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        String events = stream.getResponse().getContentAsString();
+        assertThat(events).contains("event:inventory").contains("\"inventory\":3")
+                .doesNotContain("\"inventory\":4").doesNotContain("9780000000009");
     }
 
     @Test
@@ -69,4 +143,14 @@ class BookTest {
                 .andExpect(jsonPath("$.isbn").value("9780000000002"))
                 .andExpect(jsonPath("$.title").value("New Book"));
     }
+
+    // Listings are re-rendered in the background after writes; wait until one carries the latest version
+    private void awaitFreshListing(MockHttpServletRequestBuilder request) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            String version = mockMvc.perform(request).andReturn().getResponse().getHeader("X-Catalog-Version");
+            if (changeLog.getVersion().equals(version)) return;
+            Thread.sleep(10);
+        }
+    }
 }
@@ -6,27 +6,37 @@ import com.amazin.svelteamazin.model.Order;
 import com.amazin.svelteamazin.model.OrderItem;
 import com.amazin.svelteamazin.model.User;
 import com.amazin.svelteamazin.model.BookRepository;
+import com.amazin.svelteamazin.model.BookSummary;
 import com.amazin.svelteamazin.repository.CartItemRepository;
 import com.amazin.svelteamazin.repository.OrderRepository;
 import com.amazin.svelteamazin.repository.UserRepository;
+import com.amazin.svelteamazin.service.BookExistenceFilter;
+import com.amazin.svelteamazin.service.CartStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -46,13 +56,21 @@ class CheckoutControllerTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private CartStore cartStore;
+
+    private BookExistenceFilter existence;
+
     private CheckoutController checkoutController;
 
     private User user;
 
     @BeforeEach
     void setUp() {
-        checkoutController = new CheckoutController(bookRepository, cartItemRepository, orderRepository, userRepository);
+        // Not loaded until a test calls rebuild(), so every ISBN passes
+        existence = new BookExistenceFilter(bookRepository, new SimpleMeterRegistry(), 0.01, 0);
+        checkoutController = new CheckoutController(bookRepository, cartItemRepository, orderRepository, userRepository,
+                cartStore, existence);
         user = new User(1L, "alice", "password", "USER");
     }
 
@@ -95,6 +113,58 @@ class CheckoutControllerTest {
         ArgumentCaptor<User> userCaptor = ArgumentCaptor.forClass(User.class);
         verify(cartItemRepository).deleteByUser(userCaptor.capture());
         assertThat(userCaptor.getValue().getUsername()).isEqualTo("alice");
+
+        // Pending cart changes are written before the cart rows are read
+        InOrder order = inOrder(cartStore, cartItemRepository);
+        order.verify(cartStore).flush(1L);
+        order.verify(cartItemRepository).findByUser(user);
+        // Only the lines checkout read are cleared
+        order.verify(cartStore).clear(1L, Set.of("isbn-1", "isbn-2"));
+    }
+
+    @Test
+    void upsertItemIsServedFromTheCartStore() {
+        BookSummary book = new BookSummary("isbn-1", "First", "a", 10.0, 5, "img1");
+        Map<String, Integer> cart = new LinkedHashMap<>();
+        cart.put("isbn-1", 2);
+
+        when(userRepository.findByUsername("alice")).thenReturn(user);
+        when(cartStore.books(any())).thenReturn(Map.of("isbn-1", book));
+        when(cartStore.set(1L, "isbn-1", 2)).thenReturn(cart);
+
+        List<CheckoutController.CartItemResponse> response =
+                checkoutController.upsertItem(new CheckoutController.CartItemRequest("isbn-1", 2), requestWithUser());
+
+        assertThat(response).containsExactly(new CheckoutController.CartItemResponse("isbn-1", "First", 10.0, 2, "img1", 5));
+        verifyNoInteractions(cartItemRepository, bookRepository);
+    }
+
+    @Test
+    void upsertItemRejectsQuantitiesAboveInventory() {
+        when(userRepository.findByUsername("alice")).thenReturn(user);
+        when(cartStore.books(any())).thenReturn(Map.of("isbn-1", new BookSummary("isbn-1", "First", "a", 10.0, 1, "img1")));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> checkoutController.upsertItem(new CheckoutController.CartItemRequest("isbn-1", 2), requestWithUser()));
+
+        assertThat(exception.getStatusCode().value()).isEqualTo(400);
+        verify(cartStore, never()).set(any(), any(), anyInt());
+    }
+
+    @Test
+    void unknownIsbnsAreRejectedFromTheExistenceFilterWithoutALookup() {
+        when(userRepository.findByUsername("alice")).thenReturn(user);
+        when(bookRepository.findAllIsbns()).thenReturn(List.of("isbn-1"));
+        existence.rebuild();
+
+        ResponseStatusException added = assertThrows(ResponseStatusException.class,
+                () -> checkoutController.upsertItem(new CheckoutController.CartItemRequest("no-such-isbn", 1), requestWithUser()));
+        ResponseStatusException removed = assertThrows(ResponseStatusException.class,
+                () -> checkoutController.removeItem("no-such-isbn", requestWithUser()));
+
+        assertThat(added.getStatusCode().value()).isEqualTo(404);
+        assertThat(removed.getStatusCode().value()).isEqualTo(404);
+        verifyNoInteractions(cartStore);
     }
 
     @Test
@@ -126,6 +196,43 @@ class CheckoutControllerTest {
         verifyNoInteractions(orderRepository);
     }
 
+    @Test
+    void updateItemsValidatesTheWholeBatchWithOneLookupAndAppliesItOnce() {
+        Map<String, Integer> cart = new LinkedHashMap<>();
+        cart.put("isbn-2", 1);
+
+        when(userRepository.findByUsername("alice")).thenReturn(user);
+        when(cartStore.books(any())).thenReturn(Map.of(
+                "isbn-1", new BookSummary("isbn-1", "First", "a", 10.0, 5, "img1"),
+                "isbn-2", new BookSummary("isbn-2", "Second", "a", 20.0, 3, "img2")));
+        when(cartStore.setAll(any(), any())).thenReturn(cart);
+
+        List<CheckoutController.CartItemResponse> response = checkoutController.updateItems(List.of(
+                new CheckoutController.CartItemRequest("isbn-1", 4),
+                new CheckoutController.CartItemRequest("isbn-2", 1),
+                new CheckoutController.CartItemRequest("isbn-1", 0)), requestWithUser());
+
+        assertThat(response).extracting(CheckoutController.CartItemResponse::isbn).containsExactly("isbn-2");
+        verify(cartStore).books(Set.of("isbn-1", "isbn-2"));
+        verify(cartStore).setAll(1L, Map.of("isbn-1", 0, "isbn-2", 1));
+    }
+
+    @Test
+    void updateItemsAppliesNothingWhenOneLineExceedsInventory() {
+        when(userRepository.findByUsername("alice")).thenReturn(user);
+        when(cartStore.books(any())).thenReturn(Map.of(
+                "isbn-1", new BookSummary("isbn-1", "First", "a", 10.0, 5, "img1"),
+                "isbn-2", new BookSummary("isbn-2", "Second", "a", 20.0, 3, "img2")));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> checkoutController.updateItems(List.of(
+                        new CheckoutController.CartItemRequest("isbn-1", 2),
+                        new CheckoutController.CartItemRequest("isbn-2", 4)), requestWithUser()));
+
+        assertThat(exception.getStatusCode().value()).isEqualTo(400);
+        verify(cartStore, never()).setAll(any(), any());
+    }
+
     private HttpServletRequest requestWithUser() {
         MockHttpServletRequest request = new MockHttpServletRequest();
         request.setCookies(new Cookie("username", "alice"), new Cookie("role", "USER"));
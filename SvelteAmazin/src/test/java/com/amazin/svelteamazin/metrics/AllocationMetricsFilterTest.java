@@ -0,0 +1,81 @@
+package com.amazin.svelteamazin.metrics;
+
+import com.amazin.svelteamazin.model.Book;
+import com.amazin.svelteamazin.model.BookRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class AllocationMetricsFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        bookRepository.deleteAll();
+        bookRepository.save(new Book("9780000000001", "Test Book", "Test Author", "Pub", "Genre", "Desc", 9.99, 5, "img"));
+    }
+
+    @Test
+    void recordsAllocatedBytesAndResponseSizePerHandler() throws Exception {
+        byte[] body = mockMvc.perform(get("/api/books/9780000000001"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        DistributionSummary size = meterRegistry.find("amazin.response.size")
+                .tag("handler", "BookController#getBookByIsbn").summary();
+        DistributionSummary allocated = meterRegistry.find("amazin.request.allocated")
+                .tag("handler", "BookController#getBookByIsbn").summary();
+
+        assertThat(size).isNotNull();
+        assertThat(size.totalAmount()).isGreaterThanOrEqualTo(body.length);
+        assertThat(allocated).isNotNull();
+        assertThat(allocated.mean()).isPositive();
+    }
+
+    @Test
+    void recordsAsyncHandlersOnceTheyComplete() throws Exception {
+        double before = count("amazin.response.size", "AuthController#userLogin");
+
+        MvcResult login = mockMvc.perform(post("/api/auth/user-login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"nobody\",\"password\":\"wrong\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(count("amazin.response.size", "AuthController#userLogin")).isEqualTo(before);
+
+        mockMvc.perform(asyncDispatch(login)).andExpect(status().isUnauthorized());
+
+        assertThat(count("amazin.response.size", "AuthController#userLogin")).isEqualTo(before + 1);
+        assertThat(meterRegistry.find("amazin.request.allocated")
+                .tag("handler", "AuthController#userLogin").summary().mean()).isPositive();
+    }
+
+    private double count(String name, String handler) {
+        DistributionSummary summary = meterRegistry.find(name).tag("handler", handler).summary();
+        return summary == null ? 0 : summary.count();
+    }
+}
@@ -0,0 +1,70 @@
+package com.amazin.svelteamazin.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotPathRegistryTest {
+
+    @Test
+    void histogramBucketsBoundRelativeError() {
+        for (long micros : new long[]{1, 15, 16, 17, 100, 1_000, 12_345, 10_000_000}) {
+            long upper = LatencyHistogram.upperBound(LatencyHistogram.indexOf(micros));
+            assertThat(upper).isGreaterThanOrEqualTo(micros);
+            assertThat((double) upper).isLessThanOrEqualTo(micros * 1.125 + 1);
+        }
+    }
+
+    @Test
+    void mergesHistogramsRecordedOnDifferentThreads() throws Exception {
+        HotPathRegistry registry = new HotPathRegistry(60, 6, 3);
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 99; i++) {
+                    registry.record("BookController#getAllBooks", "GET /api/books", TimeUnit.MILLISECONDS.toNanos(1));
+                }
+                registry.record("BookController#getAllBooks", "GET /api/books?slow", TimeUnit.MILLISECONDS.toNanos(500));
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        registry.record("AuthController#me", "GET /api/auth/me", TimeUnit.MICROSECONDS.toNanos(50));
+
+        List<HotPathRegistry.HandlerSummary> summaries = registry.snapshot(10);
+
+        assertThat(summaries).extracting(HotPathRegistry.HandlerSummary::handler)
+                .containsExactly("BookController#getAllBooks", "AuthController#me");
+        HotPathRegistry.HandlerSummary books = summaries.get(0);
+        assertThat(books.count()).isEqualTo(400);
+        assertThat(books.p50Ms()).isBetween(1.0, 1.2);
+        assertThat(books.maxMs()).isBetween(500.0, 560.0);
+        assertThat(books.worst()).hasSize(3).allMatch(w -> w.uri().endsWith("?slow"));
+
+        assertThat(registry.snapshot(1)).hasSize(1);
+    }
+
+    @Test
+    void recordersOfTerminatedThreadsAreFoldedIntoTheWindow() throws Exception {
+        HotPathRegistry registry = new HotPathRegistry(60, 6, 3);
+
+        for (int t = 0; t < 50; t++) {
+            Thread thread = new Thread(() ->
+                    registry.record("BookController#getAllBooks", "GET /api/books", TimeUnit.MILLISECONDS.toNanos(2)));
+            thread.start();
+            thread.join();
+        }
+        registry.record("BookController#getAllBooks", "GET /api/books", TimeUnit.MILLISECONDS.toNanos(2));
+
+        HotPathRegistry.HandlerSummary books = registry.snapshot(1).get(0);
+        assertThat(books.count()).isEqualTo(51);
+        assertThat(registry.recorderCount("BookController#getAllBooks")).isEqualTo(1);
+        assertThat(books.p50Ms()).isBetween(2.0, 2.3);
+        // Counts survive the prune: a second snapshot still sees all of them
+        assertThat(registry.snapshot(1).get(0).count()).isEqualTo(51);
+    }
+}
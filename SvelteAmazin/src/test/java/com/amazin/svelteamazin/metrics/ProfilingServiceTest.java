@@ -0,0 +1,59 @@
+package com.amazin.svelteamazin.metrics;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProfilingServiceTest {
+
+    private final ProfilingService profiling = new ProfilingService(30, 10);
+
+    @AfterEach
+    void tearDown() {
+        profiling.shutdown();
+    }
+
+    @Test
+    void recordingCanBeStartedStoppedAndDownloaded() throws Exception {
+        assertThat(profiling.status()).containsEntry("state", "NONE");
+
+        profiling.start(3600);
+        assertThat(profiling.status()).containsEntry("state", "RUNNING").containsEntry("duration", 30L);
+        assertThrows(ResponseStatusException.class, () -> profiling.start(10));
+
+        JfrEvents.Search search = new JfrEvents.Search();
+        search.query = "martian";
+        search.commit();
+
+        assertThat(profiling.stop()).containsEntry("state", "STOPPED").containsEntry("downloadable", true);
+        byte[] jfr = profiling.download();
+        assertThat(new String(jfr, 0, 4)).isEqualTo("FLR\0");
+
+        Path file = Files.createTempFile("profiling-test-", ".jfr");
+        try {
+            Files.write(file, jfr);
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertThat(events)
+                    .filteredOn(event -> event.getEventType().getName().equals("amazin.Search"))
+                    .extracting(event -> event.getString("query"))
+                    .containsExactly("martian");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void downloadWithoutRecordingIsNotFound() {
+        assertThrows(ResponseStatusException.class, profiling::download);
+        assertThrows(ResponseStatusException.class, profiling::stop);
+    }
+}
@@ -0,0 +1,50 @@
+package com.amazin.svelteamazin.metrics;
+
+import com.amazin.svelteamazin.model.Book;
+import com.amazin.svelteamazin.model.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "app.server-timing.enabled=true")
+@AutoConfigureMockMvc
+class ServerTimingFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @BeforeEach
+    void setup() {
+        bookRepository.deleteAll();
+        bookRepository.save(new Book("9780000000001", "Test Book", "Test Author", "Pub", "Genre", "Desc", 9.99, 5, "img"));
+    }
+
+    @Test
+    void apiResponse_hasServerTimingBreakdown() throws Exception {
+        mockMvc.perform(get("/api/books"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().string(ServerTimingFilter.HEADER, allOf(
+                        containsString("db;desc=\"1 query\""),
+                        containsString("ser;dur="),
+                        containsString("app;dur="),
+                        containsString("total;dur="))));
+    }
+
+    @Test
+    void notFound_stillReportsTimings() throws Exception {
+        mockMvc.perform(get("/api/books/does-not-exist"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().exists(ServerTimingFilter.HEADER));
+    }
+}
@@ -0,0 +1,59 @@
+package com.amazin.svelteamazin.metrics;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimedDataSourceTest {
+
+    @Test
+    void reportsSqlAndParameterShapeForEveryExecution() throws Exception {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:timed;DB_CLOSE_DELAY=-1");
+
+        List<String> seen = new ArrayList<>();
+        DataSource ds = TimedDataSource.wrap(h2, (sql, shape, nanos) -> seen.add(sql + " " + shape));
+
+        try (Connection c = ds.getConnection()) {
+            try (Statement s = c.createStatement()) {
+                s.execute("create table t (name varchar(20), qty int)");
+            }
+            try (PreparedStatement ps = c.prepareStatement("insert into t values (?, ?)")) {
+                ps.setString(1, "a");
+                ps.setInt(2, 3);
+                ps.executeUpdate();
+            }
+        }
+
+        assertThat(seen).containsExactly(
+                "create table t (name varchar(20), qty int) []",
+                "insert into t values (?, ?) [String, Integer]");
+    }
+
+    @Test
+    void attributesStatementsToBoundRequestTimings() throws Exception {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:timed2;DB_CLOSE_DELAY=-1");
+        DataSource ds = TimedDataSource.wrap(h2, (sql, shape, nanos) -> {});
+
+        RequestTimings timings = new RequestTimings();
+        RequestTimings.bind(timings);
+        try (Connection c = ds.getConnection(); Statement s = c.createStatement()) {
+            s.executeQuery("select 1").close();
+            s.executeQuery("select 2").close();
+        } finally {
+            RequestTimings.unbind();
+        }
+
+        assertThat(timings.getStatementCount()).isEqualTo(2);
+        assertThat(timings.toHeaderValue()).startsWith("db;desc=\"2 queries\"");
+    }
+}
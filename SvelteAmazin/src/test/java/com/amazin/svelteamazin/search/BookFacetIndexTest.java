@@ -0,0 +1,116 @@
+package com.amazin.svelteamazin.search;
+
+import com.amazin.svelteamazin.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookFacetIndexTest {
+
+    private BookFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookFacetIndex();
+        index.rebuild(List.of(
+                book("1", "Dune", "Frank Herbert", "Science Fiction, Classic", 12.0),
+                book("2", "The Martian", "Andy Weir", "Science Fiction", 19.99),
+                book("3", "Dracula", "Bram Stoker", "Horror, Classic", 7.5),
+                book("4", "It", "Stephen King", "horror", 35.0),
+                book("5", "Emma", "Jane Austen", "Classic, Romance", 55.0)
+        ));
+    }
+
+    @Test
+    void facetsExcludeTheirOwnFilter() {
+        BookFacetIndex.Result result = index.query(query(null, List.of("Horror"), null, null, BookFacetIndex.SortKey.NONE, false));
+
+        assertThat(result.isbns()).containsExactly("3", "4");
+        assertThat(result.total()).isEqualTo(2);
+        // genre counts ignore the genre filter itself, labels keep their first-seen casing
+        assertThat(result.genres()).containsEntry("Horror", 2).containsEntry("Classic", 3)
+                .containsEntry("Science Fiction", 2).containsEntry("Romance", 1);
+        // price buckets are restricted to horror books
+        assertThat(result.prices()).extracting(BookFacetIndex.PriceFacet::count).containsExactly(1, 0, 0, 1, 0);
+    }
+
+    @Test
+    void priceRangeIsInclusiveAndSortable() {
+        BookFacetIndex.Result result = index.query(query(null, null, 12.0, 35.0, BookFacetIndex.SortKey.PRICE, true));
+
+        assertThat(result.isbns()).containsExactly("4", "2", "1");
+    }
+
+    @Test
+    void termMatchesTitleOrAuthorCaseInsensitively() {
+        BookFacetIndex.Result result = index.query(query("KING", null, null, null, BookFacetIndex.SortKey.NONE, false));
+
+        assertThat(result.isbns()).containsExactly("4");
+    }
+
+    @Test
+    void paginatesSortedResults() {
+        BookFacetIndex.Query page1 = new BookFacetIndex.Query(null, null, null, null, BookFacetIndex.SortKey.TITLE, false, 1, 2);
+
+        BookFacetIndex.Result result = index.query(page1);
+
+        assertThat(result.total()).isEqualTo(5);
+        assertThat(result.isbns()).containsExactly("5", "4");
+    }
+
+    @Test
+    void sortsSmallCandidateSetsByRank() {
+        for (int i = 0; i < 100; i++) {
+            index.upsert(book("x" + i, "Filler " + i, "Nobody", "Filler", 1.0 + i));
+        }
+
+        BookFacetIndex.Result result = index.query(query(null, List.of("classic"), null, null, BookFacetIndex.SortKey.AUTHOR, false));
+
+        assertThat(result.isbns()).containsExactly("3", "1", "5");
+    }
+
+    @Test
+    void writesUpdateTheIndexIncrementally() {
+        index.upsert(book("4", "It", "Stephen King", "Thriller", 8.0));
+        index.remove("3");
+
+        BookFacetIndex.Result horror = index.query(query(null, List.of("horror"), null, null, BookFacetIndex.SortKey.NONE, false));
+        BookFacetIndex.Result cheap = index.query(query(null, null, null, 9.99, BookFacetIndex.SortKey.PRICE, false));
+
+        assertThat(horror.isbns()).isEmpty();
+        assertThat(horror.genres()).doesNotContainKey("Horror").containsEntry("Thriller", 1);
+        assertThat(cheap.isbns()).containsExactly("4");
+    }
+
+    @Test
+    void repricedAndRetitledBooksMoveWithinTheirOrderings() {
+        // Warm the orderings so the writes below have to keep them current
+        index.query(query(null, null, null, null, BookFacetIndex.SortKey.PRICE, false));
+        index.query(query(null, null, null, null, BookFacetIndex.SortKey.TITLE, false));
+
+        index.upsert(book("5", "Emma", "Jane Austen", "Classic, Romance", 5.0));
+        index.upsert(book("2", "Abaddon's Gate", "Andy Weir", "Science Fiction", 19.99));
+        index.upsert(book("6", "Beloved", "Toni Morrison", "Classic", 20.0));
+        index.remove("1");
+
+        BookFacetIndex.Result byPrice = index.query(query(null, null, null, null, BookFacetIndex.SortKey.PRICE, false));
+        BookFacetIndex.Result byTitle = index.query(query(null, null, null, null, BookFacetIndex.SortKey.TITLE, false));
+        BookFacetIndex.Result midRange = index.query(query(null, null, 19.99, 20.0, BookFacetIndex.SortKey.PRICE, true));
+
+        assertThat(byPrice.isbns()).containsExactly("5", "3", "2", "6", "4");
+        assertThat(byTitle.isbns()).containsExactly("2", "6", "3", "5", "4");
+        assertThat(midRange.isbns()).containsExactly("6", "2");
+    }
+
+    private static BookFacetIndex.Query query(String term, List<String> genres, Double min, Double max,
+                                              BookFacetIndex.SortKey sort, boolean descending) {
+        return new BookFacetIndex.Query(term, genres, min, max, sort, descending, 0, 10);
+    }
+
+    private static Book book(String isbn, String title, String author, String genre, double price) {
+        return new Book(isbn, title, author, "Pub", genre, "desc", price, 1, "img");
+    }
+}
@@ -0,0 +1,94 @@
+package com.amazin.svelteamazin.search;
+
+import com.amazin.svelteamazin.model.Book;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fuzzy search latency on a synthetic one-million-book catalog.
+ * Run with: ./mvnw test -Dtest=FuzzySearchBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FuzzySearchBenchmarkTest {
+
+    private static final int BOOKS = 1_000_000;
+    private static final int VOCABULARY = 60_000;
+    private static final int QUERIES = 5_000;
+    private static final String[] SYLLABLES = {
+            "al", "be", "chem", "dra", "en", "for", "gal", "ist", "ka", "lon", "mar", "ne",
+            "or", "pol", "qui", "ra", "sto", "tian", "un", "ver", "wei", "xa", "yor", "zen"
+    };
+
+    @Test
+    void fuzzySearchOnAMillionBooks() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for (int s = 0; s < syllables; s++) word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            vocabulary[i] = word.toString();
+        }
+
+        List<Book> books = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            String title = phrase(random, vocabulary, 2 + random.nextInt(3));
+            String author = phrase(random, vocabulary, 2);
+            books.add(new Book("isbn-" + i, title, author, "Pub", "g", null, 10.0, 1, null));
+        }
+
+        FuzzySearchIndex index = new FuzzySearchIndex();
+        long buildStart = System.nanoTime();
+        index.rebuild(books);
+        long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+
+        // Queries are two words of a real title with a typo injected into each
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String[] words = books.get(random.nextInt(BOOKS)).getTitle().split(" ");
+            queries[i] = typo(random, words[0]) + " " + typo(random, words[1]);
+        }
+        for (int i = 0; i < 20_000; i++) index.search(queries[i % QUERIES], 50);   // warm-up
+
+        long[] nanos = new long[QUERIES];
+        int hits = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            long start = System.nanoTime();
+            hits += index.search(queries[i], 50).isEmpty() ? 0 : 1;
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+
+        System.out.printf("fuzzy search: %d books, build %d ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms, %d/%d queries matched%n",
+                BOOKS, buildMs, nanos[QUERIES / 2] / 1e6, nanos[QUERIES * 99 / 100] / 1e6, nanos[QUERIES - 1] / 1e6,
+                hits, QUERIES);
+        assertThat(hits).isEqualTo(QUERIES);
+    }
+
+    private static String phrase(Random random, String[] vocabulary, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int w = 0; w < words; w++) {
+            if (w > 0) sb.append(' ');
+            sb.append(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return sb.toString();
+    }
+
+    /** Swaps two adjacent letters of words long enough to be allowed a typo. */
+    private static String typo(Random random, String word) {
+        if (FuzzySearchIndex.maxDistance(word.length()) == 0) return word;
+        char[] chars = word.toCharArray();
+        int i = 1 + random.nextInt(chars.length - 2);
+        char t = chars[i];
+        chars[i] = chars[i + 1];
+        chars[i + 1] = t;
+        return new String(chars);
+    }
+}
@@ -0,0 +1,71 @@
+package com.amazin.svelteamazin.search;
+
+import com.amazin.svelteamazin.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FuzzySearchIndexTest {
+
+    private FuzzySearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FuzzySearchIndex();
+        index.rebuild(List.of(
+                book("1", "The Alchemist", "Paulo Coelho"),
+                book("2", "The Martian", "Andy Weir"),
+                book("3", "Martin Eden", "Jack London"),
+                book("4", "It", "Stephen King")
+        ));
+    }
+
+    @Test
+    void findsTitlesWithTyposAndTranspositions() {
+        assertThat(index.search("Alchmist", 10)).containsExactly("1");
+        assertThat(index.search("martain", 10)).containsExactly("2", "3");
+        assertThat(index.search("the martain", 10)).containsExactly("2");
+    }
+
+    @Test
+    void closerMatchesRankFirst() {
+        assertThat(index.search("martin", 10)).containsExactly("3", "2");
+    }
+
+    @Test
+    void shortWordsMustMatchExactly() {
+        assertThat(index.search("it", 10)).containsExactly("4");
+        assertThat(index.search("is", 10)).isEmpty();
+    }
+
+    @Test
+    void matchesAuthorsAndRespectsLimit() {
+        assertThat(index.search("stephn king", 10)).containsExactly("4");
+        assertThat(index.search("the", 1)).hasSize(1);
+    }
+
+    @Test
+    void followsUpdatesAndDeletes() {
+        index.upsert(book("1", "Brida", "Paulo Coelho"));
+        index.remove("2");
+
+        assertThat(index.search("alchemist", 10)).isEmpty();
+        assertThat(index.search("coelo", 10)).containsExactly("1");
+        assertThat(index.search("martian", 10)).containsExactly("3");
+    }
+
+    @Test
+    void boundedDistanceGivesUpPastTheBound() {
+        assertThat(FuzzySearchIndex.boundedDistance("martain", "martian", 2)).isEqualTo(1);
+        assertThat(FuzzySearchIndex.boundedDistance("alchmist", "alchemist", 2)).isEqualTo(1);
+        assertThat(FuzzySearchIndex.boundedDistance("kitten", "sitting", 2)).isEqualTo(3);
+        assertThat(FuzzySearchIndex.boundedDistance("abc", "abcdef", 2)).isEqualTo(3);
+    }
+
+    private static Book book(String isbn, String title, String author) {
+        return new Book(isbn, title, author, "Pub", "g", "d", 10.0, 1, "img");
+    }
+}
@@ -0,0 +1,57 @@
+package com.amazin.svelteamazin.search;
+
+import com.amazin.svelteamazin.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RelevanceIndexTest {
+
+    private RelevanceIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new RelevanceIndex();
+        index.rebuild(List.of(
+                book("title", "Dragon Tales", "Ann Smith", "Stories for children"),
+                book("author", "Collected Works", "Joe Dragon", "Poems and essays"),
+                book("description", "Castle Nights", "Lee Park", "A dragon guards the castle"),
+                book("none", "Cooking Basics", "Sam Cook", "Recipes for every day")
+        ));
+    }
+
+    @Test
+    void titleOutranksAuthorOutranksDescription() {
+        assertThat(index.search("dragon", 10)).containsExactly("title", "author", "description");
+    }
+
+    @Test
+    void rarerTermsWeighMore() {
+        index.upsert(book("common", "Castle Dragon Castle", "Bo Lin", "castle castle"));
+
+        // "guards" is unique to one book, so it beats repeated mentions of the common word
+        assertThat(index.search("castle guards", 10).get(0)).isEqualTo("description");
+    }
+
+    @Test
+    void keepsOnlyTopK() {
+        assertThat(index.search("dragon", 2)).containsExactly("title", "author");
+        assertThat(index.search("nothing matches", 5)).isEmpty();
+    }
+
+    @Test
+    void statisticsFollowWrites() {
+        index.remove("title");
+        index.upsert(book("author", "Collected Works", "Joe Smith", "Poems and essays"));
+
+        assertThat(index.search("dragon", 10)).containsExactly("description");
+        assertThat(index.search("smith", 10)).containsExactly("author");
+    }
+
+    private static Book book(String isbn, String title, String author, String description) {
+        return new Book(isbn, title, author, "Pub", "g", description, 10.0, 1, "img");
+    }
+}
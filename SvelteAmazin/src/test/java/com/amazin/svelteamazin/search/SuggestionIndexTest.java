@@ -0,0 +1,67 @@
+package com.amazin.svelteamazin.search;
+
+import com.amazin.svelteamazin.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestionIndexTest {
+
+    private SuggestionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SuggestionIndex();
+        index.rebuild(List.of(
+                book("1", "The Martian", "Andy Weir", 5),
+                book("2", "Project Hail Mary", "Andy Weir", 1),
+                book("3", "Mary Poppins", "P. L. Travers", 9),
+                book("4", "Mars Attacks", "Len Brown", 2)
+        ));
+    }
+
+    @Test
+    void completesWordStartsRankedByStock() {
+        List<SuggestionIndex.Suggestion> result = index.suggest("MAR", 10);
+
+        assertThat(result).extracting(SuggestionIndex.Suggestion::text)
+                .containsExactly("Mary Poppins", "The Martian", "Mars Attacks", "Project Hail Mary");
+        assertThat(result.get(0).isbn()).isEqualTo("3");
+    }
+
+    @Test
+    void authorsAggregateStockOfTheirBooks() {
+        List<SuggestionIndex.Suggestion> result = index.suggest("andy", 5);
+
+        assertThat(result).containsExactly(new SuggestionIndex.Suggestion("Andy Weir", "author", null));
+    }
+
+    @Test
+    void respectsLimit() {
+        assertThat(index.suggest("mar", 2)).hasSize(2);
+        assertThat(index.suggest("zzz", 5)).isEmpty();
+        assertThat(index.suggest("  ", 5)).isEmpty();
+    }
+
+    @Test
+    void followsUpdatesAndDeletes() {
+        index.upsert(book("4", "Mars Attacks", "Len Brown", 50));
+        index.remove("3");
+
+        assertThat(index.suggest("mar", 10)).extracting(SuggestionIndex.Suggestion::text)
+                .containsExactly("Mars Attacks", "The Martian", "Project Hail Mary");
+        assertThat(index.suggest("poppins", 10)).isEmpty();
+        assertThat(index.suggest("travers", 10)).isEmpty();
+
+        index.remove("1");
+        index.remove("2");
+        assertThat(index.suggest("weir", 10)).isEmpty();
+    }
+
+    private static Book book(String isbn, String title, String author, int inventory) {
+        return new Book(isbn, title, author, "Pub", "g", "d", 10.0, inventory, "img");
+    }
+}
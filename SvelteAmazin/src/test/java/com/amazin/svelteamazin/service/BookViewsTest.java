@@ -0,0 +1,98 @@
+package com.amazin.svelteamazin.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BookViewsTest {
+
+    private BookViews views;
+
+    @BeforeEach
+    void setUp() {
+        // Window rollover only on demand
+        views = new BookViews(4, 1024, 5, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        views.shutdown();
+    }
+
+    @Test
+    void heavyHittersRiseAboveALongTailOfSingleViews() {
+        Random random = new Random(7);
+        List<String> stream = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) stream.add("tail-" + i);
+        for (int hot = 0; hot < 5; hot++) {
+            for (int v = 0; v < 500 - hot * 50; v++) stream.add("hot-" + hot);
+        }
+        Collections.shuffle(stream, random);
+        stream.forEach(views::record);
+
+        BookViews.Window window = views.current(5);
+
+        assertThat(window.views()).isEqualTo(stream.size());
+        assertThat(window.top()).extracting(BookViews.BookCount::isbn)
+                .containsExactly("hot-0", "hot-1", "hot-2", "hot-3", "hot-4");
+        // Count-Min never undercounts
+        assertThat(window.top().get(0).views()).isGreaterThanOrEqualTo(500);
+        assertThat(views.estimate("hot-4")).isGreaterThanOrEqualTo(300);
+    }
+
+    @Test
+    void concurrentRecordingLosesNoViews() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 4; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 10_000; i++) views.record("isbn-" + (i % 3));
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(views.current(3).views()).isEqualTo(40_000);
+        assertThat(views.estimate("isbn-0")).isGreaterThanOrEqualTo(13_336);
+        assertThat(views.current(3).top()).hasSize(3);
+    }
+
+    @Test
+    void rolloverStartsAFreshWindowAndKeepsThePreviousOne() {
+        assertThat(views.previous(5)).isNull();
+        views.record("a");
+        views.record("a");
+        views.rollover();
+        views.record("b");
+
+        assertThat(views.current(5).top()).extracting(BookViews.BookCount::isbn).containsExactly("b");
+        BookViews.Window previous = views.previous(5);
+        assertThat(previous.top()).containsExactly(new BookViews.BookCount("a", 2));
+        assertThat(previous.end()).isEqualTo(views.current(5).start());
+        assertThat(views.estimate("a")).isEqualTo(2);
+
+        views.rollover();
+        views.rollover();
+        assertThat(views.estimate("a")).isZero();
+    }
+
+    @Test
+    void widthMustBeAPowerOfTwo() {
+        assertThatThrownBy(() -> new BookViews(4, 1000, 5, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,153 @@
+package com.amazin.svelteamazin.service;
+
+import com.amazin.svelteamazin.model.Book;
+import com.amazin.svelteamazin.model.BookRepository;
+import com.amazin.svelteamazin.model.CartItem;
+import com.amazin.svelteamazin.repository.CartItemRepository;
+import com.amazin.svelteamazin.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+class CartStoreTest {
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = userRepository.findByUsername("john").getId();
+        bookRepository.save(new Book("cart-1", "First", "a", "p", "g", "d", 10.0, 5, "img1"));
+        bookRepository.save(new Book("cart-2", "Second", "a", "p", "g", "d", 20.0, 5, "img2"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        Map<String, Integer> empty = new HashMap<>();
+        cartStore.get(userId).keySet().forEach(isbn -> empty.put(isbn, 0));
+        cartStore.setAll(userId, empty);
+        cartStore.flush(userId);
+        cartItemRepository.deleteAll(cartItemRepository.findByUserIdOrderById(userId));
+        bookRepository.deleteAllById(List.of("cart-1", "cart-2"));
+    }
+
+    @Test
+    void changesAreServedFromMemoryAndFlushedAsLatestQuantities() {
+        cartStore.set(userId, "cart-1", 1);
+        cartStore.set(userId, "cart-1", 3);
+        cartStore.set(userId, "cart-2", 2);
+        Map<String, Integer> cart = cartStore.set(userId, "cart-2", 0);
+
+        assertThat(cart).containsExactly(Map.entry("cart-1", 3));
+        assertThat(cartStore.get(userId)).isEqualTo(cart);
+
+        cartStore.flush(userId);
+
+        assertThat(cartItemRepository.findByUserIdOrderById(userId))
+                .extracting(item -> item.getBook().getIsbn(), CartItem::getQuantity)
+                .containsExactly(tuple("cart-1", 3));
+    }
+
+    @Test
+    void batchesAreAppliedTogetherAndFlushedInOneWrite() {
+        cartStore.set(userId, "cart-1", 1);
+        Map<String, Integer> cart = cartStore.setAll(userId, Map.of("cart-1", 0, "cart-2", 2));
+
+        assertThat(cart).containsExactly(Map.entry("cart-2", 2));
+
+        cartStore.flush(userId);
+
+        assertThat(cartStore.getPending()).isZero();
+        assertThat(cartItemRepository.findByUserIdOrderById(userId))
+                .extracting(item -> item.getBook().getIsbn(), CartItem::getQuantity)
+                .containsExactly(tuple("cart-2", 2));
+    }
+
+    @Test
+    void linesForBooksDeletedBeforeTheFlushAreDropped() {
+        bookRepository.save(new Book("cart-gone", "Gone", "a", "p", "g", "d", 5.0, 5, "img"));
+        cartStore.set(userId, "cart-1", 1);
+        cartStore.set(userId, "cart-gone", 2);
+        bookRepository.deleteById("cart-gone");
+
+        cartStore.flush(userId);
+
+        assertThat(cartStore.getPending()).isZero();
+        assertThat(cartStore.get(userId)).containsExactly(Map.entry("cart-1", 1));
+        assertThat(cartItemRepository.findByUserIdOrderById(userId))
+                .extracting(item -> item.getBook().getIsbn(), CartItem::getQuantity)
+                .containsExactly(tuple("cart-1", 1));
+    }
+
+    @Test
+    void changesMadeDuringACheckoutOutliveItsClear() {
+        cartStore.set(userId, "cart-1", 1);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            cartStore.flush(userId);
+            List<CartItem> consumed = cartItemRepository.findByUserIdOrderById(userId);
+            // Lands after checkout read the table; the background flusher must not write it yet
+            cartStore.set(userId, "cart-2", 2);
+            cartItemRepository.deleteAll(consumed);
+            cartStore.clear(userId, List.of("cart-1"));
+        });
+
+        assertThat(cartStore.get(userId)).containsExactly(Map.entry("cart-2", 2));
+        cartStore.flush(userId);
+        assertThat(cartItemRepository.findByUserIdOrderById(userId))
+                .extracting(item -> item.getBook().getIsbn(), CartItem::getQuantity)
+                .containsExactly(tuple("cart-2", 2));
+    }
+
+    @Test
+    void cartsAreReloadedFromTheTableAfterARestart() {
+        cartStore.set(userId, "cart-2", 1);
+        cartStore.set(userId, "cart-1", 4);
+        cartStore.flush(userId);
+
+        CartStore restarted = new CartStore(cartItemRepository, bookRepository, userRepository,
+                transactionManager, 4, 60_000, 30);
+        try {
+            assertThat(restarted.get(userId)).containsExactly(Map.entry("cart-2", 1), Map.entry("cart-1", 4));
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    void bookSnapshotsFollowCommittedWrites() {
+        assertThat(cartStore.books(List.of("cart-1")).get("cart-1").inventory()).isEqualTo(5);
+
+        Book book = bookRepository.findById("cart-1").orElseThrow();
+        book.setInventory(2);
+        bookRepository.save(book);
+
+        assertThat(cartStore.books(List.of("cart-1")).get("cart-1").inventory()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,124 @@
+package com.amazin.svelteamazin.service;
+
+import com.amazin.svelteamazin.model.Book;
+import com.amazin.svelteamazin.model.BookRepository;
+import com.amazin.svelteamazin.model.CartItem;
+import com.amazin.svelteamazin.repository.CartItemRepository;
+import com.amazin.svelteamazin.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class CartSweeperTest {
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<String> isbns = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 5; i++) {
+            isbns.add(bookRepository.save(new Book("sweep-" + i, "Book " + i, "a", "p", "g", "d", 5.0, 10, null)).getIsbn());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartItemRepository.deleteAll(cartItemRepository.findAll().stream()
+                .filter(item -> item.getBook().getIsbn().startsWith("sweep-")).toList());
+        bookRepository.deleteAllById(isbns);
+    }
+
+    @Test
+    void deletesOnlyExpiredCartsInBoundedBatches() {
+        Instant old = Instant.now().minus(Duration.ofDays(40));
+        // john's cart is stale, sarah's was edited just now
+        for (int i = 0; i < 5; i++) save("john", isbns.get(i), old);
+        save("sarah", isbns.get(0), Instant.now());
+
+        CartSweeper sweeper = new CartSweeper(cartItemRepository, cartStore, new SimpleMeterRegistry(),
+                false, 30, 60, 2, 0, 10);
+        CartSweeper.Run run = sweeper.sweep();
+
+        assertThat(run.rows()).isEqualTo(5);
+        assertThat(run.carts()).isEqualTo(1);
+        assertThat(run.batches()).isEqualTo(3);
+        assertThat(cartItemRepository.findByUserIdOrderById(userRepository.findByUsername("john").getId())).isEmpty();
+        assertThat(cartItemRepository.findByUserIdOrderById(userRepository.findByUsername("sarah").getId())).hasSize(1);
+        sweeper.shutdown();
+    }
+
+    @Test
+    void stopsAfterMaxBatchesAndLeavesTheRestForTheNextRun() {
+        Instant old = Instant.now().minus(Duration.ofDays(40));
+        for (int i = 0; i < 5; i++) save("john", isbns.get(i), old);
+
+        CartSweeper sweeper = new CartSweeper(cartItemRepository, cartStore, new SimpleMeterRegistry(),
+                false, 30, 60, 2, 0, 1);
+
+        assertThat(sweeper.sweep().rows()).isEqualTo(2);
+        assertThat(sweeper.sweep().rows()).isEqualTo(2);
+        assertThat(sweeper.sweep().rows()).isEqualTo(1);
+        assertThat(sweeper.getLastRun().rows()).isEqualTo(1);
+        sweeper.shutdown();
+    }
+
+    @Test
+    void sweptLinesLeaveTheCachedCartEvenWithUnwrittenChanges() {
+        Instant old = Instant.now().minus(Duration.ofDays(40));
+        save("john", isbns.get(0), old);
+        save("john", isbns.get(1), old);
+        Long john = userRepository.findByUsername("john").getId();
+
+        // Flushes only when asked, so the edit is still pending when the sweep runs
+        CartStore store = new CartStore(cartItemRepository, bookRepository, userRepository,
+                transactionManager, 4, 60_000, 30);
+        CartSweeper sweeper = new CartSweeper(cartItemRepository, store, new SimpleMeterRegistry(),
+                false, 30, 60, 10, 0, 10);
+        try {
+            store.set(john, isbns.get(2), 1);
+            assertThat(sweeper.sweep().rows()).isEqualTo(2);
+
+            assertThat(store.get(john)).containsExactly(Map.entry(isbns.get(2), 1));
+            store.flush(john);
+            assertThat(cartItemRepository.findByUserIdOrderById(john))
+                    .extracting(item -> item.getBook().getIsbn())
+                    .containsExactly(isbns.get(2));
+        } finally {
+            sweeper.shutdown();
+            store.shutdown();
+        }
+    }
+
+    private void save(String username, String isbn, Instant updatedAt) {
+        CartItem item = new CartItem(userRepository.findByUsername(username), bookRepository.getReferenceById(isbn), 1);
+        item.setUpdatedAt(updatedAt);
+        cartItemRepository.save(item);
+    }
+}
@@ -0,0 +1,67 @@
+package com.amazin.svelteamazin.service;
+
+import com.amazin.svelteamazin.model.Book;
+import com.amazin.svelteamazin.model.BookChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogChangeLogTest {
+
+    private final CatalogChangeLog log = new CatalogChangeLog(3);
+
+    @Test
+    void keepsOnlyTheLatestChangePerIsbn() {
+        String start = log.since(null).version();
+
+        write(BookChangedEvent.Kind.CREATED, "a", 1);
+        write(BookChangedEvent.Kind.UPDATED, "a", 2);
+        write(BookChangedEvent.Kind.DELETED, "a", 2);
+
+        CatalogChangeLog.Changes changes = log.since(start);
+        assertThat(changes.resync()).isFalse();
+        assertThat(changes.version()).isEqualTo(plus(start, 3));
+        assertThat(changes.changes()).singleElement()
+                .satisfies(change -> {
+                    assertThat(change.isbn()).isEqualTo("a");
+                    assertThat(change.deleted()).isTrue();
+                    assertThat(change.book()).isNull();
+                });
+    }
+
+    @Test
+    void clientsBehindDroppedEntriesMustResync() {
+        String start = log.since(null).version();
+        for (String isbn : new String[] {"a", "b", "c", "d"}) {
+            write(BookChangedEvent.Kind.CREATED, isbn, 1);
+        }
+
+        assertThat(log.since(start).resync()).isTrue();
+        assertThat(log.since(plus(start, 1)).changes()).extracting(CatalogChangeLog.Change::isbn)
+                .containsExactly("b", "c", "d");
+        assertThat(log.since(plus(start, 99)).resync()).isTrue();
+    }
+
+    @Test
+    void versionsFromAnotherRunMustResync() {
+        CatalogChangeLog previousRun = new CatalogChangeLog(3);
+        // Both runs count from zero, so only the run id tells them apart
+        write(BookChangedEvent.Kind.CREATED, "a", 1);
+        previousRun.onBookChanged(new BookChangedEvent(BookChangedEvent.Kind.CREATED,
+                new Book("b", "Title b", "Author", "Pub", "g", null, 10.0, 1, "img")));
+
+        assertThat(log.since(previousRun.getVersion()).resync()).isTrue();
+        assertThat(log.since("not-a-version").resync()).isTrue();
+        assertThat(log.since(log.getVersion()).resync()).isFalse();
+    }
+
+    private static String plus(String version, long writes) {
+        int colon = version.lastIndexOf(':');
+        return version.substring(0, colon + 1) + (Long.parseLong(version.substring(colon + 1)) + writes);
+    }
+
+    private void write(BookChangedEvent.Kind kind, String isbn, int inventory) {
+        log.onBookChanged(new BookChangedEvent(kind,
+                new Book(isbn, "Title " + isbn, "Author", "Pub", "g", null, 10.0, inventory, "img")));
+    }
+}
@@ -0,0 +1,88 @@
+package com.amazin.svelteamazin.service;
+
+import com.amazin.svelteamazin.model.Book;
+import com.amazin.svelteamazin.model.BookChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogListingCacheTest {
+
+    private final CatalogChangeLog changeLog = new CatalogChangeLog(100);
+    private final CatalogListingCache cache = new CatalogListingCache(new ObjectMapper(), changeLog, 2);
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void servesCachedBytesUntilAWriteCommits() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        AtomicReference<List<String>> rows = new AtomicReference<>(List.of("a"));
+        CountDownLatch reloading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<List<String>> loader = () -> {
+            if (loads.incrementAndGet() > 1) {
+                reloading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return rows.get();
+        };
+
+        CatalogListingCache.Listing first = cache.get("", loader);
+        assertThat(new String(first.json())).isEqualTo("[\"a\"]");
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(first.gzip()))) {
+            assertThat(in.readAllBytes()).isEqualTo(first.json());
+        }
+        assertThat(cache.get("", List::of)).isSameAs(first);
+        assertThat(loads).hasValue(1);
+
+        rows.set(List.of("a", "b"));
+        Book book = new Book("1", "Title", "Author", "Pub", "Genre", null, 10.0, 1, "img");
+        changeLog.onBookChanged(new BookChangedEvent(BookChangedEvent.Kind.UPDATED, book));
+        cache.onBookChanged(new BookChangedEvent(BookChangedEvent.Kind.UPDATED, book));
+
+        // The old bytes are served while the background re-render runs; requests do not render
+        assertThat(reloading.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(cache.get("", List::of)).isSameAs(first);
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.get("", List::of) == first && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        CatalogListingCache.Listing refreshed = cache.get("", List::of);
+        assertThat(new String(refreshed.json())).isEqualTo("[\"a\",\"b\"]");
+        // Clients sync from the version the listing was loaded at
+        assertThat(first.catalogVersion()).isNotEqualTo(refreshed.catalogVersion());
+        assertThat(refreshed.catalogVersion()).isEqualTo(changeLog.getVersion());
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void rendersPerRequestPastMaxVariants() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("a", List::of);
+        cache.get("b", List::of);
+
+        cache.get("c", () -> { loads.incrementAndGet(); return List.of(); });
+        cache.get("c", () -> { loads.incrementAndGet(); return List.of(); });
+
+        assertThat(loads).hasValue(2);
+    }
+}
@@ -0,0 +1,43 @@
+package com.amazin.svelteamazin.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Password verifications per second through PasswordHasher at several PBKDF2 costs.
+ * Run with: ./mvnw test -Dtest=LoginThroughputBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LoginThroughputBenchmarkTest {
+
+    private static final int[] ITERATIONS = {50_000, 100_000, 210_000, 310_000, 600_000};
+    private static final int THREADS = 2;
+    private static final int LOGINS = 200;
+
+    @Test
+    void loginThroughputPerCost() {
+        for (int iterations : ITERATIONS) {
+            PasswordHasher hasher = new PasswordHasher(new SimpleMeterRegistry(), iterations, THREADS, LOGINS);
+            String hash = hasher.hash("correct horse battery staple");
+            for (int i = 0; i < THREADS * 2; i++) hasher.verify("correct horse battery staple", hash).join();   // warm-up
+
+            long start = System.nanoTime();
+            List<CompletableFuture<Boolean>> logins = new ArrayList<>(LOGINS);
+            for (int i = 0; i < LOGINS; i++) logins.add(hasher.verify("correct horse battery staple", hash));
+            long ok = logins.stream().filter(CompletableFuture::join).count();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("pbkdf2 %,d iterations: %d threads, %.1f logins/s, %.1f ms per verification%n",
+                    iterations, THREADS, LOGINS / seconds, seconds * 1000 * THREADS / LOGINS);
+            assertThat(ok).isEqualTo(LOGINS);
+            hasher.shutdown();
+        }
+    }
+}
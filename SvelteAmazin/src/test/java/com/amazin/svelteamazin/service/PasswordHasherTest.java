@@ -0,0 +1,101 @@
+package com.amazin.svelteamazin.service;
+
+import com.amazin.svelteamazin.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PasswordHasherTest {
+
+    private final PasswordHasher hasher = new PasswordHasher(new SimpleMeterRegistry(), 1_000, 1, 4);
+
+    @AfterEach
+    void shutdown() {
+        hasher.shutdown();
+    }
+
+    @Test
+    void hashesAreSaltedAndVerify() {
+        String first = hasher.hash("secret");
+        String second = hasher.hash("secret");
+
+        assertThat(first).startsWith("pbkdf2-sha256$1000$").isNotEqualTo(second);
+        assertThat(hasher.verify("secret", first).join()).isTrue();
+        assertThat(hasher.verify("secret", second).join()).isTrue();
+        assertThat(hasher.verify("Secret", first).join()).isFalse();
+        assertThat(hasher.needsRehash(first)).isFalse();
+    }
+
+    @Test
+    void plaintextAndOtherCostsVerifyButNeedRehash() {
+        String cheaper = new PasswordHasher(new SimpleMeterRegistry(), 500, 1, 1).hash("secret");
+
+        assertThat(hasher.verify("secret", cheaper).join()).isTrue();
+        assertThat(hasher.needsRehash(cheaper)).isTrue();
+        assertThat(hasher.verify("secret", "secret").join()).isTrue();
+        assertThat(hasher.verify("other", "secret").join()).isFalse();
+        assertThat(hasher.needsRehash("secret")).isTrue();
+    }
+
+    @Test
+    void malformedHashesFailToMatch() {
+        assertThat(hasher.matches("secret", "pbkdf2-sha256$many$c2FsdA$aGFzaA")).isFalse();
+        assertThat(hasher.matches("secret", "pbkdf2-sha256$1000$not base64!$aGFzaA")).isFalse();
+        assertThat(hasher.matches("secret", "pbkdf2-sha256$0$c2FsdA$aGFzaA")).isFalse();
+        assertThat(hasher.matches("secret", "pbkdf2-sha256$1000$$aGFzaA")).isFalse();
+    }
+
+    @Test
+    void verificationsBeyondTheQueueAreRefused() {
+        PasswordHasher slow = new PasswordHasher(new SimpleMeterRegistry(), 200_000, 1, 1);
+        String hash = slow.hash("secret");
+        List<CompletableFuture<Boolean>> logins = new ArrayList<>();
+        for (int i = 0; i < 6; i++) logins.add(slow.verify("secret", hash));
+
+        // One running, one queued, the rest refused straight away
+        assertThat(logins).filteredOn(CompletableFuture::isCompletedExceptionally).hasSizeGreaterThanOrEqualTo(4);
+        assertThatThrownBy(() -> logins.get(5).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(LoginBusyException.class);
+        slow.shutdown();
+    }
+
+    @Test
+    void plaintextRowIsRehashedAfterSuccessfulLogin() {
+        UserService users = mock(UserService.class);
+        when(users.findByUsername("john")).thenReturn(new User(7L, "john", "password123", "USER"));
+        AuthService auth = new AuthService(users, hasher);
+
+        assertThat(auth.authenticateUser("john", "password123").join()).isNotNull();
+
+        verify(users, timeout(2_000)).updatePassword(eq(7L), eq("password123"), anyString());
+    }
+
+    @Test
+    void failedLoginLeavesThePlaintextRowAlone() {
+        UserService users = mock(UserService.class);
+        when(users.findByUsername("john")).thenReturn(new User(7L, "john", "password123", "USER"));
+        AuthService auth = new AuthService(users, hasher);
+
+        assertThat(auth.authenticateUser("john", "wrong").join()).isNull();
+        assertThat(auth.authenticateUser("nobody", "password123").join()).isNull();
+
+        verify(users, never()).updatePassword(any(), any(), any());
+    }
+}
@@ -0,0 +1,104 @@
+package com.amazin.svelteamazin.service;
+
+import com.amazin.svelteamazin.model.Order;
+import com.amazin.svelteamazin.model.OrderItem;
+import com.amazin.svelteamazin.model.User;
+import com.amazin.svelteamazin.repository.OrderRepository;
+import com.amazin.svelteamazin.repository.UserRepository;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SalesRollupsTest {
+
+    // Far from "now", so orders placed by other tests never land in the range under test
+    private static final LocalDate DAY = LocalDate.of(2001, 3, 14);
+
+    @Autowired
+    private SalesRollups rollups;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final List<Order> placed = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll(placed);
+        rollups.rebuild();
+    }
+
+    @Test
+    void checkoutsAreRolledUpIncrementallyAndRebuildAgrees() throws Exception {
+        place(DAY.atTime(9, 15), "roll-1", 10.0, 2);
+        place(DAY.atTime(9, 45), "roll-1", 10.0, 1);
+        place(DAY.atTime(14, 5), "roll-2", 4.5, 2);
+
+        awaitUnits(5);
+        assertThat(rollups.byDay(DAY, DAY)).containsExactly(new SalesRollups.DayTotal(DAY, 5, 39.0));
+        assertThat(rollups.topBooks(DAY, DAY, 10)).extracting(SalesRollups.BookTotal::isbn)
+                .containsExactly("roll-1", "roll-2");
+        assertThat(rollups.byHour(DAY, DAY)).extracting(SalesRollups.HourTotal::orders).containsExactly(2L, 1L);
+
+        // Recomputing from history gives the same numbers; nothing is counted twice
+        rollups.rebuild();
+        assertThat(rollups.byDay(DAY, DAY)).containsExactly(new SalesRollups.DayTotal(DAY, 5, 39.0));
+        assertThat(rollups.byHour(DAY, DAY)).extracting(SalesRollups.HourTotal::orders).containsExactly(2L, 1L);
+
+        mockMvc.perform(get("/api/owner/analytics").param("from", DAY.toString()).param("to", DAY.toString())
+                        .cookie(new Cookie("role", "OWNER")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totals.orders").value(3))
+                .andExpect(jsonPath("$.totals.revenue").value(39.0))
+                .andExpect(jsonPath("$.topBooks[0].isbn").value("roll-1"))
+                .andExpect(jsonPath("$.topBooks[0].units").value(3));
+    }
+
+    @Test
+    void rejectsInvertedOrOversizedRanges() throws Exception {
+        mockMvc.perform(get("/api/owner/analytics").param("from", "2001-03-14").param("to", "2001-03-01")
+                        .cookie(new Cookie("role", "OWNER")))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/owner/analytics").param("from", "2000-01-01").param("to", "2001-03-01")
+                        .cookie(new Cookie("role", "OWNER")))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void place(LocalDateTime at, String isbn, double price, int quantity) {
+        User user = userRepository.findByUsername("john");
+        Order order = new Order(user);
+        order.setCreatedAt(at);
+        order.setItems(new ArrayList<>(List.of(new OrderItem(order, isbn, "Title " + isbn, price, quantity, null))));
+        placed.add(orderRepository.save(order));
+    }
+
+    private void awaitUnits(long units) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            if (rollups.byDay(DAY, DAY).stream().mapToLong(SalesRollups.DayTotal::units).sum() >= units) return;
+            Thread.sleep(20);
+        }
+    }
+}
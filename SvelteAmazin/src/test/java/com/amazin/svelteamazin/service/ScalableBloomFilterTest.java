@@ -0,0 +1,48 @@
+package com.amazin.svelteamazin.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class ScalableBloomFilterTest {
+
+    @Test
+    void neverMissesAnAddedKeyAndStaysNearTheTargetRate() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) filter.add("978" + i);
+
+        for (int i = 0; i < 10_000; i++) assertThat(filter.mightContain("978" + i)).isTrue();
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("absent-" + i)) falsePositives++;
+        }
+        assertThat(falsePositives / 100_000.0).isLessThan(0.01);
+        assertThat(filter.expectedFalsePositiveRate()).isLessThan(0.01);
+        assertThat(filter.layerCount()).isEqualTo(1);
+    }
+
+    @Test
+    void growsNewLayersInsteadOfDegrading() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 20_000; i++) filter.add("978" + i);
+
+        assertThat(filter.layerCount()).isGreaterThan(1);
+        assertThat(filter.size()).isLessThanOrEqualTo(20_000);
+        for (int i = 0; i < 20_000; i++) assertThat(filter.mightContain("978" + i)).isTrue();
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("absent-" + i)) falsePositives++;
+        }
+        // Each layer runs up to its own rate, so the total approaches (but stays under) the target
+        assertThat(filter.expectedFalsePositiveRate()).isLessThan(0.01);
+        assertThat(falsePositives / 100_000.0).isCloseTo(filter.expectedFalsePositiveRate(), within(0.002));
+    }
+
+    @Test
+    void rejectsImpossibleRates() {
+        assertThatThrownBy(() -> new ScalableBloomFilter(100, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ScalableBloomFilter(100, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
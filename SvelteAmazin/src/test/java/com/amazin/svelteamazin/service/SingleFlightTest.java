@@ -0,0 +1,85 @@
+package com.amazin.svelteamazin.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareOneComputation() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(0);
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(pool.submit(() -> singleFlight.execute("k", () -> {
+                computations.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "value";
+            })));
+            started.await();
+            for (int i = 0; i < 7; i++) {
+                results.add(pool.submit(() -> singleFlight.execute("k", () -> {
+                    computations.incrementAndGet();
+                    return "other";
+                })));
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+            }
+            assertThat(computations).hasValue(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void failuresReachTheCallerAndAreNotReused() {
+        SingleFlight singleFlight = new SingleFlight(60_000);
+
+        assertThatThrownBy(() -> singleFlight.execute("k", () -> { throw new IllegalStateException("boom"); }))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("boom");
+        assertThat(singleFlight.execute("k", () -> "recovered")).isEqualTo("recovered");
+    }
+
+    @Test
+    void resultsStayFreshForTheWindowOnly() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(100);
+
+        assertThat(singleFlight.execute("k", () -> 1)).isEqualTo(1);
+        assertThat(singleFlight.execute("k", () -> 2)).isEqualTo(1);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.execute("k", () -> 3) == 1 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(singleFlight.execute("k", () -> 4)).isIn(3, 4);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
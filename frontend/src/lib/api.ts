@@ -6,9 +6,42 @@ import type { Book } from './types';
 // Leaving API_BASE empty makes fetch('/api/...') hit the same server.
 const API_BASE = '';
 
-export async function getAllBooks(fetchFn: typeof fetch = fetch): Promise<Book[]> {
-    const res = await fetchFn(`${API_BASE}/api/books`);
+// Listings return summaries without the description; genre stays because the
+// catalog's genre filter (stores/filterSort.ts) matches on it client-side
+const CATALOG_FIELDS = 'isbn,title,author,genre,price,inventory,imageUrl';
+
+export type CatalogListing = {
+    books: Book[];
+    version?: string; // catalog version to sync from; the listing may trail the latest write
+};
+
+export async function getAllBooks(fetchFn: typeof fetch = fetch): Promise<CatalogListing> {
+    const params = new URLSearchParams({ fields: CATALOG_FIELDS });
+    const res = await fetchFn(`${API_BASE}/api/books?${params.toString()}`);
     if (!res.ok) throw new Error(`Failed to load books (${res.status})`);
+    const version = res.headers.get('X-Catalog-Version');
+    return { books: await res.json(), version: version ?? undefined };
+}
+
+// Versions are opaque: a version from before a server restart just gets resync=true
+export type BookChange = {
+    version: string;
+    isbn: string;
+    deleted: boolean;
+    book: Book | null; // null for a deleted book
+};
+
+export type BookChanges = {
+    version: string;
+    resync: boolean; // true: reload the full listing, then sync from `version`
+    changes: BookChange[];
+};
+
+export async function getBookChanges(since?: string, fetchFn: typeof fetch = fetch): Promise<BookChanges> {
+    const params = new URLSearchParams();
+    if (since !== undefined) params.set('since', since);
+    const res = await fetchFn(`${API_BASE}/api/books/changes?${params.toString()}`);
+    if (!res.ok) throw new Error(`Failed to load catalog changes (${res.status})`);
     return res.json();
 }
 
@@ -18,6 +51,26 @@ export async function getBookByIsbn(isbn: string, fetchFn: typeof fetch = fetch)
     return res.json();
 }
 
+export type BookLookup = {
+    isbn: string;
+    found: boolean;
+    book: Book | null; // null when not found
+};
+
+// One request for many books, in the order given; long lists go in a POST body
+export async function getBooksByIsbns(isbns: string[], fetchFn: typeof fetch = fetch): Promise<BookLookup[]> {
+    const res =
+        isbns.length > 50
+            ? await fetchFn(`${API_BASE}/api/books/batch`, {
+                  method: 'POST',
+                  headers: { 'Content-Type': 'application/json' },
+                  body: JSON.stringify(isbns)
+              })
+            : await fetchFn(`${API_BASE}/api/books/batch?${new URLSearchParams({ isbns: isbns.join(',') })}`);
+    if (!res.ok) throw new Error(`Batch lookup failed (${res.status})`);
+    return res.json();
+}
+
 export async function searchBooks(query: string, fetchFn: typeof fetch = fetch): Promise<Book[]> {
     const params = new URLSearchParams({ query });
     const res = await fetchFn(`${API_BASE}/api/books?${params.toString()}`); // if your backend uses /search, switch line below
@@ -26,6 +79,20 @@ export async function searchBooks(query: string, fetchFn: typeof fetch = fetch):
     return res.json();
 }
 
+export type Suggestion = {
+    text: string;
+    type: 'title' | 'author';
+    isbn?: string;
+};
+
+// Typeahead completions for titles and authors (GET /api/books/suggest)
+export async function suggestBooks(prefix: string, limit = 8, fetchFn: typeof fetch = fetch): Promise<Suggestion[]> {
+    const params = new URLSearchParams({ prefix, limit: String(limit) });
+    const res = await fetchFn(`${API_BASE}/api/books/suggest?${params.toString()}`);
+    if (!res.ok) throw new Error(`Suggest failed (${res.status})`);
+    return res.json();
+}
+
 export async function createBook(book: Partial<Book>, fetchFn: typeof fetch = fetch): Promise<Book> {
     const res = await fetchFn(`${API_BASE}/api/owner/books`, {
         method: 'POST',
@@ -78,6 +145,30 @@ export async function setCartItemQuantity(
     return res.json();
 }
 
+export type CartItemChange = {
+    isbn: string;
+    quantity: number;
+};
+
+// Applies several quantity edits (0 removes the line) in one round trip
+export async function setCartItemQuantities(
+    changes: CartItemChange[],
+    fetchFn: typeof fetch = fetch
+): Promise<CartItemResponse[]> {
+    const res = await fetchFn(`${API_BASE}/api/cart/items`, {
+        method: 'PATCH',
+        headers: { 'Content-Type': 'application/json' },
+        credentials: 'include',
+        body: JSON.stringify(changes)
+    });
+    if (!res.ok) {
+        const message = await extractErrorMessage(res, 'Unable to update cart');
+        throw new Error(message);
+    }
+
+    return res.json();
+}
+
 export async function deleteCartItem(
     isbn: string,
     fetchFn: typeof fetch = fetch
@@ -138,6 +229,32 @@ export async function fetchOrders(fetchFn: typeof fetch = fetch): Promise<OrderR
     return res.json();
 }
 
+export type SalesAnalytics = {
+    from: string;
+    to: string;
+    totals: { orders: number; units: number; revenue: number };
+    daily: { day: string; units: number; revenue: number }[];
+    topBooks: { isbn: string; title: string; units: number; revenue: number }[];
+    hourly: { hour: string; orders: number; units: number; revenue: number }[];
+};
+
+// Owner-only; served from pre-aggregated rollups. Dates are inclusive yyyy-mm-dd
+export async function getSalesAnalytics(
+    from?: string,
+    to?: string,
+    fetchFn: typeof fetch = fetch
+): Promise<SalesAnalytics> {
+    const params = new URLSearchParams();
+    if (from) params.set('from', from);
+    if (to) params.set('to', to);
+    const res = await fetchFn(`${API_BASE}/api/owner/analytics?${params}`, { credentials: 'include' });
+    if (!res.ok) {
+        const message = await extractErrorMessage(res, 'Unable to load sales');
+        throw new Error(message);
+    }
+    return res.json();
+}
+
 async function extractErrorMessage(res: Response, fallback: string): Promise<string> {
     try {
         const data = await res.json();
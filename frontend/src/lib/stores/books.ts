@@ -1,10 +1,50 @@
 import { writable, get } from 'svelte/store';
+import { getAllBooks, getBookChanges, getBooksByIsbns } from '$lib/api';
 import type { Book } from '$lib/types';
 
 export const booksStore = writable<Book[]>([]);
 
-export function setBooks(books: Book[]): void {
+// Catalog version the store reflects; undefined until the first listing is loaded
+let catalogVersion: string | undefined;
+
+export function setBooks(books: Book[], version?: string): void {
     booksStore.set(books);
+    catalogVersion = version;
+}
+
+// Apply only what changed since the last sync; reload everything if the server says so
+export async function syncBooks(fetchFn: typeof fetch = fetch): Promise<void> {
+    const delta = await getBookChanges(catalogVersion, fetchFn);
+    if (delta.resync) {
+        const listing = await getAllBooks(fetchFn);
+        setBooks(listing.books, listing.version ?? delta.version);
+        return;
+    }
+    booksStore.update((current) => {
+        const byIsbn = new Map(current.map((book) => [book.isbn, book]));
+        for (const change of delta.changes) {
+            if (change.deleted || !change.book) {
+                byIsbn.delete(change.isbn);
+            } else {
+                // Keep fields the summary omits (genre) from the copy we already have
+                byIsbn.set(change.isbn, { ...byIsbn.get(change.isbn), ...change.book });
+            }
+        }
+        return [...byIsbn.values()];
+    });
+    catalogVersion = delta.version;
+}
+
+// Load the given books into the store if missing (e.g. /cart opened directly), in one request
+export async function ensureBooks(isbns: string[], fetchFn: typeof fetch = fetch): Promise<void> {
+    const present = new Set(get(booksStore).map((book) => book.isbn));
+    const missing = isbns.filter((isbn) => !present.has(isbn));
+    if (missing.length === 0) return;
+    const found = (await getBooksByIsbns(missing, fetchFn)).flatMap((lookup) => (lookup.book ? [lookup.book] : []));
+    booksStore.update((current) => {
+        const known = new Set(current.map((book) => book.isbn));
+        return [...current, ...found.filter((book) => !known.has(book.isbn))];
+    });
 }
 
 export function addBookToStore(book: Book): void {
@@ -17,6 +57,24 @@ export function updateBookInventory(isbn: string, inventory: number): void {
     );
 }
 
+type InventoryUpdate = { isbn: string; price: number; inventory: number; deleted: boolean };
+
+// Live price/stock from /api/books/stream (all books, or just `isbns`); returns a function that closes it
+export function watchInventory(isbns: string[] = []): () => void {
+    const params = new URLSearchParams();
+    if (isbns.length) params.set('isbns', isbns.join(','));
+    const source = new EventSource(`/api/books/stream?${params.toString()}`);
+    source.addEventListener('inventory', (event) => {
+        const update: InventoryUpdate = JSON.parse((event as MessageEvent).data);
+        // A deleted book can no longer be bought, so show it as out of stock
+        const changes = update.deleted ? { inventory: 0 } : { price: update.price, inventory: update.inventory };
+        booksStore.update((current) =>
+            current.map((book) => (book.isbn === update.isbn ? { ...book, ...changes } : book))
+        );
+    });
+    return () => source.close();
+}
+
 export function findBookInStore(isbn: string): Book | undefined {
     return get(booksStore).find((book) => book.isbn === isbn);
 }
@@ -4,6 +4,7 @@ import {
     checkoutCart,
     deleteCartItem,
     fetchCart,
+    setCartItemQuantities,
     setCartItemQuantity,
     type CartItemResponse,
     type OrderResponse
@@ -63,24 +64,60 @@ export async function addToCart(book: Book, quantity = 1): Promise<void> {
     applyCart(updated);
 }
 
+// Quantity edits made within this window are sent together as one PATCH
+const EDIT_DEBOUNCE_MS = 300;
+
+let pendingEdits = new Map<string, number>();
+let pendingWaiters: { resolve: () => void; reject: (error: unknown) => void }[] = [];
+let editTimer: ReturnType<typeof setTimeout> | undefined;
+
 export async function updateCartItemQuantity(isbn: string, quantity: number): Promise<void> {
     if (!Number.isInteger(quantity) || quantity < 0) {
         throw new Error('Quantity must be zero or a positive whole number.');
     }
-    if (quantity === 0) {
-        await removeFromCart(isbn);
-        return;
-    }
 
     const availableInventory = get(booksStore).find((b) => b.isbn === isbn)?.inventory ?? 0;
 
     if (quantity > availableInventory) {
         throw new Error(`Only ${availableInventory} copies remain in stock.`);
     }
-    const updated = await setCartItemQuantity(isbn, quantity);
-    applyCart(updated);
+
+    // Show the edit straight away; the server's cart replaces it once the batch is sent
+    cartStore.update((items) =>
+        quantity === 0
+            ? items.filter((item) => item.isbn !== isbn)
+            : items.map((item) => (item.isbn === isbn ? { ...item, quantity } : item))
+    );
+    pendingEdits.set(isbn, quantity);
+
+    return new Promise((resolve, reject) => {
+        pendingWaiters.push({ resolve, reject });
+        clearTimeout(editTimer);
+        // Waiters receive any failure, so the timer itself swallows it
+        editTimer = setTimeout(() => flushCartEdits().catch(() => {}), EDIT_DEBOUNCE_MS);
+    });
 }
 
+export async function flushCartEdits(): Promise<void> {
+    clearTimeout(editTimer);
+    editTimer = undefined;
+    if (pendingEdits.size === 0) return;
+
+    const changes = [...pendingEdits].map(([isbn, quantity]) => ({ isbn, quantity }));
+    const waiters = pendingWaiters;
+    pendingEdits = new Map();
+    pendingWaiters = [];
+
+    try {
+        applyCart(await setCartItemQuantities(changes));
+        waiters.forEach((waiter) => waiter.resolve());
+    } catch (error) {
+        // Nothing in the batch was applied; drop the optimistic edits
+        await loadCart().catch(() => {});
+        waiters.forEach((waiter) => waiter.reject(error));
+        throw error;
+    }
+}
 
 export async function removeFromCart(isbn: string): Promise<void> {
     const updated = await deleteCartItem(isbn);
@@ -92,6 +129,7 @@ export function clearCart(): void {
 }
 
 export async function checkout(): Promise<OrderResponse> {
+    await flushCartEdits();
     const response = await checkoutCart();
     booksStore.update((current) => {
         const inventoryMap = new Map(response.updatedBooks.map((book) => [book.isbn, book.inventory]));
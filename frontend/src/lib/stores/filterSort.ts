@@ -28,14 +28,13 @@ export const filteredSortedBooks = derived(
   ([$books, $filterState]) => {
     let result = [...$books];
 
-    // Apply search filter
+    // Apply search filter (title and author: listings are loaded without descriptions)
     if ($filterState.searchTerm.trim()) {
       const searchLower = $filterState.searchTerm.toLowerCase();
       result = result.filter(
         book =>
           book.title.toLowerCase().includes(searchLower) ||
-          book.author.toLowerCase().includes(searchLower) ||
-          book.description?.toLowerCase().includes(searchLower)
+          book.author.toLowerCase().includes(searchLower)
       );
     }
 
@@ -1,7 +1,10 @@
-import { getAllBooks } from '$lib/api';
+import { getAllBooks, getBookChanges } from '$lib/api';
 
 export const load = async ({ fetch }: { fetch: typeof globalThis.fetch }) => {
-    const books = await getAllBooks(fetch);
-    console.log('Loaded books:', books.length);
-    return { initialBooks: books };
+    // Read the version first: changes made while the listing loads are re-applied on the next sync
+    const { version } = await getBookChanges(undefined, fetch);
+    const listing = await getAllBooks(fetch);
+    console.log('Loaded books:', listing.books.length);
+    // The listing may predate `version`; syncing from its own version replays what it missed
+    return { initialBooks: listing.books, catalogVersion: listing.version ?? version };
 };
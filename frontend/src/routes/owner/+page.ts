@@ -1,10 +1,13 @@
 import type { PageLoad } from './$types';
 import { redirect } from '@sveltejs/kit';
+import { getSalesAnalytics } from '$lib/api';
 
 export const load: PageLoad = async ({ fetch }) => {
     const r = await fetch('/api/auth/me', { credentials: 'include' });
     if (!r.ok) throw redirect(302, '/');
     const { role } = await r.json();
     if (role !== 'OWNER') throw redirect(302, '/');
-    return {};
+    // The dashboard still renders if the sales rollups are unavailable
+    const sales = await getSalesAnalytics(undefined, undefined, fetch).catch(() => null);
+    return { sales };
 };